@@ -161,6 +161,8 @@ public class CoreBuild extends JkClass {
             .goTo("libs-sources")
                 .importFiles(ivySourceLibs)
                 .importFiles(artifactProducer.getArtifactPath(SOURCES_ARTIFACT_ID));
+        final String version = java.getProject().getPublication().getMaven().getVersion();
+        JkPathFile.of(distribFolder().resolve("version.txt")).write(version.getBytes(Charset.forName("utf-8")));
         if (java.pack.javadoc == null || java.pack.javadoc) {
             artifactProducer.makeMissingArtifacts(artifactProducer.getMainArtifactId(), JAVADOC_ARTIFACT_ID);
             distrib.importFiles(artifactProducer.getArtifactPath(JAVADOC_ARTIFACT_ID));
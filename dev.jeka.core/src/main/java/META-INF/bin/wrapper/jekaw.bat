@@ -10,7 +10,19 @@ if not "%JEKA_JDK%" == "" set "JAVA_HOME=%JEKA_JDK%"
 if "%JAVA_HOME%" == "" set "JAVA_CMD=java"
 if not "%JAVA_HOME%" == "" set "JAVA_CMD=%JAVA_HOME%\bin\java"
 
-set "COMMAND="%JAVA_CMD%" %JEKA_OPTS% -cp "%~dp0jeka\wrapper\*" dev.jeka.core.wrapper.Booter "%~dp0." %*"
+@rem Use the Class Data Sharing archive created by 'jekaw -JKS=cds' if any. Its name holds the Jeka and JDK versions
+@rem as the JVM warns at each launch when the archive does not match. Archives need JDK 13 or later.
+set "JEKA_CDS_OPTS="
+set "JEKA_VERSION="
+set "JEKA_JAVA_VERSION="
+set "JEKA_JAVA_MAJOR=0"
+if exist "%~dp0jeka\wrapper\jeka.properties" for /f "tokens=2 delims== " %%v in ('findstr /b /l /c:"jeka.version=" "%~dp0jeka\wrapper\jeka.properties"') do set "JEKA_VERSION=%%v"
+if exist "%JAVA_HOME%\release" for /f "tokens=2 delims==" %%v in ('findstr /b /l /c:"JAVA_VERSION=" "%JAVA_HOME%\release"') do set "JEKA_JAVA_VERSION=%%~v"
+if defined JEKA_JAVA_VERSION for /f "tokens=1 delims=.-" %%m in ("%JEKA_JAVA_VERSION%") do set "JEKA_JAVA_MAJOR=%%m"
+set "JEKA_CDS_ARCHIVE=.\jeka\.work\jeka-%JEKA_VERSION%-%JEKA_JAVA_VERSION%.jsa"
+if defined JEKA_VERSION if %JEKA_JAVA_MAJOR% GEQ 13 if exist "%JEKA_CDS_ARCHIVE%" set "JEKA_CDS_OPTS=-XX:+UnlockDiagnosticVMOptions -XX:SharedArchiveFile=%JEKA_CDS_ARCHIVE%"
+
+set "COMMAND="%JAVA_CMD%" %JEKA_OPTS% %JEKA_CDS_OPTS% -cp "%~dp0jeka\wrapper\*" dev.jeka.core.wrapper.Booter "%~dp0." %*"
 if not "%JEKA_ECHO_CMD%" == "" (
 	@echo on
 	echo %COMMAND%
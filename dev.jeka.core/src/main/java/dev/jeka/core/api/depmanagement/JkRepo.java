@@ -55,6 +55,8 @@ public final class JkRepo {
 
     private JkPublishConfig publishConfig = new JkPublishConfig(this);
 
+    private final List<String> groupPrefixes = new LinkedList<>();
+
     public final boolean ivyRepo; // true if this reposotory is an Ivy one, false if it is a Maven one.
 
     private JkRepo(URL url, boolean ivyRepo) {
@@ -191,6 +193,39 @@ public final class JkRepo {
         return this.setCredentials(username, password, null);
     }
 
+    /**
+     * Restricts this repository to modules belonging to the specified groups or to their sub-groups. For example
+     * <code>com.mycompany</code> (or <code>com.mycompany.*</code>) stands for <code>com.mycompany</code>,
+     * <code>com.mycompany.foo</code>, ... but not for <code>com.mycompanyfoo</code>. The repository is not queried at
+     * all for modules of other groups. By default, a repository is queried for any module.
+     */
+    public JkRepo addGroupPrefixes(String... groupPrefixes) {
+        for (final String groupPrefix : groupPrefixes) {
+            this.groupPrefixes.add(groupPrefix.endsWith(".*") ?
+                    groupPrefix.substring(0, groupPrefix.length() - 2) : groupPrefix);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the groups this repository is restricted to. An empty list means any group.
+     * @see #addGroupPrefixes(String...)
+     */
+    public List<String> getGroupPrefixes() {
+        return Collections.unmodifiableList(groupPrefixes);
+    }
+
+    /**
+     * Returns <code>true</code> if this repository may be queried for modules of the specified group.
+     * @see #addGroupPrefixes(String...)
+     */
+    public boolean acceptsGroup(String group) {
+        if (groupPrefixes.isEmpty()) {
+            return true;
+        }
+        return groupPrefixes.stream().anyMatch(prefix -> group.equals(prefix) || group.startsWith(prefix + "."));
+    }
+
     public JkRepoSet toSet() {
         return JkRepoSet.of(this);
     }
@@ -212,6 +247,7 @@ public final class JkRepo {
         result.credentials = credentials;
         result.ivyConfig = ivyConfig.copy(result);
         result.publishConfig = publishConfig.copy(result);
+        result.groupPrefixes.addAll(groupPrefixes);
         return result;
     }
 
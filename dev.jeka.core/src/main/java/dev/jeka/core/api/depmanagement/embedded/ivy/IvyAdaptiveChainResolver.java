@@ -0,0 +1,59 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.depmanagement.resolution.JkInternalRepoStats;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.ResolverSettings;
+
+import java.text.ParseException;
+import java.util.List;
+
+/*
+ * Chain resolver looking up release versions in the repository expected to answer the fastest first, according to
+ * statistics recorded in previous builds. As a release version is the same whatever repository holds it, this does
+ * not change the resolve result.
+ *
+ * Dynamic and snapshot versions are looked up in the declared order, so the declared precedence still decides which
+ * repository wins.
+ */
+final class IvyAdaptiveChainResolver extends ChainResolver {
+
+    // Holds the same resolvers than this one, ordered by expected cost
+    private final ChainResolver adaptiveChain = new ChainResolver();
+
+    private IvyAdaptiveChainResolver() {
+    }
+
+    static IvyAdaptiveChainResolver of(List<DependencyResolver> resolvers, List<DependencyResolver> adaptiveOrder) {
+        final IvyAdaptiveChainResolver result = new IvyAdaptiveChainResolver();
+        resolvers.forEach(result::add);
+        adaptiveOrder.forEach(result.adaptiveChain::add);
+        return result;
+    }
+
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        adaptiveChain.setName(name);
+    }
+
+    @Override
+    public void setSettings(ResolverSettings settings) {
+        super.setSettings(settings);
+        adaptiveChain.setSettings(settings);
+    }
+
+    @Override
+    public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data) throws ParseException {
+        final String revision = dd.getDependencyRevisionId().getRevision();
+        if (JkInternalRepoStats.isOrderIndependent(JkVersion.of(revision))) {
+            return adaptiveChain.getDependency(dd, data);
+        }
+        return super.getDependency(dd, data);
+    }
+
+}
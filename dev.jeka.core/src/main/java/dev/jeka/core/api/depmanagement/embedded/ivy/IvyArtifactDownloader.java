@@ -0,0 +1,189 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.resolution.JkInternalHttpDownloader;
+import dev.jeka.core.api.system.JkLog;
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.RepositoryResolver;
+import org.apache.ivy.util.filter.Filter;
+import org.apache.ivy.util.url.IvyAuthenticator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Downloads artifacts of a resolved dependency graph concurrently, in place of Ivy that fetches them one after the
+ * other, opening a new connection for each.
+ *
+ * Artifacts are fetched directly from http repositories, through a bounded pool of threads, then checked against
+ * their published sha1 and moved atomically into the repository cache, at the very place Ivy expects it (see
+ * JkInternalHttpDownloader).
+ *
+ * This is only a warm-up for the cache : Ivy download stage runs after and fetches anything this class could not
+ * handle (snapshots, non-http repositories, missing or corrupted files), reporting failures as usual.
+ */
+final class IvyArtifactDownloader {
+
+    // Downloads still running past this delay are abandoned to Ivy
+    private static final long WAIT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int threadCount;
+
+    private final JkInternalHttpDownloader httpDownloader = JkInternalHttpDownloader.of(true);
+
+    private IvyArtifactDownloader(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    static IvyArtifactDownloader of(int threadCount) {
+        return new IvyArtifactDownloader(threadCount);
+    }
+
+    /**
+     * Downloads in cache the artifacts of the specified report that are not already there.
+     */
+    void download(ResolveReport report, Filter<Artifact> artifactFilter) {
+        if (threadCount <= 1) {
+            return;
+        }
+        final List<Download> downloads = downloads(report, artifactFilter);
+        if (downloads.isEmpty()) {
+            return;
+        }
+        IvyAuthenticator.install();
+        final long start = System.currentTimeMillis();
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(threadCount, downloads.size()), runnable -> {
+                    final Thread thread = new Thread(runnable, "jeka-artifact-download");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        final List<Future<String>> results = new LinkedList<>();
+        try {
+            for (final Download download : downloads) {
+                results.add(executorService.submit(() -> run(download)));
+            }
+            int failureCount = 0;
+            final long deadline = start + WAIT_TIMEOUT_MILLIS;
+            for (final Future<String> result : results) {
+                final String failure = result.get(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                if (failure != null) {
+                    failureCount++;
+                    JkLog.trace(failure);
+                }
+            }
+            JkLog.trace("Downloaded " + (downloads.size() - failureCount) + " artifact(s) out of "
+                    + downloads.size() + " in " + (System.currentTimeMillis() - start) + " ms using "
+                    + threadCount + " threads.");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            JkLog.trace("Parallel artifact download failed : " + e.getCause());
+        } catch (final TimeoutException e) {
+            JkLog.trace("Parallel artifact download did not complete in " + WAIT_TIMEOUT_MILLIS + " ms.");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static List<Download> downloads(ResolveReport report, Filter<Artifact> artifactFilter) {
+        final Map<File, Download> result = new LinkedHashMap<>();
+        for (final IvyNode dependency : report.getDependencies()) {
+            if (dependency.isCompletelyEvicted() || dependency.hasProblem()
+                    || dependency.getModuleRevision() == null) {
+                continue;
+            }
+            final DependencyResolver resolver = dependency.getModuleRevision().getArtifactResolver();
+            if (!(resolver instanceof RepositoryResolver)) {
+                continue;
+            }
+            final RepositoryResolver repositoryResolver = (RepositoryResolver) resolver;
+            final RepositoryCacheManager cacheManager = repositoryResolver.getRepositoryCacheManager();
+            final List<String> patterns = repositoryResolver.getArtifactPatterns();
+            if (!(cacheManager instanceof DefaultRepositoryCacheManager) || patterns.isEmpty()
+                    || !isHttp(patterns.get(0))) {
+                continue;
+            }
+            for (final Artifact artifact : dependency.getSelectedArtifacts(artifactFilter)) {
+                if (isSnapshot(artifact.getModuleRevisionId()) || artifact.getExtraAttribute("ivy:merged") != null) {
+                    continue;
+                }
+                final File file = ((DefaultRepositoryCacheManager) cacheManager).getArchiveFileInCache(artifact);
+                if (file.exists()) {
+                    continue;
+                }
+                final ModuleRevisionId moduleRevisionId = repositoryResolver.isM2compatible()
+                        ? toM2(artifact.getModuleRevisionId()) : artifact.getModuleRevisionId();
+                try {
+                    final URL url = new URL(IvyPatternHelper.substitute(patterns.get(0), moduleRevisionId, artifact));
+                    result.putIfAbsent(file, new Download(url, file));
+                } catch (final MalformedURLException e) {
+                    // Let Ivy handle it
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Downloads the specified url in the specified file. Returns a failure message or <code>null</code> if
+     * download succeeded.
+     */
+    String download(URL url, File file) {
+        return run(new Download(url, file));
+    }
+
+    // Returns a failure message or null if download succeeded
+    private String run(Download download) {
+        try {
+            if (!httpDownloader.download(download.url, download.file.toPath(), null)) {
+                return download.url + " not found.";
+            }
+            return null;
+        } catch (final IOException | RuntimeException e) {
+            return "Download of " + download.url + " failed : " + e.getMessage();
+        }
+    }
+
+    private static boolean isHttp(String pattern) {
+        return pattern.startsWith("http://") || pattern.startsWith("https://");
+    }
+
+    private static boolean isSnapshot(ModuleRevisionId moduleRevisionId) {
+        final String revision = moduleRevisionId.getRevision();
+        return revision == null || revision.toUpperCase().endsWith("-SNAPSHOT");
+    }
+
+    // Maven repositories lay out organisation as directories
+    private static ModuleRevisionId toM2(ModuleRevisionId mrid) {
+        if (mrid.getOrganisation() == null || mrid.getOrganisation().indexOf('.') == -1) {
+            return mrid;
+        }
+        return ModuleRevisionId.newInstance(mrid.getOrganisation().replace('.', '/'),
+                mrid.getName(), mrid.getBranch(), mrid.getRevision(), mrid.getQualifiedExtraAttributes());
+    }
+
+    private static final class Download {
+
+        private final URL url;
+
+        private final File file;
+
+        Download(URL url, File file) {
+            this.url = url;
+            this.file = file;
+        }
+    }
+
+}
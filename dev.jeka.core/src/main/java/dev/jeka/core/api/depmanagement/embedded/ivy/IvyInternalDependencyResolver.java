@@ -70,13 +70,29 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
         resolveOptions.setLog(logLevel());
         resolveOptions.setRefresh(parameters.isRefreshed());
         resolveOptions.setCheckIfChanged(true);
-        resolveOptions.setOutputReport(true);
+
+        // Artifacts are downloaded once the graph is known, so they can be fetched concurrently
+        resolveOptions.setDownload(false);
+        resolveOptions.setOutputReport(false);
         final ResolveReport resolveReport;
-        Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, parameters);
-        try {
-            resolveReport = ivy.resolve(moduleDescriptor, resolveOptions);
-        } catch (final Exception e) {
-            throw JkUtilsThrowable.unchecked(e);
+        final Ivy ivy = IvySessionCache.get(repoSet, parameters);
+        synchronized (ivy) {
+            try {
+                resolveReport = ivy.resolve(moduleDescriptor, resolveOptions);
+                IvyArtifactDownloader.of(parameters.getDownloadThreadCount()).download(resolveReport,
+                        resolveOptions.getArtifactFilter());
+                final DownloadOptions downloadOptions = new DownloadOptions();
+                downloadOptions.setLog(resolveOptions.getLog());
+                ivy.getResolveEngine().downloadArtifacts(resolveReport, resolveOptions.getArtifactFilter(),
+                        downloadOptions);
+                ivy.getResolveEngine().outputReport(resolveReport, ivy.getSettings().getResolutionCacheManager(),
+                        resolveOptions);
+            } catch (final Exception e) {
+                throw JkUtilsThrowable.unchecked(e);
+            }
+            if (moduleArg == null) {
+                deleteResolveCache(module, ivy);
+            }
         }
         final JkResolveResult.JkErrorReport errorReport;
         if (resolveReport.hasError()) {
@@ -88,9 +104,6 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
         final IvyArtifactContainer artifactContainer = IvyArtifactContainer.of(artifactDownloadReports);
         final JkResolveResult resolveResult = getResolveConf(resolveReport.getDependencies(), module,
                 errorReport, artifactContainer);
-        if (moduleArg == null) {
-            deleteResolveCache(module, ivy);
-        }
         return resolveResult;
     }
 
@@ -115,36 +128,44 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
             artifact = new DefaultArtifact(moduleRevisionId, null, dependency.getModuleId().getName(), type,
                     type, extra);
         }
-        Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, JkResolutionParameters.of());
-        final ArtifactDownloadReport report = ivy.getResolveEngine().download(artifact, new DownloadOptions());
-        return report.getLocalFile();
+        final Ivy ivy = IvySessionCache.get(repoSet, JkResolutionParameters.of());
+        synchronized (ivy) {
+            final ArtifactDownloadReport report = ivy.getResolveEngine().download(artifact, new DownloadOptions());
+            return report.getLocalFile();
+        }
     }
 
     @Override
     public List<String> searchGroups() {
-        Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, JkResolutionParameters.of());
-        SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
-        return Arrays.asList(searchEngine.listOrganisations()).stream()
-                .sorted()
-                .collect(Collectors.toList());
+        final Ivy ivy = IvySessionCache.get(repoSet, JkResolutionParameters.of());
+        synchronized (ivy) {
+            SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
+            return Arrays.asList(searchEngine.listOrganisations()).stream()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
     }
 
     @Override
     public List<String> searchModules(String groupId) {
-        Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, JkResolutionParameters.of());
-        SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
-        return Arrays.asList(searchEngine.listModules(groupId)).stream()
-                .sorted()
-                .collect(Collectors.toList());
+        final Ivy ivy = IvySessionCache.get(repoSet, JkResolutionParameters.of());
+        synchronized (ivy) {
+            SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
+            return Arrays.asList(searchEngine.listModules(groupId)).stream()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
     }
 
     @Override
     public List<String> searchVersions(JkModuleId moduleId) {
-        Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, JkResolutionParameters.of());
-        SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
-        return Arrays.asList(searchEngine.listRevisions(moduleId.getGroup(), moduleId.getName())).stream()
-                .sorted()
-                .collect(Collectors.toList());
+        final Ivy ivy = IvySessionCache.get(repoSet, JkResolutionParameters.of());
+        synchronized (ivy) {
+            SearchEngine searchEngine = new SearchEngine(ivy.getSettings());
+            return Arrays.asList(searchEngine.listRevisions(moduleId.getGroup(), moduleId.getName())).stream()
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
     }
 
 
@@ -195,6 +216,9 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
         // parent to children parentChildMap
         private final Map<JkModuleId, List<JkModuleNodeInfo>> parentChildMap = new HashMap<>();
 
+        // Children are the same for all occurrences of a module, so their nodes are shared
+        private final Map<JkModuleId, List<JkResolvedDependencyNode>> childrenCache = new HashMap<>();
+
         IvyTreeResolver(Iterable<IvyNode> nodes, IvyArtifactContainer artifactContainer) {
 
 
@@ -204,7 +228,7 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
                 }
                 final JkModuleId moduleId = JkModuleId.of(node.getId().getOrganisation(), node.getId().getName());
                 final JkVersion resolvedVersion = JkVersion.of(node.getResolvedId().getRevision());
-                final Set<String> rootConfigurations = JkUtilsIterable.setOf(node.getRootModuleConfigurations());
+                final Set<String> rootConfigurations = rootConfigurations(node);
 
                 List<Path> artifacts;
                 if (!node.isCompletelyEvicted()) {
@@ -233,6 +257,15 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
             }
         }
 
+        // Root configurations this node is actually fetched for, leaving out the ones it has been evicted in
+        private static Set<String> rootConfigurations(IvyNode node) {
+            final Set<String> result = JkUtilsIterable.setOf(node.getRootModuleConfigurations());
+            if (!node.isCompletelyEvicted()) {
+                result.removeIf(node::isEvicted);
+            }
+            return result;
+        }
+
         private static boolean containsSame(List<JkModuleNodeInfo> list, JkModuleId moduleId) {
             for (final JkModuleNodeInfo moduleNodeInfo : list) {
                 if (moduleNodeInfo.getModuleId().equals(moduleId)) {
@@ -247,14 +280,13 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
                 return JkResolvedDependencyNode.ofModuleDep(holder, new LinkedList<>());
             }
 
-            List<JkResolvedDependencyNode.JkModuleNodeInfo> moduleNodeInfos = parentChildMap.get(holder.getModuleId());
-            if (moduleNodeInfos == null) {
-                moduleNodeInfos = new LinkedList<>();
-            }
-            final List<JkResolvedDependencyNode> childNodes = new LinkedList<>();
-            for (final JkModuleNodeInfo moduleNodeInfo : moduleNodeInfos) {
-                final JkResolvedDependencyNode childNode = createNode(moduleNodeInfo);
-                childNodes.add(childNode);
+            List<JkResolvedDependencyNode> childNodes = childrenCache.get(holder.getModuleId());
+            if (childNodes == null) {
+                childNodes = new ArrayList<>();
+                for (final JkModuleNodeInfo moduleNodeInfo : parentChildMap.get(holder.getModuleId())) {
+                    childNodes.add(createNode(moduleNodeInfo));
+                }
+                childrenCache.put(holder.getModuleId(), childNodes);
             }
             return JkResolvedDependencyNode.ofModuleDep(holder, childNodes);
         }
@@ -0,0 +1,198 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.resolution.JkInternalRepoStats;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.util.MessageLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.*;
+
+/*
+ * Spares lookups of modules in repositories known not to hold them, so resolving on a chain of repositories does
+ * not cost a round trip on each repository for every module.
+ *
+ * A repository restricted to some group prefixes is only queried for modules of these groups. Besides, modules
+ * found missing from a repository are recorded in a file under the repository cache, and are not looked up again in
+ * this repository until the update policy TTL expires. Misses occurring along with connection problems are not
+ * recorded, as the module may actually exist. Neither are misses from file system repositories, cheap to look up and
+ * filled by local builds, nor misses of snapshots, which may be published at any time. Expired misses are removed
+ * from the file when it is loaded.
+ *
+ * When adaptive repository order is on, the duration and outcome of actual lookups are recorded as well.
+ */
+final class IvyRepoLookupFilter {
+
+    @FunctionalInterface
+    interface Lookup {
+
+        ResolvedModuleRevision get(DependencyDescriptor dd, ResolveData data) throws ParseException;
+    }
+
+    // Module revisions found missing, along with the time they have been found missing, by file
+    private static final Map<Path, Map<String, Long>> MISSES = new HashMap<>();
+
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+    private final JkRepo repo;
+
+    private final long ttlMillis;
+
+    private final Path file;
+
+    // Records lookups if not null
+    private final JkInternalRepoStats repoStats;
+
+    private IvyRepoLookupFilter(JkRepo repo, long ttlMillis, Path file, JkInternalRepoStats repoStats) {
+        this.repo = repo;
+        this.ttlMillis = ttlMillis;
+        this.file = file;
+        this.repoStats = repoStats;
+    }
+
+    static IvyRepoLookupFilter of(JkRepo repo, JkResolutionParameters parameters) {
+        final String fileName = repo.getUrl().toString().replaceAll("[^a-zA-Z0-9.\\-]", "_") + ".txt";
+        return new IvyRepoLookupFilter(repo, parameters.getUpdatePolicy().getTtlMillis(),
+                JkLocator.getJekaRepositoryCache().resolve("misses").resolve(fileName),
+                parameters.isAdaptiveRepoOrder() ? JkInternalRepoStats.of() : null);
+    }
+
+    /**
+     * Creates a filter recording misses in the specified file, without recording lookup statistics.
+     */
+    static IvyRepoLookupFilter of(JkRepo repo, long ttlMillis, Path file) {
+        return new IvyRepoLookupFilter(repo, ttlMillis, file, null);
+    }
+
+    /**
+     * Looks up the specified dependency using the specified lookup, unless this repository is known not to hold it.
+     * As expected by chain resolvers, returns the module revision resolved by previous resolvers if the lookup
+     * is skipped.
+     */
+    ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data, Lookup lookup)
+            throws ParseException {
+        final ModuleRevisionId moduleRevisionId = dd.getDependencyRevisionId();
+        final ResolvedModuleRevision previous = data.getCurrentResolvedModuleRevision();
+        if (!repo.acceptsGroup(moduleRevisionId.getOrganisation())) {
+            return previous;
+        }
+        if (previous != null) {
+            return lookup.get(dd, data);
+        }
+        final String key = moduleRevisionId.getOrganisation() + ":" + moduleRevisionId.getName() + ":"
+                + moduleRevisionId.getRevision();
+        final boolean snapshot = moduleRevisionId.getRevision() != null
+                && moduleRevisionId.getRevision().endsWith(SNAPSHOT_SUFFIX);
+        final boolean fileSystem = "file".equals(repo.getUrl().getProtocol());
+        final Map<String, Long> misses = ttlMillis <= 0 || snapshot || fileSystem ? null : misses();
+        if (misses != null) {
+            final Long missTime;
+            synchronized (misses) {
+                missTime = misses.get(key);
+            }
+            if (missTime != null && System.currentTimeMillis() - missTime < ttlMillis) {
+                JkLog.trace(key + " is known to be missing from " + repo + " : skip lookup.");
+                return null;
+            }
+        }
+        final MessageLogger messageLogger = IvyContext.getContext().getMessageLogger();
+        final int problemCount = messageLogger.getProblems().size();
+        final long start = System.currentTimeMillis();
+        ResolvedModuleRevision result = null;
+        try {
+            result = lookup.get(dd, data);
+        } finally {
+            if (repoStats != null) {
+                repoStats.record(repo, result != null, System.currentTimeMillis() - start);
+            }
+        }
+        if (misses != null && result == null && messageLogger.getProblems().size() == problemCount) {
+            recordMiss(misses, key);
+        }
+        return result;
+    }
+
+    private Map<String, Long> misses() {
+        synchronized (MISSES) {
+            return MISSES.computeIfAbsent(file, path -> load(path, ttlMillis));
+        }
+    }
+
+    private void recordMiss(Map<String, Long> misses, String key) {
+        final long now = System.currentTimeMillis();
+        synchronized (misses) {
+            misses.put(key, now);
+            try {
+                JkUtilsPath.createDirectories(file.getParent());
+                Files.write(file, Collections.singletonList(key + " " + now), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (final IOException | RuntimeException e) {
+                JkLog.trace("Can not record miss in " + file + " : " + e.getMessage());
+            }
+        }
+    }
+
+    // Later lines override former ones. The file is rewritten without expired or overridden lines, if any.
+    private static Map<String, Long> load(Path file, long ttlMillis) {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            JkLog.trace("Can not read misses from " + file + " : " + e.getMessage());
+            return result;
+        }
+        final long now = System.currentTimeMillis();
+        for (final String line : lines) {
+            final int index = line.lastIndexOf(' ');
+            if (index <= 0) {
+                continue;
+            }
+            final long missTime;
+            try {
+                missTime = Long.parseLong(line.substring(index + 1));
+            } catch (final NumberFormatException e) {
+                continue;
+            }
+            final String key = line.substring(0, index);
+            result.remove(key);
+            if (now - missTime < ttlMillis) {
+                result.put(key, missTime);
+            }
+        }
+        if (result.size() < lines.size()) {
+            compact(file, result);
+        }
+        return result;
+    }
+
+    private static void compact(Path file, Map<String, Long> misses) {
+        final List<String> lines = new LinkedList<>();
+        misses.forEach((key, missTime) -> lines.add(key + " " + missTime));
+        try {
+            final Path temp = file.resolveSibling(file.getFileName() + "-" + UUID.randomUUID() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not compact misses in " + file + " : " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters.JkUpdatePolicy;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.util.Message;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Repository cache applying a JkUpdatePolicy : release modules found in cache are always reused while
+ * snapshot and dynamic ones are reused until the last check against remote repositories is older than the policy
+ * TTL. Time of last check is recorded in a marker file lying next to the cached module descriptor. Release modules
+ * are considered immutable.
+ */
+final class IvyRepositoryCacheManager extends DefaultRepositoryCacheManager {
+
+    private static final String NAME = "jeka-cache";
+
+    private static final String MARKER_PREFIX = ".jeka-update-check-";
+
+    private final long ttlMillis;
+
+    private IvyRepositoryCacheManager(IvySettings settings, File basedir, long ttlMillis) {
+        super(NAME, settings, basedir);
+        this.ttlMillis = ttlMillis;
+        this.setDefaultTTL(ttlMillis);
+    }
+
+    static IvyRepositoryCacheManager of(IvySettings settings, File basedir, JkUpdatePolicy updatePolicy) {
+        return new IvyRepositoryCacheManager(settings, basedir, updatePolicy.getTtlMillis());
+    }
+
+    @Override
+    public ResolvedModuleRevision findModuleInCache(DependencyDescriptor dd, ModuleRevisionId requestedRevisionId,
+                                                    CacheMetadataOptions options, String expectedResolver) {
+        if (options.isForce() || options.isUseCacheOnly()) {
+            return super.findModuleInCache(dd, requestedRevisionId, options, expectedResolver);
+        }
+        final boolean changing = dd.isChanging() || isSnapshot(requestedRevisionId)
+                || getSettings().getVersionMatcher().isDynamic(requestedRevisionId);
+        if (changing && isCheckExpired(requestedRevisionId, expectedResolver)) {
+            Message.verbose("update check expired for " + requestedRevisionId);
+            markChecked(requestedRevisionId, expectedResolver);
+            return null;
+        }
+
+        // Look up cache as for a module that can not change
+        final DependencyDescriptor stableDd = new DefaultDependencyDescriptor(requestedRevisionId, dd.isForce(),
+                false);
+        final Boolean checkmodified = options.isCheckmodified();
+        options.setCheckmodified(false);
+        try {
+            return super.findModuleInCache(stableDd, requestedRevisionId, options, expectedResolver);
+        } finally {
+            options.setCheckmodified(checkmodified);
+        }
+    }
+
+    private static boolean isSnapshot(ModuleRevisionId moduleRevisionId) {
+        final String revision = moduleRevisionId.getRevision();
+        return revision != null && revision.toUpperCase().endsWith("-SNAPSHOT");
+    }
+
+    private boolean isCheckExpired(ModuleRevisionId moduleRevisionId, String resolverName) {
+        if (ttlMillis <= 0) {
+            return true;
+        }
+        if (ttlMillis == Long.MAX_VALUE) {
+            return false;
+        }
+        final File marker = marker(moduleRevisionId, resolverName);
+        if (!marker.exists()) {
+            return true;
+        }
+        return System.currentTimeMillis() - marker.lastModified() >= ttlMillis;
+    }
+
+    private void markChecked(ModuleRevisionId moduleRevisionId, String resolverName) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        final File marker = marker(moduleRevisionId, resolverName);
+        try {
+            marker.getParentFile().mkdirs();
+            if (!marker.createNewFile()) {
+                marker.setLastModified(System.currentTimeMillis());
+            }
+        } catch (final IOException e) {
+            Message.verbose("can not record update check for " + moduleRevisionId + " : " + e.getMessage());
+        }
+    }
+
+    // Each resolver of a chain checks on its own repository, so checks are recorded per resolver
+    private File marker(ModuleRevisionId moduleRevisionId, String resolverName) {
+        final String revision = moduleRevisionId.getRevision().replaceAll("[^A-Za-z0-9._-]", "_");
+        final String resolverHash = Integer.toHexString(String.valueOf(resolverName).hashCode());
+        return new File(getIvyFileInCache(moduleRevisionId).getParentFile(),
+                MARKER_PREFIX + revision + "-" + resolverHash);
+    }
+
+}
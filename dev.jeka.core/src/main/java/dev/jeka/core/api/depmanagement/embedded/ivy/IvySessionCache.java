@@ -0,0 +1,80 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import org.apache.ivy.Ivy;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Keeps Ivy instances bound to a repository set and resolution parameters, so successive resolutions within the JVM
+ * reuse the same instance along with its in-memory caches (parsed module descriptors, resolvers, ...) instead of
+ * bootstrapping Ivy for each call.
+ *
+ * Ivy instances are not thread-safe : callers must synchronize on the returned instance while using it.
+ */
+final class IvySessionCache {
+
+    private static final int MAX_SIZE = 8;
+
+    private static final Map<String, Ivy> CACHE = new LinkedHashMap<String, Ivy>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ivy> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private IvySessionCache() {
+    }
+
+    /**
+     * Returns the Ivy instance for the specified repositories and parameters, attached to the current thread.
+     */
+    static Ivy get(JkRepoSet repos, JkResolutionParameters parameters) {
+        final String key = key(repos, parameters);
+        Ivy ivy;
+        synchronized (CACHE) {
+            ivy = CACHE.get(key);
+        }
+        if (ivy != null) {
+            JkLog.trace("Reuse Ivy session for " + repos);
+            IvyTranslatorToIvy.attach(ivy);
+            return ivy;
+        }
+        ivy = IvyTranslatorToIvy.toIvy(repos, parameters);
+        synchronized (CACHE) {
+            final Ivy existing = CACHE.putIfAbsent(key, ivy);
+            if (existing != null) {
+                ivy = existing;
+                IvyTranslatorToIvy.attach(ivy);
+            }
+        }
+        return ivy;
+    }
+
+    // Everything Ivy settings are built from
+    private static String key(JkRepoSet repos, JkResolutionParameters parameters) {
+        final List<String> items = new LinkedList<>();
+        items.add("cache=" + JkLocator.getJekaRepositoryCache());
+        items.add("conflictResolver=" + parameters.getConflictResolver());
+        items.add("updatePolicy=" + parameters.getUpdatePolicy());
+        items.add("adaptiveRepoOrder=" + parameters.isAdaptiveRepoOrder());
+        for (final JkRepo repo : repos.getRepos()) {
+            final JkRepo.JkRepoCredentials credentials = repo.getCredentials();
+            items.add("repo=" + repo + " ivy=" + repo.isIvyRepo() + " " + repo.getIvyConfig().artifactPatterns()
+                    + repo.getIvyConfig().ivyPatterns() + " groups=" + repo.getGroupPrefixes()
+                    + (credentials == null ? "" : " credentials="
+                    + credentials.getRealm() + ":" + credentials.getUserName() + ":"
+                    + String.valueOf(credentials.getPassword()).hashCode()));
+        }
+        return String.join("\n", items);
+    }
+
+}
@@ -11,6 +11,8 @@ import org.apache.ivy.plugins.conflict.AbstractConflictManager;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.util.url.URLHandlerRegistry;
 
+import java.io.File;
+
 class IvyTranslatorToIvy {
 
     private static final String MAIN_RESOLVER_NAME = "MAIN";
@@ -20,16 +22,26 @@ class IvyTranslatorToIvy {
         return ivy(ivySettings);
     }
 
+    /**
+     * Makes the specified Ivy instance, possibly created earlier, the current one for this thread and aligns its
+     * logging on the current verbosity.
+     */
+    static void attach(Ivy ivy) {
+        ivy.getLoggerEngine().setShowProgress(JkLog.verbosity() == JkLog.Verbosity.VERBOSE);
+        ivy.getLoggerEngine().clearProblems();
+        IvyContext.getContext().setIvy(ivy);
+        if (!(URLHandlerRegistry.getDefault() instanceof IvyFollowRedirectUrlHandler)) {
+            URLHandlerRegistry.setDefault(new IvyFollowRedirectUrlHandler());
+        }
+    }
+
     private static Ivy ivy(IvySettings ivySettings) {
         final Ivy ivy = new Ivy();
         ivy.getLoggerEngine().popLogger();
         ivy.getLoggerEngine().setDefaultLogger(new IvyMessageLogger());
-        ivy.getLoggerEngine().setShowProgress(JkLog.verbosity() == JkLog.Verbosity.VERBOSE);
-        ivy.getLoggerEngine().clearProblems();
-        IvyContext.getContext().setIvy(ivy);
+        attach(ivy);
         ivy.setSettings(ivySettings);
         ivy.bind();
-        URLHandlerRegistry.setDefault(new IvyFollowRedirectUrlHandler());
         return ivy;
     }
 
@@ -38,7 +50,7 @@ class IvyTranslatorToIvy {
      */
     private static IvySettings ivySettingsOf(JkRepoSet repos, JkResolutionParameters parameters) {
         final IvySettings ivySettings = new IvySettings();
-        final AbstractResolver resolver = IvyTranslatorToResolver.toChainResolver(repos);
+        final AbstractResolver resolver = IvyTranslatorToResolver.toChainResolver(repos, parameters);
         resolver.setName(MAIN_RESOLVER_NAME);
         ivySettings.addResolver(resolver);
         ivySettings.setDefaultResolver(MAIN_RESOLVER_NAME);
@@ -48,7 +60,12 @@ class IvyTranslatorToIvy {
             conflictManager.setSettings(ivySettings);
             ivySettings.setDefaultConflictManager(conflictManager);
         }
-        ivySettings.setDefaultCache(JkLocator.getJekaRepositoryCache().toFile());
+        final File cacheDir = JkLocator.getJekaRepositoryCache().toFile();
+        ivySettings.setDefaultCache(cacheDir);
+        final IvyRepositoryCacheManager cacheManager = IvyRepositoryCacheManager.of(ivySettings, cacheDir,
+                parameters.getUpdatePolicy());
+        ivySettings.addRepositoryCacheManager(cacheManager);
+        ivySettings.setDefaultRepositoryCacheManager(cacheManager);
         return ivySettings;
     }
 
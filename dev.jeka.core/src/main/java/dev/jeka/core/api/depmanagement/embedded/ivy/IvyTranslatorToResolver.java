@@ -2,6 +2,11 @@ package dev.jeka.core.api.depmanagement.embedded.ivy;
 
 import dev.jeka.core.api.depmanagement.JkRepo;
 import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.resolution.JkInternalRepoStats;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.repository.file.FileRepository;
 import org.apache.ivy.plugins.resolver.*;
@@ -9,41 +14,64 @@ import org.apache.ivy.util.url.CredentialsStore;
 
 import java.io.File;
 import java.net.URL;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 class IvyTranslatorToResolver {
 
     private static final String MAVEN_ARTIFACT_PATTERN =
             "/[organisation]/[module]/[revision]/[artifact]-[revision](-[classifier]).[ext]";
 
-    static AbstractResolver toChainResolver(JkRepoSet repos) {
-        final ChainResolver chainResolver = new ChainResolver();
+    static AbstractResolver toChainResolver(JkRepoSet repos, JkResolutionParameters parameters) {
+        final Map<JkRepo, DependencyResolver> resolvers = new LinkedHashMap<>();
         for (final JkRepo jkRepo : repos.getRepos()) {
-            final DependencyResolver resolver = toResolver(jkRepo, true);
+            final DependencyResolver resolver = toResolver(jkRepo, IvyRepoLookupFilter.of(jkRepo, parameters));
             resolver.setName(jkRepo.toString());
-            chainResolver.add(resolver);
+            resolvers.put(jkRepo, resolver);
+        }
+        if (parameters.isAdaptiveRepoOrder()) {
+            final List<DependencyResolver> adaptiveOrder = JkInternalRepoStats.of()
+                    .sort(new LinkedList<>(resolvers.keySet())).stream()
+                    .map(resolvers::get)
+                    .collect(Collectors.toList());
+            return IvyAdaptiveChainResolver.of(new LinkedList<>(resolvers.values()), adaptiveOrder);
         }
+        final ChainResolver chainResolver = new ChainResolver();
+        resolvers.values().forEach(chainResolver::add);
         return chainResolver;
     }
 
     static RepositoryResolver convertToPublishAndBind(JkRepo repo, IvySettings ivySettings) {
-        RepositoryResolver resolver = toResolver(repo, false);
+        RepositoryResolver resolver = toResolver(repo, null);
         ivySettings.addResolver(resolver);
         return resolver;
     }
 
     // see
     // http://www.draconianoverlord.com/2010/07/18/publishing-to-maven-repos-with-ivy.html
-    private static RepositoryResolver toResolver(JkRepo repo, boolean download) {
+    // Lookup filter is null for publishing
+    private static RepositoryResolver toResolver(JkRepo repo, IvyRepoLookupFilter lookupFilter) {
         if (!repo.isIvyRepo()) {
-            if (!isFileSystem(repo.getUrl()) || download) {
-                return ibiblioResolver(repo);
+            if (!isFileSystem(repo.getUrl()) || lookupFilter != null) {
+                return ibiblioResolver(repo, lookupFilter);
             }
             return mavenFileSystemResolver(repo);
         }
         final JkRepo.JkRepoIvyConfig ivyRepoConfig = repo.getIvyConfig();
         if (isFileSystem(repo.getUrl())) {
             final FileRepository fileRepo = new FileRepository(new File(repo.getUrl().getPath()));
-            final FileSystemResolver result = new FileSystemResolver();
+            final FileSystemResolver result = lookupFilter == null ? new FileSystemResolver() :
+                    new FileSystemResolver() {
+                        @Override
+                        public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                                throws ParseException {
+                            return lookupFilter.getDependency(dd, data, super::getDependency);
+                        }
+                    };
             result.setRepository(fileRepo);
             for (final String pattern : ivyRepoConfig.artifactPatterns()) {
                 result.addArtifactPattern(completePattern(repo.getUrl().getPath(), pattern));
@@ -54,7 +82,13 @@ class IvyTranslatorToResolver {
             return result;
         }
         if (repo.getUrl().getProtocol().equals("http") || repo.getUrl().getProtocol().equals("https")) {
-            final IvyRepResolver result = new IvyRepResolver();
+            final IvyRepResolver result = lookupFilter == null ? new IvyRepResolver() : new IvyRepResolver() {
+                @Override
+                public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                        throws ParseException {
+                    return lookupFilter.getDependency(dd, data, super::getDependency);
+                }
+            };
             result.setIvyroot(repo.getUrl().toString());
             result.setArtroot(repo.getUrl().toString());
             result.setArtpattern(IvyRepResolver.DEFAULT_IVYPATTERN);
@@ -83,8 +117,14 @@ class IvyTranslatorToResolver {
         return url.getProtocol().equals("http") || url.getProtocol().equals("https");
     }
 
-    private static IBiblioResolver ibiblioResolver(JkRepo repo) {
-        final IBiblioResolver result = new IBiblioResolver();
+    private static IBiblioResolver ibiblioResolver(JkRepo repo, IvyRepoLookupFilter lookupFilter) {
+        final IBiblioResolver result = lookupFilter == null ? new IBiblioResolver() : new IBiblioResolver() {
+            @Override
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
+                    throws ParseException {
+                return lookupFilter.getDependency(dd, data, super::getDependency);
+            }
+        };
         result.setM2compatible(true);
         result.setUseMavenMetadata(true);
         result.setRoot(repo.getUrl().toString());
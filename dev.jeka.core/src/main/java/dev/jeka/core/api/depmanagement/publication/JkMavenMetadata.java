@@ -102,6 +102,13 @@ public final class JkMavenMetadata {
         return this.versioning.snapshot;
     }
 
+    /**
+     * Returns the versions listed in this metadata, as found in a module level <i>maven-metadata.xml</i> file.
+     */
+    public List<String> getVersions() {
+        return Collections.unmodifiableList(this.versioning.versions);
+    }
+
     void setFirstCurrentSnapshot(String timestamp) {
         this.versioning.snapshot = new Versioning.JkSnapshot(timestamp, 1);
     }
@@ -5,8 +5,7 @@ import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static dev.jeka.core.api.utils.JkUtilsString.plurialize;
@@ -88,6 +87,14 @@ public final class JkDependencyResolver<T> {
         return this;
     }
 
+    /**
+     * Returns the module+version for which the resolution is made, or <code>null</code> if none has been set.
+     * @see #setModuleHolder(JkVersionedModule)
+     */
+    public JkVersionedModule getModuleHolder() {
+        return this.moduleHolder;
+    }
+
     public JkResolveResult resolve(JkDependencySet dependencies) {
         return resolve(JkQualifiedDependencySet.of(
                 dependencies.normalised(JkVersionedModule.ConflictStrategy.FAIL)
@@ -113,59 +120,211 @@ public final class JkDependencyResolver<T> {
         if (repos.getRepos().isEmpty() && hasModule) {
             JkLog.warn("You are trying to resolve dependencies on zero repository. Won't be possible to resolve modules.");
         }
-        JkInternalDependencyResolver internalDepResolver = JkInternalDependencyResolver.of(this.repos);
         JkLog.trace("Preparing to resolve dependencies");
         JkLog.startTask("Resolve dependencies");
         JkResolveResult resolveResult;
         if (hasModule) {
             JkUtilsAssert.state(!repos.getRepos().isEmpty(), "Cannot resolve module dependency cause no " +
                     "repos has defined on resolver " + this);
-            resolveResult = internalDepResolver.resolve(moduleHolder, moduleQualifiedDependencies, parameters);
+            resolveResult = resolveModules(moduleQualifiedDependencies);
         } else {
             resolveResult = JkResolveResult.ofRoot(moduleHolder);
         }
         final JkResolvedDependencyNode mergedNode = resolveResult.getDependencyTree().mergeNonModules(
                 allDependencies);
         resolveResult = JkResolveResult.of(mergedNode, resolveResult.getErrorReport());
+        logResult("", resolveResult);
+        handleErrors(resolveResult.getErrorReport());
+        JkLog.endTask();
+        return resolveResult;
+    }
+
+    /**
+     * Resolves several dependency sets at once, each one standing for a scope (as compile, runtime or test). The
+     * dependencies are qualified with the scopes they belong to, so the dependency graph is computed in a single
+     * pass, then each result is a view of this graph restricted to the modules fetched for its scope. With Ivy
+     * engine, version conflicts are still mediated per scope.<p>
+     * If a module is declared differently across scopes, or if sets do not share the same version provider and
+     * global exclusions, each set is resolved separately.
+     *
+     * @param scopedDependencies dependency sets by scope name. Scope names must be valid Ivy configuration names.
+     * @return resolve results by scope name, in the same order than the specified map.
+     */
+    public Map<String, JkResolveResult> resolve(Map<String, JkDependencySet> scopedDependencies) {
+        final Map<String, JkDependencySet> dependencySets = new LinkedHashMap<>();
+        scopedDependencies.forEach((scope, dependencies) -> dependencySets.put(scope, dependencies
+                .normalised(JkVersionedModule.ConflictStrategy.FAIL).mergeLocalProjectExportedDependencies()));
+        final Map<String, JkResolveResult> result = new LinkedHashMap<>();
+        final JkQualifiedDependencySet moduleQualifiedDependencies = toScopedModuleDependencies(dependencySets);
+        if (moduleQualifiedDependencies == null) {
+            JkLog.trace("Dependencies differ across scopes " + dependencySets.keySet() + ". Resolve them separately.");
+            dependencySets.forEach((scope, dependencies) -> result.put(scope, resolve(JkQualifiedDependencySet.of(
+                    dependencies))));
+            return result;
+        }
+        boolean hasModule = !moduleQualifiedDependencies.getDependencies().isEmpty();
+        if (repos.getRepos().isEmpty() && hasModule) {
+            JkLog.warn("You are trying to resolve dependencies on zero repository. Won't be possible to resolve modules.");
+        }
+        JkLog.startTask("Resolve dependencies for " + String.join(", ", dependencySets.keySet()));
+        final JkResolveResult moduleResolveResult;
+        if (hasModule) {
+            JkUtilsAssert.state(!repos.getRepos().isEmpty(), "Cannot resolve module dependency cause no " +
+                    "repos has defined on resolver " + this);
+            moduleResolveResult = resolveModules(moduleQualifiedDependencies);
+        } else {
+            moduleResolveResult = JkResolveResult.ofRoot(moduleHolder);
+        }
+        dependencySets.forEach((scope, dependencies) -> {
+            final JkResolvedDependencyNode scopedNode = moduleResolveResult.getDependencyTree()
+                    .withRootConfiguration(scope).mergeNonModules(dependencies.getEntries());
+            final JkResolveResult scopedResult = JkResolveResult.of(scopedNode,
+                    moduleResolveResult.getErrorReport());
+            logResult(scope + " : ", scopedResult);
+            result.put(scope, scopedResult);
+        });
+        handleErrors(moduleResolveResult.getErrorReport());
+        JkLog.endTask();
+        return result;
+    }
+
+    /*
+     * Merges module dependencies of the specified sets in a single set, each dependency being qualified with the
+     * comma separated scopes declaring it. Returns null if the sets cannot be merged without changing their meaning.
+     */
+    private static JkQualifiedDependencySet toScopedModuleDependencies(Map<String, JkDependencySet> dependencySets) {
+        final Map<JkModuleId, Set<JkModuleDependency>> declarations = new HashMap<>();
+        final Map<JkModuleDependency, List<String>> dependencyScopes = new LinkedHashMap<>();
+        JkQualifiedDependencySet first = null;
+        for (final Map.Entry<String, JkDependencySet> entry : dependencySets.entrySet()) {
+            final JkQualifiedDependencySet qualifiedDependencies = JkQualifiedDependencySet.of(entry.getValue())
+                    .withModuleDependenciesOnly().replaceUnspecifiedVersionsWithProvider();
+            if (first == null) {
+                first = qualifiedDependencies;
+            } else if (!first.getGlobalExclusions().equals(qualifiedDependencies.getGlobalExclusions())
+                    || !first.getVersionProvider().toMap().equals(
+                            qualifiedDependencies.getVersionProvider().toMap())) {
+                return null;
+            }
+            final Map<JkModuleId, Set<JkModuleDependency>> scopeDeclarations = new LinkedHashMap<>();
+            for (final JkModuleDependency moduleDependency : qualifiedDependencies.getModuleDependencies()) {
+                scopeDeclarations.computeIfAbsent(moduleDependency.getModuleId(), key -> new LinkedHashSet<>())
+                        .add(moduleDependency);
+                dependencyScopes.computeIfAbsent(moduleDependency, key -> new LinkedList<>()).add(entry.getKey());
+            }
+            for (final Map.Entry<JkModuleId, Set<JkModuleDependency>> declaration : scopeDeclarations.entrySet()) {
+                final Set<JkModuleDependency> previous = declarations.putIfAbsent(declaration.getKey(),
+                        declaration.getValue());
+                if (previous != null && !previous.equals(declaration.getValue())) {
+                    return null;
+                }
+            }
+        }
+        if (first == null) {
+            return JkQualifiedDependencySet.of();
+        }
+        final List<JkQualifiedDependency> qualifiedDependencies = dependencyScopes.entrySet().stream()
+                .map(entry -> JkQualifiedDependency.of(String.join(",", entry.getValue()), entry.getKey()))
+                .collect(Collectors.toList());
+        return JkQualifiedDependencySet.of(qualifiedDependencies)
+                .withGlobalExclusions(first.getGlobalExclusions())
+                .withVersionProvider(first.getVersionProvider())
+                .assertNoUnspecifiedVersion();
+    }
+
+    private static void logResult(String prefix, JkResolveResult resolveResult) {
         if (JkLog.verbosity() == JkLog.Verbosity.VERBOSE) {
-            JkLog.info(plurialize(resolveResult.getInvolvedModules().size(), "module")
+            JkLog.info(prefix + plurialize(resolveResult.getInvolvedModules().size(), "module")
                     + resolveResult.getInvolvedModules());
-            JkLog.info(plurialize(resolveResult.getFiles().getEntries().size(), "artifact") + ".");
+            JkLog.info(prefix + plurialize(resolveResult.getFiles().getEntries().size(), "artifact") + ".");
         } else {
-            JkLog.info(plurialize(resolveResult.getInvolvedModules().size(), "module") + " : " +
+            JkLog.info(prefix + plurialize(resolveResult.getInvolvedModules().size(), "module") + " : " +
                     plurialize(resolveResult.getFiles().getEntries().size(), "file") + ".");
         }
-        JkResolveResult.JkErrorReport report = resolveResult.getErrorReport();
+    }
+
+    private void handleErrors(JkResolveResult.JkErrorReport report) {
         if (report.hasErrors()) {
             if (parameters.isFailOnDependencyResolutionError()) {
                 throw new IllegalStateException(report.toString());
             }
             JkLog.warn(report.toString());
         }
-        JkLog.endTask();
+    }
+
+    private JkResolveResult resolveModules(JkQualifiedDependencySet moduleQualifiedDependencies) {
+        final String memoKey = ResolveResultMemo.key(moduleHolder, moduleQualifiedDependencies, repos, parameters);
+        return ResolveResultMemo.get(memoKey, () -> resolveModulesWithCache(moduleQualifiedDependencies));
+    }
+
+    private JkResolveResult resolveModulesWithCache(JkQualifiedDependencySet moduleQualifiedDependencies) {
+        final String cacheKey = parameters.isResultCached() ?
+                ResolveResultCache.key(moduleHolder, moduleQualifiedDependencies, repos, parameters) : null;
+        if (cacheKey != null) {
+            final JkResolveResult cachedResult = ResolveResultCache.get(cacheKey);
+            if (cachedResult != null) {
+                JkLog.trace("Reuse cached resolve result " + cacheKey);
+                return cachedResult;
+            }
+        }
+        final JkInternalDependencyResolver internalResolver =
+                parameters.getResolverEngine() == JkResolutionParameters.JkResolverEngine.MAVEN ?
+                        MavenInternalDependencyResolver.of(this.repos) : JkInternalDependencyResolver.of(this.repos);
+        final JkResolveResult resolveResult = internalResolver.resolve(moduleHolder, moduleQualifiedDependencies,
+                parameters);
+        if (parameters.isAdaptiveRepoOrder()) {
+            JkInternalRepoStats.of().save();
+        }
+        if (cacheKey != null) {
+            ResolveResultCache.put(cacheKey, resolveResult);
+        }
         return resolveResult;
     }
 
     /**
-     * Returns an alphabetical sorted list of groupId present in these repositories
+     * Returns an alphabetical sorted list of groupId present in these repositories. Searches are answered from an
+     * index persisted in the repository cache, refreshed in the background according to the update policy.
      */
     public List<String> searchGroups() {
-        return JkInternalDependencyResolver.of(this.repos).searchGroups();
+        return RepoSearchIndex.of(this.repos).searchGroups(this.repos, this.parameters);
     }
 
     /**
      * Returns an alphabetical sorted list of module ids present in these repositories for the specified groupId.
+     * @see #searchGroups()
      */
     public List<String> searchModules(String groupId) {
-        return JkInternalDependencyResolver.of(this.repos).searchModules(groupId);
+        return RepoSearchIndex.of(this.repos).searchModules(this.repos, groupId, this.parameters);
     }
 
     /**
-     * Returns an alphabetical sorted list of version present in these repositories for the specified moduleId.
+     * Returns a sorted list of version present in these repositories for the specified moduleId.
+     * @see #searchGroups()
      */
     public List<String> searchVersions(JkModuleId moduleId) {
-        return JkInternalDependencyResolver.of(this.repos).searchVersions(moduleId).stream()
-                .sorted(JkVersion.VERSION_COMPARATOR).collect(Collectors.toList());
+        return RepoSearchIndex.of(this.repos).searchVersions(this.repos, moduleId, this.parameters);
+    }
+
+    /**
+     * Returns the number of module resolutions served from results computed earlier in this JVM, by any resolver
+     * having same repositories and parameters.
+     */
+    public static long getMemoHitCount() {
+        return ResolveResultMemo.hits();
+    }
+
+    /**
+     * Returns the number of module resolutions that could not be served from results computed earlier in this JVM.
+     */
+    public static long getMemoMissCount() {
+        return ResolveResultMemo.misses();
+    }
+
+    /**
+     * Forgets resolve results computed so far in this JVM and resets hit/miss counters.
+     */
+    public static void clearMemo() {
+        ResolveResultMemo.clear();
     }
 
     @Override
@@ -0,0 +1,214 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downloads files from http repositories, for both Ivy and Maven resolver engines.
+ *
+ * Each file is streamed in a temporary file while computing its sha1, then checked against the published one and
+ * moved atomically at its final place. Connections are kept alive and their number is limited per host. Instances
+ * are thread-safe.<p>
+ *
+ * Not part of the public API.
+ */
+public final class JkInternalHttpDownloader {
+
+    // Matches the default number of kept-alive connections per destination of the JDK http client
+    private static final int MAX_CONNECTIONS_PER_HOST = 5;
+
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String USER_AGENT = "Jeka";
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final boolean keepLastModified;
+
+    private JkInternalHttpDownloader(boolean keepLastModified) {
+        this.keepLastModified = keepLastModified;
+    }
+
+    /**
+     * Creates a downloader. If <code>keepLastModified</code> is <code>true</code>, downloaded files get the last
+     * modified time sent by the server, if any.
+     */
+    public static JkInternalHttpDownloader of(boolean keepLastModified) {
+        return new JkInternalHttpDownloader(keepLastModified);
+    }
+
+    /**
+     * Downloads the specified url in the specified file. Returns <code>false</code> if the resource does not exist.
+     * Specified credentials, if not <code>null</code>, are sent only to the host of the specified url.
+     *
+     * @throws IOException if the download fails or if the file does not match its published sha1.
+     */
+    public boolean download(URL url, Path file, JkRepo.JkRepoCredentials credentials) throws IOException {
+        final Semaphore permits = hostPermits.computeIfAbsent(url.getHost(),
+                host -> new Semaphore(MAX_CONNECTIONS_PER_HOST));
+        try {
+            permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download of " + url + " interrupted.");
+        }
+        try {
+            return doDownload(url, file, credentials);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean doDownload(URL url, Path file, JkRepo.JkRepoCredentials credentials) throws IOException {
+        final HttpURLConnection connection = open(url, credentials);
+        if (connection == null) {
+            return false;
+        }
+        final String expectedSha1 = publishedSha1(url, credentials);
+        JkUtilsPath.createDirectories(file.getParent());
+        final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString() + "-", ".part");
+        try {
+            final MessageDigest messageDigest = messageDigest("SHA-1");
+            try (InputStream inputStream = new DigestInputStream(connection.getInputStream(), messageDigest)) {
+                Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final long contentLength = connection.getContentLengthLong();
+            if (contentLength >= 0 && Files.size(temp) != contentLength) {
+                throw new IOException("Size of " + url + " does not match content length.");
+            }
+            final String sha1 = toHex(messageDigest.digest());
+            if (expectedSha1 != null && !expectedSha1.equals(sha1)) {
+                throw new IOException("Checksum of " + url + " does not match published one : expected "
+                        + expectedSha1 + " but was " + sha1 + ".");
+            }
+            if (keepLastModified && connection.getLastModified() > 0) {
+                temp.toFile().setLastModified(connection.getLastModified());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Returns null if the repository does not publish any sha1 for this file
+    private static String publishedSha1(URL url, JkRepo.JkRepoCredentials credentials) throws IOException {
+        final HttpURLConnection connection = open(new URL(url.toString() + ".sha1"), credentials);
+        if (connection == null) {
+            return null;
+        }
+        final StringWriter writer = new StringWriter();
+        try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+            final char[] buffer = new char[BUFFER_SIZE];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, count);
+            }
+        }
+        final String content = writer.toString().trim();
+        if (content.isEmpty()) {
+            return null;
+        }
+        // Some repositories append the file name after the checksum
+        return content.split("\\s+")[0].toLowerCase();
+    }
+
+    // Returns null if the resource does not exist. Connections are never disconnected so they can be reused.
+    private static HttpURLConnection open(URL url, JkRepo.JkRepoCredentials credentials) throws IOException {
+        URL current = url;
+        for (int i = 0; i <= MAX_REDIRECTS; i++) {
+            final HttpURLConnection connection = (HttpURLConnection) current.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            if (credentials != null && current.getHost().equals(url.getHost())) {
+                final String token = credentials.getUserName() + ":" + credentials.getPassword();
+                connection.setRequestProperty("Authorization", "Basic "
+                        + Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+            }
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_OK) {
+                return connection;
+            }
+            final String location = connection.getHeaderField("Location");
+            drain(connection);
+            if (!isRedirect(status) || location == null) {
+                if (status != HttpURLConnection.HTTP_NOT_FOUND) {
+                    throw new IOException("Http status " + status + " for " + current);
+                }
+                return null;
+            }
+            current = new URL(current, location);
+        }
+        throw new IOException("Too many redirects for " + url);
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == HttpURLConnection.HTTP_MOVED_PERM || status == HttpURLConnection.HTTP_MOVED_TEMP
+                || status == HttpURLConnection.HTTP_SEE_OTHER || status == 307 || status == 308;
+    }
+
+    // Response body must be consumed for the connection to go back in the keep-alive pool
+    private static void drain(HttpURLConnection connection) {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = body(connection)) {
+            while (inputStream.read(buffer) != -1) {
+                // skip content
+            }
+        } catch (final IOException e) {
+            // ignore
+        }
+    }
+
+    private static InputStream body(HttpURLConnection connection) throws IOException {
+        final InputStream errorStream = connection.getErrorStream();
+        if (errorStream != null) {
+            return errorStream;
+        }
+        return connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getInputStream() : new ByteArrayInputStream(new byte[0]);
+    }
+
+    /**
+     * Returns the lower case hexadecimal sha256 of the specified text.
+     */
+    static String sha256(String value) {
+        return toHex(messageDigest("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        return JkUtilsString.toHexString(bytes).toLowerCase();
+    }
+
+}
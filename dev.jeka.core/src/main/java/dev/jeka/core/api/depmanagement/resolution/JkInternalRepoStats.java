@@ -0,0 +1,157 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Latency and hit ratio of module lookups, per repository, measured across builds and stored in Jeka user home.
+ * Used to order repositories when {@link JkResolutionParameters#isAdaptiveRepoOrder()} is on. Instances are
+ * thread-safe.<p>
+ *
+ * Not part of the public API.
+ */
+public final class JkInternalRepoStats {
+
+    // Weight of the last measure in moving averages
+    private static final double SMOOTHING = 0.2;
+
+    // Repositories measured fewer times are tried first, so they get measured
+    private static final int MIN_SAMPLES = 5;
+
+    private static final JkInternalRepoStats INSTANCE =
+            new JkInternalRepoStats(JkLocator.getJekaUserHomeDir().resolve("cache/repo-stats.txt"));
+
+    private final Path file;
+
+    // By repository url, loaded lazily
+    private Map<String, Stat> stats;
+
+    private boolean dirty;
+
+    private JkInternalRepoStats(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the statistics shared within this JVM.
+     */
+    public static JkInternalRepoStats of() {
+        return INSTANCE;
+    }
+
+    static JkInternalRepoStats of(Path file) {
+        return new JkInternalRepoStats(file);
+    }
+
+    /**
+     * Returns <code>true</code> if looking up the specified version does not depend on repository order, meaning it
+     * is neither dynamic nor snapshot.
+     */
+    public static boolean isOrderIndependent(JkVersion version) {
+        return !version.isUnspecified() && !version.isDynamic() && !version.isSnapshot();
+    }
+
+    /**
+     * Records a lookup of a module in the specified repository.
+     */
+    public synchronized void record(JkRepo repo, boolean found, long elapsedMillis) {
+        final Stat stat = stats().computeIfAbsent(repo.getUrl().toString(), url -> new Stat());
+        if (stat.samples == 0) {
+            stat.latencyMillis = elapsedMillis;
+            stat.hitRatio = found ? 1 : 0;
+        } else {
+            stat.latencyMillis += SMOOTHING * (elapsedMillis - stat.latencyMillis);
+            stat.hitRatio += SMOOTHING * ((found ? 1 : 0) - stat.hitRatio);
+        }
+        stat.samples++;
+        dirty = true;
+    }
+
+    /**
+     * Returns the specified repositories, sorted by expected cost to find a module : repositories rarely
+     * measured come first, then the ones having the lowest latency over hit ratio. Ties keep the specified order.
+     */
+    public synchronized List<JkRepo> sort(List<JkRepo> repos) {
+        final Map<String, Stat> stats = stats();
+        final List<JkRepo> result = new ArrayList<>(repos);
+        result.sort(Comparator.comparingDouble(repo -> {
+            final Stat stat = stats.get(repo.getUrl().toString());
+            if (stat == null || stat.samples < MIN_SAMPLES) {
+                return -1d;
+            }
+            return stat.latencyMillis / Math.max(stat.hitRatio, 0.01);
+        }));
+        return result;
+    }
+
+    /**
+     * Writes recorded statistics in Jeka user home, if any lookup has been recorded since last save.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final List<String> lines = new LinkedList<>();
+        stats.forEach((url, stat) -> lines.add(url + " " + stat.samples + " " + Math.round(stat.latencyMillis)
+                + " " + stat.hitRatio));
+        try {
+            JkUtilsPath.createDirectories(file.getParent());
+            final Path temp = file.resolveSibling(file.getFileName() + "-" + UUID.randomUUID() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not save repository statistics in " + file + " : " + e.getMessage());
+        }
+    }
+
+    private Map<String, Stat> stats() {
+        if (stats == null) {
+            stats = load(file);
+        }
+        return stats;
+    }
+
+    private static Map<String, Stat> load(Path file) {
+        final Map<String, Stat> result = new HashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        try {
+            for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                final String[] items = line.split(" ");
+                final int count = items.length;
+                if (count >= 4) {
+                    final Stat stat = new Stat();
+                    stat.samples = Integer.parseInt(items[count - 3]);
+                    stat.latencyMillis = Double.parseDouble(items[count - 2]);
+                    stat.hitRatio = Double.parseDouble(items[count - 1]);
+                    result.put(String.join(" ", Arrays.copyOf(items, count - 3)), stat);
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not read repository statistics from " + file + " : " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static final class Stat {
+
+        private int samples;
+
+        private double latencyMillis;
+
+        private double hitRatio;
+    }
+
+}
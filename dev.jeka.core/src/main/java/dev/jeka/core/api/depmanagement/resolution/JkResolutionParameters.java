@@ -2,6 +2,8 @@ package dev.jeka.core.api.depmanagement.resolution;
 
 import dev.jeka.core.api.utils.JkUtilsAssert;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Contains parameters likely to impact module resolution behavior.
  */
@@ -36,12 +38,131 @@ public final class JkResolutionParameters<T> {
         LATEST_VERSION;
     }
 
-    private boolean refreshed = true;
+    /**
+     * Engine performing module resolution.
+     */
+    public enum JkResolverEngine {
+
+        /**
+         * Resolves with Ivy, handling both Maven and Ivy repositories.
+         */
+        IVY,
+
+        /**
+         * Resolves natively against Maven repositories, fetching POMs and artifacts concurrently. Nearest declaration
+         * wins on version conflicts, as in Maven, unless another conflict resolver is specified. Falls back on
+         * {@link #IVY} if an Ivy repository is involved.
+         */
+        MAVEN
+    }
+
+    /**
+     * Policy telling how often a cached metadata (snapshots and dynamic versions as <code>1.+</code>) should be
+     * checked for update against remote repositories. This is similar to Maven <i>updatePolicy</i>.
+     * Release versions are considered immutable so they are never checked again once in cache.
+     */
+    public static final class JkUpdatePolicy {
+
+        /**
+         * Checks for update at each resolution.
+         */
+        public static final JkUpdatePolicy ALWAYS = new JkUpdatePolicy("always", 0);
+
+        /**
+         * Checks for update at first resolution of the day.
+         */
+        public static final JkUpdatePolicy DAILY = new JkUpdatePolicy("daily", TimeUnit.DAYS.toMillis(1));
+
+        /**
+         * Never checks for update : metadata found in cache are always reused.
+         */
+        public static final JkUpdatePolicy NEVER = new JkUpdatePolicy("never", Long.MAX_VALUE);
+
+        private static final String INTERVAL_PREFIX = "interval:";
+
+        private final String name;
+
+        private final long ttlMillis;
+
+        private JkUpdatePolicy(String name, long ttlMillis) {
+            this.name = name;
+            this.ttlMillis = ttlMillis;
+        }
+
+        /**
+         * Creates a policy checking for update when the last check happened more than the specified number
+         * of minutes ago.
+         */
+        public static JkUpdatePolicy ofInterval(int minutes) {
+            JkUtilsAssert.argument(minutes >= 0, "Update interval can not be negative. Was " + minutes);
+            return new JkUpdatePolicy(INTERVAL_PREFIX + minutes, TimeUnit.MINUTES.toMillis(minutes));
+        }
+
+        /**
+         * Returns the policy standing for the specified name, as <code>always</code>, <code>daily</code>,
+         * <code>never</code> or <code>interval:N</code> where N stands for a number of minutes.
+         */
+        public static JkUpdatePolicy of(String name) {
+            final String value = name.trim().toLowerCase();
+            if (value.equals(ALWAYS.name)) {
+                return ALWAYS;
+            }
+            if (value.equals(DAILY.name)) {
+                return DAILY;
+            }
+            if (value.equals(NEVER.name)) {
+                return NEVER;
+            }
+            if (value.startsWith(INTERVAL_PREFIX)) {
+                try {
+                    return ofInterval(Integer.parseInt(value.substring(INTERVAL_PREFIX.length()).trim()));
+                } catch (final NumberFormatException e) {
+                    // fall into the exception below
+                }
+            }
+            throw new IllegalArgumentException("Update policy '" + name + "' is not valid. Expecting 'always', " +
+                    "'daily', 'never' or 'interval:N' where N is a number of minutes.");
+        }
+
+        /**
+         * Returns the time, in milliseconds, during which a cached metadata is considered up-to-date.
+         */
+        public long getTtlMillis() {
+            return ttlMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return ttlMillis == ((JkUpdatePolicy) o).ttlMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(ttlMillis);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private JkUpdatePolicy updatePolicy = JkUpdatePolicy.DAILY;
 
     private JkConflictResolver conflictResolver = JkConflictResolver.DEFAULT;
 
     private boolean failOnDependencyResolutionError = true;
 
+    private boolean resultCached = true;
+
+    private int downloadThreadCount = 8;
+
+    private JkResolverEngine resolverEngine = JkResolverEngine.IVY;
+
+    private boolean adaptiveRepoOrder;
+
     /**
      * For parent chaining
      */
@@ -75,23 +196,41 @@ public final class JkResolutionParameters<T> {
         return this;
     }
 
+    /**
+     * Returns the policy telling when snapshot and dynamic versions found in cache should be checked for update
+     * against remote repositories. Default is {@link JkUpdatePolicy#DAILY}.
+     */
+    public JkUpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    /**
+     * @see JkResolutionParameters#getUpdatePolicy()
+     */
+    public JkResolutionParameters<T> setUpdatePolicy(JkUpdatePolicy updatePolicy) {
+        JkUtilsAssert.argument(updatePolicy != null, "updatePolicy can not be null.");
+        this.updatePolicy = updatePolicy;
+        return this;
+    }
+
     /**
      * Returns <code>true</code> if during the resolution phase, the dynamic
-     * version must be resolved as well or the cache can be reused.
+     * version must be resolved as well or the cache can be reused. This is a shorthand for
+     * testing if update policy is {@link JkUpdatePolicy#ALWAYS}.
      */
     public boolean isRefreshed() {
-        return refreshed;
+        return JkUpdatePolicy.ALWAYS.equals(updatePolicy);
     }
 
     /**
+     * Shorthand for setting update policy to {@link JkUpdatePolicy#ALWAYS} if <code>true</code> or
+     * {@link JkUpdatePolicy#NEVER} otherwise.
      * @see JkResolutionParameters#isRefreshed()
      */
     public JkResolutionParameters<T> setRefreshed(boolean refreshed) {
-        this.refreshed = refreshed;
-        return this;
+        return setUpdatePolicy(refreshed ? JkUpdatePolicy.ALWAYS : JkUpdatePolicy.NEVER);
     }
 
-
     public boolean isFailOnDependencyResolutionError() {
         return failOnDependencyResolutionError;
     }
@@ -104,4 +243,71 @@ public final class JkResolutionParameters<T> {
         this.failOnDependencyResolutionError = failOnDependencyResolutionError;
         return this;
     }
+
+    /**
+     * Returns <code>true</code> if resolve results involving only fixed versions are persisted in Jeka user home
+     * and reused for next identical resolutions, as long as the files they refer to still exist.
+     */
+    public boolean isResultCached() {
+        return resultCached;
+    }
+
+    /**
+     * @see JkResolutionParameters#isResultCached()
+     */
+    public JkResolutionParameters<T> setResultCached(boolean resultCached) {
+        this.resultCached = resultCached;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of artifacts downloaded concurrently from http repositories, once the dependency
+     * graph has been resolved. Concurrent connections on a same host are limited regardless of this number.
+     * Default is 8. A value of 1 or less downloads artifacts one after the other.
+     */
+    public int getDownloadThreadCount() {
+        return downloadThreadCount;
+    }
+
+    /**
+     * @see JkResolutionParameters#getDownloadThreadCount()
+     */
+    public JkResolutionParameters<T> setDownloadThreadCount(int downloadThreadCount) {
+        this.downloadThreadCount = downloadThreadCount;
+        return this;
+    }
+
+    /**
+     * Returns the engine performing module resolution. Default is {@link JkResolverEngine#IVY}.
+     */
+    public JkResolverEngine getResolverEngine() {
+        return resolverEngine;
+    }
+
+    /**
+     * @see JkResolutionParameters#getResolverEngine()
+     */
+    public JkResolutionParameters<T> setResolverEngine(JkResolverEngine resolverEngine) {
+        JkUtilsAssert.argument(resolverEngine != null, "resolverEngine can not be null.");
+        this.resolverEngine = resolverEngine;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if fixed release versions are looked up first in the repositories that have been
+     * the fastest to find modules so far, according to latency and hit ratio measured across builds. Other lookups
+     * (dynamic and snapshot versions) follow the declared repository order, as their result depends on it.
+     * Default is <code>false</code>.
+     */
+    public boolean isAdaptiveRepoOrder() {
+        return adaptiveRepoOrder;
+    }
+
+    /**
+     * @see JkResolutionParameters#isAdaptiveRepoOrder()
+     */
+    public JkResolutionParameters<T> setAdaptiveRepoOrder(boolean adaptiveRepoOrder) {
+        this.adaptiveRepoOrder = adaptiveRepoOrder;
+        return this;
+    }
 }
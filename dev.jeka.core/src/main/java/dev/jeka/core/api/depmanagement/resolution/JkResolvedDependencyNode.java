@@ -1,7 +1,6 @@
 package dev.jeka.core.api.depmanagement.resolution;
 
 import dev.jeka.core.api.depmanagement.*;
-import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsPath;
 import dev.jeka.core.api.utils.JkUtilsString;
 import org.w3c.dom.Document;
@@ -11,9 +10,14 @@ import java.io.File;
 import java.io.Serializable;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A representation of a node in a dependency tree.
+ * A representation of a node in a dependency tree.<p>
+ *
+ * Nodes are immutable, so a node standing for a module can be shared by all the parents depending on it : the tree
+ * is actually a view over a directed acyclic graph. Lookups over descendants are answered from an index computed at
+ * first call, visiting each shared node once.
  *
  * @author Jerome Angibaud
  */
@@ -21,23 +25,28 @@ public class JkResolvedDependencyNode {
 
     private static final String INDENT = "    ";
 
+    private static final JkResolvedDependencyNode[] NO_CHILDREN = new JkResolvedDependencyNode[0];
+
     private final JkNodeInfo nodeInfo;
 
-    private final List<JkResolvedDependencyNode> children;
+    private final JkResolvedDependencyNode[] children;
 
-    private final JkVersionProvider resolvedVersions;
+    // Computed at first lookup
+    private volatile Index index;
+
+    // Computed at first call
+    private volatile JkVersionProvider resolvedVersions;
 
     private JkResolvedDependencyNode(JkNodeInfo nodeInfo, List<JkResolvedDependencyNode> children) {
         this.nodeInfo = nodeInfo;
-        this.children = children;
-        this.resolvedVersions = compute(nodeInfo, children);
+        this.children = children.isEmpty() ? NO_CHILDREN : children.toArray(NO_CHILDREN);
     }
 
     /**
      * Returns an empty instance of tree.
      */
     static JkResolvedDependencyNode ofEmpty(JkNodeInfo nodeInfo) {
-        return new JkResolvedDependencyNode(nodeInfo, new LinkedList<>());
+        return new JkResolvedDependencyNode(nodeInfo, Collections.emptyList());
     }
 
     /**
@@ -45,12 +54,12 @@ public class JkResolvedDependencyNode {
      * direct flatten.
      */
     public static JkResolvedDependencyNode ofModuleDep(JkModuleNodeInfo moduleNodeInfo, List<JkResolvedDependencyNode> children) {
-        return new JkResolvedDependencyNode(moduleNodeInfo, Collections.unmodifiableList(children));
+        return new JkResolvedDependencyNode(moduleNodeInfo, children);
     }
 
     public static JkResolvedDependencyNode ofFileDep(JkFileDependency dependency, Set<String> configurations) {
         final JkNodeInfo moduleInfo = JkFileNodeInfo.of(configurations, dependency);
-        return new JkResolvedDependencyNode(moduleInfo, Collections.unmodifiableList(new LinkedList<>()));
+        return new JkResolvedDependencyNode(moduleInfo, Collections.emptyList());
     }
 
     JkResolvedDependencyNode mergeNonModules(List<? extends JkDependency> dependencies) {
@@ -70,12 +79,11 @@ public class JkResolvedDependencyNode {
      * Returns all files resulting of this dependency node (this node itself plus all descendants).
      */
     public List<Path> getResolvedFiles() {
-        final List<Path> list = new LinkedList<>();
-        JkUtilsIterable.addAllWithoutDuplicate(list, this.nodeInfo.getFiles());
-        for (final JkResolvedDependencyNode child : children) {
-            JkUtilsIterable.addAllWithoutDuplicate(list, child.getResolvedFiles());
+        final Set<Path> result = new LinkedHashSet<>();
+        for (final JkResolvedDependencyNode node : index().nodes) {
+            result.addAll(node.nodeInfo.getFiles());
         }
-        return list;
+        return new LinkedList<>(result);
     }
 
     /**
@@ -108,7 +116,7 @@ public class JkResolvedDependencyNode {
      * Returns the children nodes for this node in the tree structure.
      */
     public List<JkResolvedDependencyNode> getChildren() {
-        return children;
+        return Collections.unmodifiableList(Arrays.asList(children));
     }
 
     /**
@@ -116,39 +124,54 @@ public class JkResolvedDependencyNode {
      * Evicted nodes are not taken in account.
      */
     public boolean contains(JkModuleId moduleId) {
-        if (this.isModuleNode() && moduleId.equals(this.getModuleInfo().getModuleId()) && !this.getModuleInfo().isEvicted()) {
-            return true;
-        }
-        for (final JkResolvedDependencyNode child : this.children) {
-            final boolean contains = child.contains(moduleId);
-            if (contains) {
-                return true;
-            }
-        }
-        return false;
+        return index().modules.contains(moduleId);
     }
 
     /**
-     * Returns the resolved version for this node and all its children.
+     * Returns the resolved version for this node and all its children. If a module stands in several nodes, the
+     * version of the last one in deep first order is returned.
      */
     public JkVersionProvider getResolvedVersions() {
-        return this.resolvedVersions;
+        JkVersionProvider result = resolvedVersions;
+        if (result == null) {
+            final Map<JkModuleId, JkVersion> versions = new LinkedHashMap<>();
+            collectLastResolvedVersions(versions, Collections.newSetFromMap(new IdentityHashMap<>()));
+            final List<JkVersionedModule> versionedModules = new ArrayList<>(versions.size());
+            versions.forEach((moduleId, version) -> versionedModules.add(moduleId.withVersion(version.getValue())));
+            result = JkVersionProvider.of(versionedModules);
+            resolvedVersions = result;
+        }
+        return result;
+    }
+
+    // Visits nodes in reverse deep first order, so the first version found for a module is the last one of the tree
+    private void collectLastResolvedVersions(Map<JkModuleId, JkVersion> versions,
+                                             Set<JkResolvedDependencyNode> visited) {
+        if (!visited.add(this)) {
+            return;
+        }
+        for (int i = children.length - 1; i >= 0; i--) {
+            children[i].collectLastResolvedVersions(versions, visited);
+        }
+        if (nodeInfo instanceof JkModuleNodeInfo) {
+            final JkModuleNodeInfo moduleNodeInfo = (JkModuleNodeInfo) nodeInfo;
+            if (!moduleNodeInfo.treeRoot && !moduleNodeInfo.isEvicted()) {
+                versions.putIfAbsent(moduleNodeInfo.moduleId, moduleNodeInfo.resolvedVersion);
+            }
+        }
     }
 
     /**
      * Returns the versioned modules which with this result has been created.
      */
     public Set<JkVersionedModule> getChildModules() {
-        return resolvedModules(true);
-    }
-
-    private Set<JkVersionedModule> resolvedModules(boolean root) {
         final Set<JkVersionedModule> result = new HashSet<>();
-        if (!root && this.isModuleNode() && !this.getModuleInfo().isEvicted()) {
-            result.add(this.getModuleInfo().moduleId.withVersion(this.getModuleInfo().resolvedVersion.getValue()));
-        }
-        for (final JkResolvedDependencyNode child : this.children) {
-            result.addAll(child.resolvedModules(false));
+        final JkResolvedDependencyNode[] nodes = index().nodes;
+        for (int i = 1; i < nodes.length; i++) {
+            final JkResolvedDependencyNode node = nodes[i];
+            if (node.isModuleNode() && !node.getModuleInfo().isEvicted()) {
+                result.add(node.getModuleInfo().getResolvedVersionedModule());
+            }
         }
         return result;
     }
@@ -158,7 +181,7 @@ public class JkResolvedDependencyNode {
      */
     public List<JkResolvedDependencyNode> getChildren(JkModuleId moduleId) {
         final List<JkResolvedDependencyNode> result = new LinkedList<>();
-        for (final JkResolvedDependencyNode child : getChildren()) {
+        for (final JkResolvedDependencyNode child : children) {
             if (child.getModuleInfo().getModuleId().equals(moduleId)) {
                 result.add(child);
             }
@@ -183,7 +206,7 @@ public class JkResolvedDependencyNode {
      * children of the merged node is a union of the two node children.
      */
     public JkResolvedDependencyNode withMerging(JkResolvedDependencyNode other) {
-        final List<JkResolvedDependencyNode> resultChildren = new LinkedList<>(this.children);
+        final List<JkResolvedDependencyNode> resultChildren = new ArrayList<>(Arrays.asList(this.children));
         for (final JkResolvedDependencyNode otherNodeChild : other.children) {
             if (!otherNodeChild.isModuleNode() || !directChildrenContains(otherNodeChild.getModuleInfo().getModuleId())) {
                 resultChildren.add(otherNodeChild);
@@ -192,6 +215,31 @@ public class JkResolvedDependencyNode {
         return new JkResolvedDependencyNode(this.nodeInfo, resultChildren);
     }
 
+    /*
+     * Returns a copy of this tree keeping only the module nodes fetched for the specified root configuration. Used to
+     * extract the view of a single scope from a tree resolved for several ones.
+     */
+    JkResolvedDependencyNode withRootConfiguration(String rootConfiguration) {
+        return withRootConfiguration(rootConfiguration, new IdentityHashMap<>());
+    }
+
+    private JkResolvedDependencyNode withRootConfiguration(String rootConfiguration,
+                        Map<JkResolvedDependencyNode, JkResolvedDependencyNode> filteredNodes) {
+        final JkResolvedDependencyNode filteredNode = filteredNodes.get(this);
+        if (filteredNode != null) {
+            return filteredNode;
+        }
+        final List<JkResolvedDependencyNode> resultChildren = new ArrayList<>(this.children.length);
+        for (final JkResolvedDependencyNode child : this.children) {
+            if (!child.isModuleNode() || child.getModuleInfo().getRootConfigurations().contains(rootConfiguration)) {
+                resultChildren.add(child.withRootConfiguration(rootConfiguration, filteredNodes));
+            }
+        }
+        final JkResolvedDependencyNode result = new JkResolvedDependencyNode(this.nodeInfo, resultChildren);
+        filteredNodes.put(this, result);
+        return result;
+    }
+
     private static void addFileDepsToTree(List<? extends JkDependency> dependencies, List<JkResolvedDependencyNode> result,
                                           Set<JkFileDependency> addedFileDeps, JkModuleId moduleId) {
         for (final JkDependency dependency : depsUntilLast(dependencies, moduleId)) {
@@ -208,10 +256,13 @@ public class JkResolvedDependencyNode {
      * Returns all nodes descendant of this one, deep first.
      */
     public List<JkResolvedDependencyNode> toFlattenList() {
-        final List<JkResolvedDependencyNode> result = new LinkedList<>();
-        for (final JkResolvedDependencyNode child : this.getChildren()) {
-            result.add(child);
-            result.addAll(child.toFlattenList());
+        final List<JkResolvedDependencyNode> result = new ArrayList<>();
+        final Deque<JkResolvedDependencyNode> stack = new ArrayDeque<>();
+        pushChildren(stack, this);
+        while (!stack.isEmpty()) {
+            final JkResolvedDependencyNode node = stack.pop();
+            result.add(node);
+            pushChildren(stack, node);
         }
         return result;
     }
@@ -220,15 +271,22 @@ public class JkResolvedDependencyNode {
      * Returns first node descendant of this one standing for the specified getModuleId, deep first.
      */
     public JkResolvedDependencyNode getFirst(JkModuleId moduleId) {
-        if (this.isModuleNode() && moduleId.equals(this.moduleId())) {
-            return this;
+        return index().firstNodes.get(moduleId);
+    }
+
+    private static void pushChildren(Deque<JkResolvedDependencyNode> stack, JkResolvedDependencyNode node) {
+        for (int i = node.children.length - 1; i >= 0; i--) {
+            stack.push(node.children[i]);
         }
-        for (final JkResolvedDependencyNode child : this.toFlattenList()) {
-            if (child.isModuleNode() && moduleId.equals(child.moduleId())) {
-                return child;
-            }
+    }
+
+    private Index index() {
+        Index result = index;
+        if (result == null) {
+            result = new Index(this);
+            index = result;
         }
-        return null;
+        return result;
     }
 
     private boolean directChildrenContains(JkModuleId moduleId) {
@@ -324,6 +382,9 @@ public class JkResolvedDependencyNode {
 
         private static final long serialVersionUID = 1L;
 
+        // Few distinct sets of configurations exist, so they are shared between nodes
+        private static final Map<Set<String>, Set<String>> CONFIGURATIONS = new ConcurrentHashMap<>();
+
         private final JkModuleId moduleId;
         private final JkVersion declaredVersion;
         private final Set<String> declaredConfigurations;  // the left conf mapping side in the caller dependency description
@@ -341,10 +402,11 @@ public class JkResolvedDependencyNode {
                          Set<String> rootConfigurations, JkVersion resolvedVersion, List<Path> artifacts, boolean treeRoot) {
             this.moduleId = moduleId;
             this.declaredVersion = declaredVersion;
-            this.declaredConfigurations = declaredConfigurations;
-            this.rootConfigurations = rootConfigurations;
+            this.declaredConfigurations = intern(declaredConfigurations);
+            this.rootConfigurations = intern(rootConfigurations);
             this.resolvedVersion = resolvedVersion;
-            this.artifacts = Collections.unmodifiableList(new LinkedList<>(JkUtilsPath.toFiles(artifacts)));
+            this.artifacts = artifacts.isEmpty() ? Collections.emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(JkUtilsPath.toFiles(artifacts)));
             this.treeRoot = treeRoot;
         }
 
@@ -367,6 +429,16 @@ public class JkResolvedDependencyNode {
                     resolvedVersion, artifacts);
         }
 
+        private static Set<String> intern(Set<String> configurations) {
+            final Set<String> result = CONFIGURATIONS.get(configurations);
+            if (result != null) {
+                return result;
+            }
+            final Set<String> copy = Collections.unmodifiableSet(new HashSet<>(configurations));
+            final Set<String> existing = CONFIGURATIONS.putIfAbsent(copy, copy);
+            return existing == null ? copy : existing;
+        }
+
         public JkModuleId getModuleId() {
             return moduleId;
         }
@@ -415,6 +487,10 @@ public class JkResolvedDependencyNode {
             return resolvedVersion == null;
         }
 
+        boolean isTreeRoot() {
+            return treeRoot;
+        }
+
         @Override
         public List<Path> getFiles() {
             return JkUtilsPath.toPaths(artifacts);
@@ -444,18 +520,42 @@ public class JkResolvedDependencyNode {
         return result;
     }
 
-    private static JkVersionProvider compute(JkNodeInfo nodeInfo, List<JkResolvedDependencyNode> children) {
-        JkVersionProvider result = JkVersionProvider.of();
-        if (nodeInfo instanceof JkModuleNodeInfo) {
-            final JkModuleNodeInfo moduleNodeInfo = (JkModuleNodeInfo) nodeInfo;
-            if (!moduleNodeInfo.treeRoot && !moduleNodeInfo.isEvicted()) {
-                result = result.and(moduleNodeInfo.moduleId, moduleNodeInfo.resolvedVersion);
+    /*
+     * Descendants of a node, each visited once even if shared by several parents.
+     */
+    private static final class Index {
+
+        // The node itself then its descendants, in order of first occurrence in deep first order
+        private final JkResolvedDependencyNode[] nodes;
+
+        // First module node standing for each module
+        private final Map<JkModuleId, JkResolvedDependencyNode> firstNodes = new HashMap<>();
+
+        // Modules standing in non evicted nodes
+        private final Set<JkModuleId> modules = new HashSet<>();
+
+        Index(JkResolvedDependencyNode root) {
+            final Set<JkResolvedDependencyNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            final List<JkResolvedDependencyNode> result = new ArrayList<>();
+            final Deque<JkResolvedDependencyNode> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                final JkResolvedDependencyNode node = stack.pop();
+                if (!visited.add(node)) {
+                    continue;
+                }
+                result.add(node);
+                if (node.isModuleNode()) {
+                    final JkModuleNodeInfo moduleNodeInfo = node.getModuleInfo();
+                    firstNodes.putIfAbsent(moduleNodeInfo.getModuleId(), node);
+                    if (!moduleNodeInfo.isEvicted()) {
+                        modules.add(moduleNodeInfo.getModuleId());
+                    }
+                }
+                pushChildren(stack, node);
             }
+            this.nodes = result.toArray(NO_CHILDREN);
         }
-        for (final JkResolvedDependencyNode child : children) {
-            result = result.and(compute(child.getNodeInfo(), child.getChildren()));
-        }
-        return result;
     }
 
     public static final class JkFileNodeInfo implements Serializable, JkNodeInfo {
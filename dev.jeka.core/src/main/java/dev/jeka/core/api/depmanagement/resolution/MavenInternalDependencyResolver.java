@@ -0,0 +1,704 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.depmanagement.JkModuleDependency.JkArtifactSpecification;
+import dev.jeka.core.api.depmanagement.resolution.JkResolvedDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/*
+ * Resolves module dependencies against Maven repositories, without involving Ivy.
+ *
+ * The dependency graph is walked level by level : POMs of a whole level, along with their parents and imported BOMs,
+ * are fetched concurrently before the next level is computed, so the result does not depend on download order.
+ * Once the graph is known, artifacts are downloaded concurrently as well. Everything runs on a bounded pool of
+ * threads that never wait for each other.
+ *
+ * Scopes, optional dependencies, exclusions and dependency management are handled as Maven does. Version conflicts
+ * are mediated according to the conflict resolver : nearest declaration wins by default, as in Maven.
+ *
+ * POM profiles and relocations are not supported. Ivy repositories are not supported either : if the repository set
+ * contains any, resolution is delegated to Ivy.
+ */
+final class MavenInternalDependencyResolver implements JkInternalDependencyResolver {
+
+    private static final String DEFAULT_CONF = "default";
+
+    // Latest version mediation may change the graph, so it is walked again until it does not change anymore
+    private static final int MAX_MEDIATION_PASSES = 5;
+
+    private static final Set<String> JAR_PACKAGINGS = new HashSet<>(Arrays.asList("jar", "bundle", "ejb",
+            "maven-plugin", "eclipse-plugin", "hk2-jar", "orbit"));
+
+    private final JkRepoSet repos;
+
+    private MavenInternalDependencyResolver(JkRepoSet repos) {
+        this.repos = repos;
+    }
+
+    static JkInternalDependencyResolver of(JkRepoSet repos) {
+        if (repos.getRepos().stream().anyMatch(JkRepo::isIvyRepo)) {
+            JkLog.trace("Repositories " + repos + " contain Ivy repositories : fall back on Ivy resolver.");
+            return JkInternalDependencyResolver.of(repos);
+        }
+        return new MavenInternalDependencyResolver(repos);
+    }
+
+    @Override
+    public JkResolveResult resolve(JkVersionedModule module, JkQualifiedDependencySet deps,
+                                   JkResolutionParameters parameters) {
+        final JkResolutionParameters<?> params = parameters == null ? JkResolutionParameters.of() : parameters;
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.max(1, params.getDownloadThreadCount()), runnable -> {
+                    final Thread thread = new Thread(runnable, "jeka-maven-resolve");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            return new Resolution(repos.getRepos(), deps, params, executorService).run(module);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public File get(JkModuleDependency dependency) {
+        return JkInternalDependencyResolver.of(repos).get(dependency);
+    }
+
+    @Override
+    public List<String> searchGroups() {
+        return JkInternalDependencyResolver.of(repos).searchGroups();
+    }
+
+    @Override
+    public List<String> searchModules(String groupId) {
+        return JkInternalDependencyResolver.of(repos).searchModules(groupId);
+    }
+
+    @Override
+    public List<String> searchVersions(JkModuleId moduleId) {
+        return JkInternalDependencyResolver.of(repos).searchVersions(moduleId);
+    }
+
+    private static final class Resolution {
+
+        private final List<JkRepo> repos;
+
+        private final JkQualifiedDependencySet deps;
+
+        private final JkResolutionParameters<?> params;
+
+        private final Executor executor;
+
+        private final MavenRepoClient client;
+
+        private final Map<JkVersionedModule, CompletableFuture<Located>> effectivePoms = new ConcurrentHashMap<>();
+
+        // Parents and imported BOMs referenced by POMs, to detect cycles that would make composition wait forever
+        private final Map<JkVersionedModule, Set<JkVersionedModule>> pomReferences = new HashMap<>();
+
+        private final Map<JkModuleId, CompletableFuture<List<String>>> versionLists = new ConcurrentHashMap<>();
+
+        private final List<JkModuleDepProblem> problems = Collections.synchronizedList(new LinkedList<>());
+
+        Resolution(List<JkRepo> repos, JkQualifiedDependencySet deps, JkResolutionParameters<?> params,
+                   Executor executor) {
+            this.repos = repos;
+            this.deps = deps;
+            this.params = params;
+            this.executor = executor;
+            this.client = MavenRepoClient.of(params);
+        }
+
+        JkResolveResult run(JkVersionedModule module) {
+            final long start = System.currentTimeMillis();
+            final Map<JkModuleId, String> providedVersions = new HashMap<>();
+            deps.getVersionProvider().toMap().forEach((moduleId, version) ->
+                    providedVersions.put(moduleId, version.getValue()));
+            Graph graph = walk(providedVersions);
+            final JkResolutionParameters.JkConflictResolver conflictResolver = params.getConflictResolver();
+            if (conflictResolver == JkResolutionParameters.JkConflictResolver.LATEST_VERSION
+                    || conflictResolver == JkResolutionParameters.JkConflictResolver.LATEST_COMPATIBLE) {
+                for (int i = 0; i < MAX_MEDIATION_PASSES; i++) {
+                    final Map<JkModuleId, String> forcedVersions = latestVersions(graph, providedVersions.keySet());
+                    if (forcedVersions.equals(graph.forcedVersions)) {
+                        break;
+                    }
+                    graph = walk(forcedVersions);
+                }
+            }
+            problems.addAll(graph.problems);
+            if (conflictResolver == JkResolutionParameters.JkConflictResolver.STRICT) {
+                final Graph strictGraph = graph;
+                strictGraph.requestedVersions.forEach((moduleId, versions) -> {
+                    if (versions.size() > 1 && !providedVersions.containsKey(moduleId)) {
+                        problems.add(JkModuleDepProblem.of(moduleId, strictGraph.nodes.get(moduleId).version,
+                                "Version conflict : versions " + versions + " are requested."));
+                    }
+                });
+            }
+            final Map<JkModuleId, List<Path>> files = download(graph);
+            final JkModuleNodeInfo rootInfo = module == null ? JkModuleNodeInfo.ofAnonymousRoot()
+                    : JkModuleNodeInfo.ofRoot(module);
+            final TreeBuilder treeBuilder = new TreeBuilder(graph, files);
+            final JkResolvedDependencyNode tree = JkResolvedDependencyNode.ofModuleDep(rootInfo,
+                    treeBuilder.children(graph.rootEdges, new HashSet<>()));
+            JkLog.trace("Resolved " + graph.nodes.size() + " modules in " + (System.currentTimeMillis() - start)
+                    + " ms.");
+            final JkResolveResult.JkErrorReport errorReport = problems.isEmpty()
+                    ? JkResolveResult.JkErrorReport.allFine()
+                    : JkResolveResult.JkErrorReport.failure(new ArrayList<>(problems));
+            return JkResolveResult.of(tree, errorReport);
+        }
+
+        // Walks the graph breadth first, so nearest declarations are met first
+        private Graph walk(Map<JkModuleId, String> forcedVersions) {
+            final Graph graph = new Graph(forcedVersions);
+            final Set<String> globalExclusions = deps.getGlobalExclusions().stream()
+                    .filter(exclusion -> exclusion.getClassifier() == null && exclusion.getType() == null)
+                    .map(exclusion -> exclusion.getModuleId().getGroupAndName())
+                    .collect(Collectors.toSet());
+            List<Visit> level = new LinkedList<>();
+            for (final JkQualifiedDependency qualifiedDependency : deps.getEntries()) {
+                final JkModuleDependency dependency = qualifiedDependency.getModuleDependency();
+                final Map<String, JkTransitivity> reach = reach(qualifiedDependency.getQualifier(),
+                        dependency.getTransitivity());
+                final String version = dependency.getVersion().getValue();
+                final Set<String> exclusions = new HashSet<>(globalExclusions);
+                dependency.getExclusions().stream()
+                        .map(exclusion -> exclusion.getModuleId().getGroupAndName())
+                        .forEach(exclusions::add);
+                graph.rootEdges.computeIfAbsent(dependency.getModuleId(),
+                        moduleId -> new Edge(version, Collections.emptySet())).confs.addAll(reach.keySet());
+                level.add(new Visit(dependency.getModuleId(), version, version, reach, exclusions,
+                        new LinkedList<>(dependency.getArtifactSpecifications())));
+            }
+            while (!level.isEmpty()) {
+                for (final Visit visit : level) {
+                    graph.requestedVersions.computeIfAbsent(visit.moduleId, key -> new LinkedHashSet<>())
+                            .add(visit.declaredVersion);
+                    graph.nodes.computeIfAbsent(visit.moduleId, moduleId -> new Node(moduleId, visit.version,
+                            located(moduleId, visit.version), visit.artifacts));
+                }
+                for (final Visit visit : level) {
+                    graph.nodes.get(visit.moduleId).located.handle((located, throwable) -> null).join();
+                }
+                final List<Visit> nextLevel = new LinkedList<>();
+                for (final Visit visit : level) {
+                    final Node node = graph.nodes.get(visit.moduleId);
+                    if (node.merge(visit) && !node.located.isCompletedExceptionally()) {
+                        nextLevel.addAll(expand(graph, node));
+                    }
+                }
+                level = nextLevel;
+            }
+            graph.nodes.values().stream()
+                    .filter(node -> node.located.isCompletedExceptionally())
+                    .forEach(node -> graph.problems.add(JkModuleDepProblem.of(node.moduleId, node.version,
+                            message(node.located))));
+            return graph;
+        }
+
+        private List<Visit> expand(Graph graph, Node node) {
+            final MavenPom pom = node.located.join().pom;
+            final List<Visit> result = new LinkedList<>();
+            for (final MavenPom.Dependency dependency : pom.getDependencies()) {
+                final JkModuleId moduleId = dependency.moduleId();
+                if (dependency.isOptional() || MavenPom.isExcluded(node.exclusions, moduleId)) {
+                    continue;
+                }
+                final Map<String, JkTransitivity> reach = propagate(node.reach, dependency.getScope());
+                if (reach.isEmpty()) {
+                    continue;
+                }
+                final String version = graph.forcedVersions.getOrDefault(moduleId, dependency.version);
+                if (JkUtilsString.isBlank(version)) {
+                    graph.problems.add(JkModuleDepProblem.of(moduleId, "", "No version specified in POM of "
+                            + node.located.join().versionedModule));
+                    continue;
+                }
+                final Set<String> exclusions = new HashSet<>(node.exclusions);
+                exclusions.addAll(dependency.exclusions);
+                final String declaredVersion = JkUtilsString.isBlank(dependency.version) ? version
+                        : dependency.version;
+                node.edges.putIfAbsent(moduleId, new Edge(declaredVersion,
+                        Collections.singleton(dependency.getScope())));
+                result.add(new Visit(moduleId, declaredVersion, version, reach, exclusions,
+                        Collections.singletonList(JkArtifactSpecification.of(dependency.classifier,
+                                dependency.type))));
+            }
+            return result;
+        }
+
+        // Mediated versions are the greatest requested ones, except for direct and provided versions
+        private static Map<JkModuleId, String> latestVersions(Graph graph, Set<JkModuleId> providedModules) {
+            final Map<JkModuleId, String> result = new HashMap<>(graph.forcedVersions);
+            graph.requestedVersions.forEach((moduleId, versions) -> {
+                if (graph.rootEdges.containsKey(moduleId) || providedModules.contains(moduleId)) {
+                    return;
+                }
+                final List<String> candidates = new LinkedList<>(versions);
+                if (result.containsKey(moduleId)) {
+                    candidates.add(result.get(moduleId));
+                }
+                candidates.stream()
+                        .filter(version -> !JkVersion.of(version).isDynamic())
+                        .distinct()
+                        .max(JkVersion.VERSION_COMPARATOR)
+                        .filter(latest -> candidates.size() > 1)
+                        .ifPresent(latest -> result.put(moduleId, latest));
+            });
+            return result;
+        }
+
+        private Map<JkModuleId, List<Path>> download(Graph graph) {
+            final Map<JkModuleId, CompletableFuture<List<Path>>> futures = new LinkedHashMap<>();
+            for (final Node node : graph.nodes.values()) {
+                if (!node.located.isCompletedExceptionally()) {
+                    futures.put(node.moduleId, CompletableFuture.supplyAsync(() -> artifacts(node), executor));
+                }
+            }
+            final Map<JkModuleId, List<Path>> result = new HashMap<>();
+            futures.forEach((moduleId, future) -> result.put(moduleId, future.join()));
+            return result;
+        }
+
+        private List<Path> artifacts(Node node) {
+            final Located located = node.located.join();
+            final List<JkArtifactSpecification> specs = node.artifacts.isEmpty()
+                    ? Collections.singletonList(JkArtifactSpecification.MAIN) : node.artifacts;
+            final List<Path> result = new LinkedList<>();
+            for (final JkArtifactSpecification spec : specs) {
+                String classifier = spec.getClassifier();
+                final String extension;
+                if (spec.getType() == null || ("jar".equals(spec.getType()) && classifier == null)) {
+                    if (classifier == null && "pom".equals(located.pom.getPackaging())) {
+                        continue;
+                    }
+                    extension = classifier == null ? extension(located.pom.getPackaging()) : "jar";
+                } else if ("test-jar".equals(spec.getType())) {
+                    classifier = classifier == null ? "tests" : classifier;
+                    extension = "jar";
+                } else {
+                    extension = extension(spec.getType());
+                }
+                Path file = artifact(located, classifier, extension);
+                if (file == null && !"jar".equals(extension) && spec.getType() == null) {
+                    file = artifact(located, classifier, "jar");
+                }
+                if (file != null) {
+                    result.add(file);
+                } else {
+                    problems.add(JkModuleDepProblem.of(located.versionedModule, "Artifact "
+                            + (classifier == null ? "" : classifier + ":") + extension
+                            + " not found in " + repos));
+                }
+            }
+            return result;
+        }
+
+        // Looks first in the repository the POM comes from
+        private Path artifact(Located located, String classifier, String extension) {
+            final List<JkRepo> candidates = new LinkedList<>(repos);
+            candidates.remove(located.repo);
+            candidates.add(0, located.repo);
+            for (final JkRepo repo : candidates) {
+                if (!repo.acceptsGroup(located.versionedModule.getModuleId().getGroup())) {
+                    continue;
+                }
+                try {
+                    final Path file = client.getArtifact(repo, located.versionedModule, classifier, extension);
+                    if (file != null) {
+                        return file;
+                    }
+                } catch (final IOException e) {
+                    JkLog.trace("Can not fetch " + located.versionedModule + " artifact from " + repo + " : "
+                            + e.getMessage());
+                }
+            }
+            return null;
+        }
+
+        private CompletableFuture<Located> located(JkModuleId moduleId, String version) {
+            if (!JkVersion.of(version).isDynamicAndResovable()) {
+                return effectivePom(JkVersionedModule.of(moduleId, JkVersion.of(version)));
+            }
+            return versions(moduleId).thenCompose(versions -> {
+                final String selected = MavenVersionRange.select(version, versions);
+                if (selected == null) {
+                    throw new CompletionException(new IllegalStateException("No version matching " + version
+                            + " found in " + repos));
+                }
+                return effectivePom(JkVersionedModule.of(moduleId, JkVersion.of(selected)));
+            });
+        }
+
+        private CompletableFuture<List<String>> versions(JkModuleId moduleId) {
+            return versionLists.computeIfAbsent(moduleId, key -> CompletableFuture.supplyAsync(() -> {
+                final Set<String> result = new LinkedHashSet<>();
+                for (final JkRepo repo : repos) {
+                    if (!repo.acceptsGroup(moduleId.getGroup())) {
+                        continue;
+                    }
+                    try {
+                        result.addAll(client.getVersions(repo, moduleId));
+                    } catch (final IOException e) {
+                        JkLog.trace("Can not fetch versions of " + moduleId + " from " + repo + " : "
+                                + e.getMessage());
+                    }
+                }
+                return new ArrayList<>(result);
+            }, executor));
+        }
+
+        private CompletableFuture<Located> effectivePom(JkVersionedModule versionedModule) {
+            return effectivePom(null, versionedModule);
+        }
+
+        /*
+         * The future is registered before being composed, as composition may require effective POMs recursively.
+         * Referrer is the module whose POM mentions the specified one as parent or imported BOM, if any.
+         */
+        private CompletableFuture<Located> effectivePom(JkVersionedModule referrer, JkVersionedModule versionedModule) {
+            if (referrer != null) {
+                final List<JkVersionedModule> cycle = addPomReference(referrer, versionedModule);
+                if (cycle != null) {
+                    final CompletableFuture<Located> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IllegalStateException("Cycle in parent or imported BOM POMs : "
+                            + cycle.stream().map(Object::toString).collect(Collectors.joining(" -> "))));
+                    return failed;
+                }
+            }
+            final CompletableFuture<Located> existing = effectivePoms.get(versionedModule);
+            if (existing != null) {
+                return existing;
+            }
+            final CompletableFuture<Located> result = new CompletableFuture<>();
+            final CompletableFuture<Located> concurrent = effectivePoms.putIfAbsent(versionedModule, result);
+            if (concurrent != null) {
+                return concurrent;
+            }
+            CompletableFuture.supplyAsync(() -> pom(versionedModule), executor)
+                    .thenCompose(located -> {
+                        final JkVersionedModule parent = located.pom.getParent();
+                        if (parent == null) {
+                            return CompletableFuture.completedFuture(located);
+                        }
+                        return effectivePom(versionedModule, parent).thenApply(effectiveParent ->
+                                located.with(located.pom.inherit(effectiveParent.pom)));
+                    })
+                    .thenCompose(located -> {
+                        final List<CompletableFuture<Located>> boms = located.pom.getImports().stream()
+                                .map(bom -> effectivePom(versionedModule, bom))
+                                .collect(Collectors.toList());
+                        return CompletableFuture.allOf(boms.toArray(new CompletableFuture[0]))
+                                .thenApply(ignored -> located.with(located.pom.importManagement(boms.stream()
+                                        .map(bom -> bom.join().pom)
+                                        .collect(Collectors.toList()))));
+                    })
+                    .whenComplete((located, throwable) -> {
+                        if (throwable != null) {
+                            result.completeExceptionally(throwable);
+                        } else {
+                            result.complete(located);
+                        }
+                    });
+            return result;
+        }
+
+        // Returns the cycle this reference closes, if any. In such case, the reference is not recorded.
+        private synchronized List<JkVersionedModule> addPomReference(JkVersionedModule referrer,
+                                                                     JkVersionedModule referenced) {
+            final List<JkVersionedModule> path = referencePath(referenced, referrer, new HashSet<>());
+            if (path != null) {
+                path.add(0, referrer);
+                return path;
+            }
+            pomReferences.computeIfAbsent(referrer, key -> new HashSet<>()).add(referenced);
+            return null;
+        }
+
+        private List<JkVersionedModule> referencePath(JkVersionedModule from, JkVersionedModule to,
+                                                      Set<JkVersionedModule> visited) {
+            if (from.equals(to)) {
+                return new LinkedList<>(Collections.singletonList(to));
+            }
+            if (!visited.add(from)) {
+                return null;
+            }
+            for (final JkVersionedModule next : pomReferences.getOrDefault(from, Collections.emptySet())) {
+                final List<JkVersionedModule> path = referencePath(next, to, visited);
+                if (path != null) {
+                    path.add(0, from);
+                    return path;
+                }
+            }
+            return null;
+        }
+
+        private Located pom(JkVersionedModule versionedModule) {
+            final List<JkRepo> candidates = params.isAdaptiveRepoOrder()
+                    && JkInternalRepoStats.isOrderIndependent(versionedModule.getVersion()) ?
+                    JkInternalRepoStats.of().sort(repos) : repos;
+            for (final JkRepo repo : candidates) {
+                if (!repo.acceptsGroup(versionedModule.getModuleId().getGroup())) {
+                    continue;
+                }
+                try {
+                    final Path file = client.getPom(repo, versionedModule);
+                    if (file != null) {
+                        return new Located(versionedModule, MavenPom.of(file), repo);
+                    }
+                } catch (final IOException e) {
+                    JkLog.trace("Can not fetch POM of " + versionedModule + " from " + repo + " : "
+                            + e.getMessage());
+                }
+            }
+            throw new CompletionException(new IllegalStateException("Module " + versionedModule
+                    + " not found in " + repos));
+        }
+
+        private static String message(CompletableFuture<?> future) {
+            try {
+                future.join();
+                return null;
+            } catch (final CompletionException e) {
+                final Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause()
+                        : e.getCause();
+                return cause == null ? e.getMessage() : cause.getMessage();
+            }
+        }
+
+    }
+
+    /*
+     * Returns the transitivity for each root configuration declared in the specified qualifier, as
+     * 'compile' or 'compile, runtime -> archives(master), compile(default)'.
+     */
+    private static Map<String, JkTransitivity> reach(String qualifier, JkTransitivity transitivity) {
+        final JkTransitivity declaredTransitivity = transitivity == null ? JkTransitivity.RUNTIME : transitivity;
+        final Map<String, JkTransitivity> result = new HashMap<>();
+        if (qualifier == null) {
+            result.put(DEFAULT_CONF, declaredTransitivity);
+            return result;
+        }
+        for (final String mapping : qualifier.split(";")) {
+            final String[] sides = mapping.split("->");
+            final JkTransitivity mappingTransitivity = sides.length > 1 ? transitivity(sides[1])
+                    : declaredTransitivity;
+            final List<String> confs = Arrays.stream(sides[0].split(","))
+                    .map(String::trim)
+                    .filter(conf -> !conf.isEmpty())
+                    .collect(Collectors.toList());
+            if (confs.isEmpty()) {
+                confs.add(DEFAULT_CONF);
+            }
+            confs.forEach(conf -> result.merge(conf, mappingTransitivity, JkTransitivity::ofDeepest));
+        }
+        return result;
+    }
+
+    // Translates the target side of an Ivy configuration mapping
+    private static JkTransitivity transitivity(String targetConfs) {
+        JkTransitivity result = JkTransitivity.NONE;
+        for (final String conf : targetConfs.split(",")) {
+            final String name = conf.trim();
+            if (JkUtilsString.startsWithAny(name, "runtime", "test", "default", "*")) {
+                return JkTransitivity.RUNTIME;
+            }
+            if (name.startsWith("compile")) {
+                result = JkTransitivity.COMPILE;
+            }
+        }
+        return result;
+    }
+
+    // Compile scoped dependencies are followed for compilation, runtime scoped ones only for execution
+    private static Map<String, JkTransitivity> propagate(Map<String, JkTransitivity> reach, String scope) {
+        final Map<String, JkTransitivity> result = new HashMap<>();
+        reach.forEach((conf, transitivity) -> {
+            if ("compile".equals(scope) && !JkTransitivity.NONE.equals(transitivity)) {
+                result.put(conf, transitivity);
+            } else if ("runtime".equals(scope) && JkTransitivity.RUNTIME.equals(transitivity)) {
+                result.put(conf, transitivity);
+            }
+        });
+        return result;
+    }
+
+    private static String extension(String type) {
+        return JAR_PACKAGINGS.contains(type) ? "jar" : type;
+    }
+
+    private static final class Graph {
+
+        private final Map<JkModuleId, String> forcedVersions;
+
+        private final Map<JkModuleId, Node> nodes = new LinkedHashMap<>();
+
+        private final Map<JkModuleId, Edge> rootEdges = new LinkedHashMap<>();
+
+        // Every version declared for each module, whatever the selected one
+        private final Map<JkModuleId, Set<String>> requestedVersions = new LinkedHashMap<>();
+
+        private final List<JkModuleDepProblem> problems = new LinkedList<>();
+
+        Graph(Map<JkModuleId, String> forcedVersions) {
+            this.forcedVersions = forcedVersions;
+        }
+    }
+
+    /*
+     * A selected module. Its version is the one of the first visit while its reach and exclusions are merged from
+     * all visits : a dependency excluded along a path is still reached through another one.
+     */
+    private static final class Node {
+
+        private final JkModuleId moduleId;
+
+        private final String version;
+
+        private final CompletableFuture<Located> located;
+
+        private final List<JkArtifactSpecification> artifacts;
+
+        private final Map<String, JkTransitivity> reach = new HashMap<>();
+
+        private Set<String> exclusions;
+
+        private final Map<JkModuleId, Edge> edges = new LinkedHashMap<>();
+
+        Node(JkModuleId moduleId, String version, CompletableFuture<Located> located,
+             List<JkArtifactSpecification> artifacts) {
+            this.moduleId = moduleId;
+            this.version = version;
+            this.located = located;
+            this.artifacts = artifacts;
+        }
+
+        // Returns true if the visit makes this node reach more dependencies
+        boolean merge(Visit visit) {
+            boolean changed = false;
+            if (exclusions == null) {
+                exclusions = new HashSet<>(visit.exclusions);
+                changed = true;
+            } else {
+                changed = exclusions.retainAll(visit.exclusions);
+            }
+            for (final Map.Entry<String, JkTransitivity> entry : visit.reach.entrySet()) {
+                final JkTransitivity current = reach.get(entry.getKey());
+                final JkTransitivity merged = JkTransitivity.ofDeepest(current, entry.getValue());
+                if (!merged.equals(current)) {
+                    reach.put(entry.getKey(), merged);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+    }
+
+    private static final class Visit {
+
+        private final JkModuleId moduleId;
+
+        private final String declaredVersion;
+
+        private final String version;
+
+        private final Map<String, JkTransitivity> reach;
+
+        private final Set<String> exclusions;
+
+        private final List<JkArtifactSpecification> artifacts;
+
+        Visit(JkModuleId moduleId, String declaredVersion, String version, Map<String, JkTransitivity> reach,
+              Set<String> exclusions, List<JkArtifactSpecification> artifacts) {
+            this.moduleId = moduleId;
+            this.declaredVersion = declaredVersion;
+            this.version = version;
+            this.reach = reach;
+            this.exclusions = exclusions;
+            this.artifacts = artifacts;
+        }
+    }
+
+    private static final class Edge {
+
+        private final String declaredVersion;
+
+        private final Set<String> confs;
+
+        Edge(String declaredVersion, Set<String> confs) {
+            this.declaredVersion = declaredVersion;
+            this.confs = new HashSet<>(confs);
+        }
+    }
+
+    private static final class Located {
+
+        private final JkVersionedModule versionedModule;
+
+        private final MavenPom pom;
+
+        private final JkRepo repo;
+
+        Located(JkVersionedModule versionedModule, MavenPom pom, JkRepo repo) {
+            this.versionedModule = versionedModule;
+            this.pom = pom;
+            this.repo = repo;
+        }
+
+        Located with(MavenPom pom) {
+            return new Located(versionedModule, pom, repo);
+        }
+    }
+
+    // Children lists are shared between all occurrences of a module in the tree
+    private static final class TreeBuilder {
+
+        private final Graph graph;
+
+        private final Map<JkModuleId, List<Path>> files;
+
+        private final Map<JkModuleId, List<JkResolvedDependencyNode>> childrenCache = new HashMap<>();
+
+        TreeBuilder(Graph graph, Map<JkModuleId, List<Path>> files) {
+            this.graph = graph;
+            this.files = files;
+        }
+
+        List<JkResolvedDependencyNode> children(Map<JkModuleId, Edge> edges, Set<JkModuleId> ancestors) {
+            final List<JkResolvedDependencyNode> result = new LinkedList<>();
+            edges.forEach((moduleId, edge) -> {
+                final Node node = graph.nodes.get(moduleId);
+                final JkVersion resolvedVersion = node.located.isCompletedExceptionally()
+                        ? JkVersion.of(node.version) : node.located.join().versionedModule.getVersion();
+                final JkModuleNodeInfo info = JkModuleNodeInfo.of(moduleId, JkVersion.of(edge.declaredVersion),
+                        edge.confs, new HashSet<>(node.reach.keySet()), resolvedVersion,
+                        files.getOrDefault(moduleId, Collections.emptyList()));
+                final List<JkResolvedDependencyNode> children;
+                if (ancestors.contains(moduleId)) {
+                    children = new LinkedList<>();
+                } else if (childrenCache.containsKey(moduleId)) {
+                    children = childrenCache.get(moduleId);
+                } else {
+                    ancestors.add(moduleId);
+                    children = children(node.edges, ancestors);
+                    ancestors.remove(moduleId);
+                    childrenCache.put(moduleId, children);
+                }
+                result.add(JkResolvedDependencyNode.ofModuleDep(info, children));
+            });
+            return result;
+        }
+    }
+
+}
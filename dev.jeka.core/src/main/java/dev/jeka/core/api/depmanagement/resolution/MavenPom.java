@@ -0,0 +1,346 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * Maven POM model restricted to what dependency resolution needs.
+ *
+ * A POM is parsed as is, then completed with its parent (#inherit) and finally with the dependency management of the
+ * BOMs it imports (#importManagement). Values are interpolated with properties at the very last moment, when
+ * dependencies are read, as Maven does.
+ */
+final class MavenPom {
+
+    static final String IMPORT_SCOPE = "import";
+
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final String groupId;
+
+    private final String artifactId;
+
+    private final String version;
+
+    private final String packaging;
+
+    private final JkVersionedModule parent;
+
+    private final Map<String, String> properties;
+
+    private final List<Dependency> dependencies;
+
+    // Declared management, possibly containing imports of BOMs
+    private final List<Dependency> managedDependencies;
+
+    // Management imported from BOMs, already interpolated in their own context
+    private final List<Dependency> importedManagedDependencies;
+
+    private MavenPom(String groupId, String artifactId, String version, String packaging,
+                     JkVersionedModule parent, Map<String, String> properties, List<Dependency> dependencies,
+                     List<Dependency> managedDependencies, List<Dependency> importedManagedDependencies) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.packaging = packaging;
+        this.parent = parent;
+        this.properties = properties;
+        this.dependencies = dependencies;
+        this.managedDependencies = managedDependencies;
+        this.importedManagedDependencies = importedManagedDependencies;
+    }
+
+    static MavenPom of(Path file) {
+        return of(JkUtilsXml.documentFrom(file));
+    }
+
+    static MavenPom of(Document document) {
+        final Element projectEl = document.getDocumentElement();
+        final Element parentEl = JkUtilsXml.directChild(projectEl, "parent");
+        JkVersionedModule parent = null;
+        if (parentEl != null) {
+            parent = JkVersionedModule.of(JkModuleId.of(text(parentEl, "groupId"), text(parentEl, "artifactId")),
+                    JkVersion.of(text(parentEl, "version")));
+        }
+        final Map<String, String> properties = new HashMap<>();
+        final Element propertiesEl = JkUtilsXml.directChild(projectEl, "properties");
+        if (propertiesEl != null) {
+            final NodeList nodeList = propertiesEl.getChildNodes();
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                final Node node = nodeList.item(i);
+                if (node instanceof Element) {
+                    properties.put(((Element) node).getTagName(), node.getTextContent().trim());
+                }
+            }
+        }
+        final List<Dependency> dependencies = dependencies(JkUtilsXml.directChild(projectEl, "dependencies"));
+        final Element managementEl = JkUtilsXml.directChild(projectEl, "dependencyManagement");
+        final List<Dependency> managedDependencies = managementEl == null ? Collections.emptyList()
+                : dependencies(JkUtilsXml.directChild(managementEl, "dependencies"));
+        return new MavenPom(text(projectEl, "groupId"), text(projectEl, "artifactId"),
+                text(projectEl, "version"), text(projectEl, "packaging"), parent, properties, dependencies,
+                managedDependencies, Collections.emptyList());
+    }
+
+    /**
+     * Returns the parent declared in this POM, <code>null</code> if none.
+     */
+    JkVersionedModule getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns this POM completed with the specified effective parent POM.
+     */
+    MavenPom inherit(MavenPom parentPom) {
+        final Map<String, String> mergedProperties = new HashMap<>(parentPom.properties);
+        mergedProperties.putAll(this.properties);
+        mergedProperties.put("project.parent.groupId", parentPom.getGroupId());
+        mergedProperties.put("project.parent.version", parentPom.getVersion());
+
+        // Child dependencies override the parent ones having the same key
+        final Map<String, Dependency> mergedDependencies = new LinkedHashMap<>();
+        parentPom.dependencies.forEach(dependency -> mergedDependencies.put(dependency.key(), dependency));
+        this.dependencies.forEach(dependency -> mergedDependencies.put(dependency.key(), dependency));
+        final List<Dependency> mergedManagement = new LinkedList<>(this.managedDependencies);
+        mergedManagement.addAll(parentPom.managedDependencies);
+        final List<Dependency> mergedImported = new LinkedList<>(parentPom.importedManagedDependencies);
+        return new MavenPom(
+                JkUtilsString.isBlank(groupId) ? parentPom.getGroupId() : groupId,
+                artifactId,
+                JkUtilsString.isBlank(version) ? parentPom.getVersion() : version,
+                packaging, parent, mergedProperties, new ArrayList<>(mergedDependencies.values()), mergedManagement,
+                mergedImported);
+    }
+
+    /**
+     * Returns the BOMs imported in the dependency management section.
+     */
+    List<JkVersionedModule> getImports() {
+        return managedDependencies.stream()
+                .map(this::interpolate)
+                .filter(dependency -> IMPORT_SCOPE.equals(dependency.scope) && "pom".equals(dependency.type))
+                .map(dependency -> JkVersionedModule.of(dependency.moduleId(), JkVersion.of(dependency.version)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns this POM completed with the dependency management of the specified effective BOMs.
+     */
+    MavenPom importManagement(List<MavenPom> boms) {
+        final List<Dependency> imported = new LinkedList<>(importedManagedDependencies);
+        boms.forEach(bom -> imported.addAll(bom.getManagedDependencies()));
+        return new MavenPom(groupId, artifactId, version, packaging, parent, properties, dependencies,
+                managedDependencies, imported);
+    }
+
+    String getGroupId() {
+        return interpolate(groupId);
+    }
+
+    String getVersion() {
+        return interpolate(version);
+    }
+
+    String getPackaging() {
+        return JkUtilsString.isBlank(packaging) ? "jar" : interpolate(packaging);
+    }
+
+    /**
+     * Returns the dependencies of this POM, interpolated and completed with managed versions and scopes.
+     */
+    List<Dependency> getDependencies() {
+        final Map<String, Dependency> management = getManagement();
+        return dependencies.stream()
+                .map(this::interpolate)
+                .map(dependency -> dependency.managedBy(management.get(dependency.key())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the managed dependencies, imports excluded, indexed by dependency key. First declaration wins.
+     */
+    Map<String, Dependency> getManagement() {
+        final Map<String, Dependency> result = new HashMap<>();
+        getManagedDependencies().forEach(dependency -> result.putIfAbsent(dependency.key(), dependency));
+        return result;
+    }
+
+    private List<Dependency> getManagedDependencies() {
+        final List<Dependency> result = managedDependencies.stream()
+                .map(this::interpolate)
+                .filter(dependency -> !IMPORT_SCOPE.equals(dependency.scope))
+                .collect(Collectors.toCollection(LinkedList::new));
+        result.addAll(importedManagedDependencies);
+        return result;
+    }
+
+    private Dependency interpolate(Dependency dependency) {
+        return new Dependency(interpolate(dependency.groupId), interpolate(dependency.artifactId),
+                interpolate(dependency.version), interpolate(dependency.type), interpolate(dependency.classifier),
+                interpolate(dependency.scope), interpolate(dependency.optional),
+                dependency.exclusions.stream().map(this::interpolate).collect(Collectors.toList()));
+    }
+
+    String interpolate(String value) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+        String result = value;
+        for (int i = 0; i < 10 && result.contains("${"); i++) {
+            final Matcher matcher = PROPERTY.matcher(result);
+            final StringBuffer buffer = new StringBuffer();
+            boolean replaced = false;
+            while (matcher.find()) {
+                final String propertyValue = property(matcher.group(1));
+                replaced = replaced || propertyValue != null;
+                matcher.appendReplacement(buffer, Matcher.quoteReplacement(
+                        propertyValue == null ? matcher.group() : propertyValue));
+            }
+            matcher.appendTail(buffer);
+            result = buffer.toString();
+            if (!replaced) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private String property(String name) {
+        final String projectName = name.startsWith("pom.") ? "project." + name.substring(4) : name;
+        switch (projectName) {
+            case "project.groupId":
+                return groupId;
+            case "project.artifactId":
+                return artifactId;
+            case "project.version":
+                return version;
+            case "project.packaging":
+                return getPackaging();
+            default:
+                if (properties.containsKey(projectName)) {
+                    return properties.get(projectName);
+                }
+                return System.getProperty(name);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if one of the specified exclusions, formatted as 'groupId:artifactId' and possibly
+     * containing '*' wildcards, matches the specified module.
+     */
+    static boolean isExcluded(Collection<String> exclusions, JkModuleId moduleId) {
+        for (final String exclusion : exclusions) {
+            final int index = exclusion.indexOf(':');
+            final String excludedGroup = exclusion.substring(0, index);
+            final String excludedName = exclusion.substring(index + 1);
+            if (("*".equals(excludedGroup) || excludedGroup.equals(moduleId.getGroup()))
+                    && ("*".equals(excludedName) || excludedName.equals(moduleId.getName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Dependency> dependencies(Element dependenciesEl) {
+        if (dependenciesEl == null) {
+            return Collections.emptyList();
+        }
+        final List<Dependency> result = new LinkedList<>();
+        for (final Element dependencyEl : JkUtilsXml.directChildren(dependenciesEl, "dependency")) {
+            final List<String> exclusions = new LinkedList<>();
+            final Element exclusionsEl = JkUtilsXml.directChild(dependencyEl, "exclusions");
+            if (exclusionsEl != null) {
+                for (final Element exclusionEl : JkUtilsXml.directChildren(exclusionsEl, "exclusion")) {
+                    exclusions.add(text(exclusionEl, "groupId") + ":" + text(exclusionEl, "artifactId"));
+                }
+            }
+            result.add(new Dependency(text(dependencyEl, "groupId"), text(dependencyEl, "artifactId"),
+                    text(dependencyEl, "version"), text(dependencyEl, "type"), text(dependencyEl, "classifier"),
+                    text(dependencyEl, "scope"), text(dependencyEl, "optional"), exclusions));
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String name) {
+        final String result = JkUtilsXml.directChildText(parent, name);
+        return result == null ? null : result.trim();
+    }
+
+    /*
+     * A dependency, as declared in a <dependency> element.
+     */
+    static final class Dependency {
+
+        final String groupId;
+
+        final String artifactId;
+
+        final String version;
+
+        final String type;
+
+        final String classifier;
+
+        final String scope;
+
+        final String optional;
+
+        final List<String> exclusions;  // 'groupId:artifactId', possibly containing '*'
+
+        Dependency(String groupId, String artifactId, String version, String type, String classifier,
+                   String scope, String optional, List<String> exclusions) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.type = JkUtilsString.isBlank(type) ? "jar" : type;
+            this.classifier = JkUtilsString.isBlank(classifier) ? null : classifier;
+            this.scope = JkUtilsString.isBlank(scope) ? null : scope;
+            this.optional = optional;
+            this.exclusions = exclusions;
+        }
+
+        JkModuleId moduleId() {
+            return JkModuleId.of(groupId, artifactId);
+        }
+
+        String key() {
+            return groupId + ":" + artifactId + ":" + type + ":" + classifier;
+        }
+
+        String getScope() {
+            return scope == null ? "compile" : scope;
+        }
+
+        boolean isOptional() {
+            return "true".equalsIgnoreCase(optional);
+        }
+
+        // Completes this dependency with the version, scope and exclusions of the specified managed one
+        private Dependency managedBy(Dependency managed) {
+            if (managed == null) {
+                return this;
+            }
+            final List<String> mergedExclusions = new LinkedList<>(exclusions);
+            mergedExclusions.addAll(managed.exclusions);
+            return new Dependency(groupId, artifactId,
+                    JkUtilsString.isBlank(version) ? managed.version : version, type, classifier,
+                    scope == null ? managed.scope : scope,
+                    optional == null ? managed.optional : optional, mergedExclusions);
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.depmanagement.publication.JkMavenMetadata;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Fetches files from Maven 2 repositories.
+ *
+ * Files of remote repositories are downloaded in a cache laid out as a Maven local repository. Files of file system
+ * repositories are used in place. Release files are immutable so they are downloaded once, while metadata (as
+ * maven-metadata.xml) are cached per repository and downloaded again when older than the update policy TTL.
+ *
+ * Downloads are checked against the published sha1 and moved atomically into the cache (see
+ * JkInternalHttpDownloader). Instances are thread-safe.
+ */
+final class MavenRepoClient {
+
+    private static final String METADATA_FILE_NAME = "maven-metadata.xml";
+
+    private final Path cacheDir;
+
+    private final long metadataTtlMillis;
+
+    private final JkInternalHttpDownloader httpDownloader = JkInternalHttpDownloader.of(false);
+
+    // Records POM lookups if not null
+    private final JkInternalRepoStats repoStats;
+
+    private MavenRepoClient(Path cacheDir, long metadataTtlMillis, JkInternalRepoStats repoStats) {
+        this.cacheDir = cacheDir;
+        this.metadataTtlMillis = metadataTtlMillis;
+        this.repoStats = repoStats;
+    }
+
+    static MavenRepoClient of(JkResolutionParameters<?> parameters) {
+        return new MavenRepoClient(JkLocator.getJekaRepositoryCache().resolve("m2"),
+                parameters.getUpdatePolicy().getTtlMillis(),
+                parameters.isAdaptiveRepoOrder() ? JkInternalRepoStats.of() : null);
+    }
+
+    /**
+     * Returns the POM file of the specified module, <code>null</code> if the repository does not contain it.
+     */
+    Path getPom(JkRepo repo, JkVersionedModule module) throws IOException {
+        return getArtifact(repo, module, null, "pom");
+    }
+
+    /**
+     * Returns the specified artifact file, <code>null</code> if the repository does not contain it. Snapshot
+     * artifacts are looked up using the timestamp mentioned in the repository metadata, if any.
+     */
+    Path getArtifact(JkRepo repo, JkVersionedModule module, String classifier, String extension) throws IOException {
+        final String version = module.getVersion().getValue();
+        final String dir = moduleDir(module.getModuleId()) + version + "/";
+        final String fileVersion;
+        if (module.getVersion().isSnapshot()) {
+            fileVersion = snapshotFileVersion(repo, dir, version);
+        } else {
+            fileVersion = version;
+        }
+        final String fileName = module.getModuleId().getName() + "-" + fileVersion
+                + (classifier == null ? "" : "-" + classifier) + "." + extension;
+        final Path cachedFile = isFileSystem(repo) ? null : cacheDir.resolve(dir + fileName);
+        return get(repo, dir + fileName, cachedFile, module.getVersion().isSnapshot());
+    }
+
+    /**
+     * Returns the versions of the specified module published in the specified repository.
+     */
+    List<String> getVersions(JkRepo repo, JkModuleId moduleId) throws IOException {
+        final Path file = getMetadata(repo, moduleDir(moduleId));
+        if (file == null) {
+            return Collections.emptyList();
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return JkMavenMetadata.of(inputStream).getVersions();
+        } catch (final RuntimeException e) {
+            throw new IOException("Can not read " + file + " : " + e.getMessage(), e);
+        }
+    }
+
+    // Returns the timestamped version of the snapshot files, or the snapshot version itself if not timestamped
+    private String snapshotFileVersion(JkRepo repo, String dir, String version) throws IOException {
+        final Path file = getMetadata(repo, dir);
+        if (file == null) {
+            return version;
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            final JkMavenMetadata.Versioning.JkSnapshot snapshot = JkMavenMetadata.of(inputStream)
+                    .currentSnapshot();
+            if (snapshot == null || snapshot.timestamp == null) {
+                return version;
+            }
+            return version.substring(0, version.length() - "SNAPSHOT".length()) + snapshot.timestamp + "-"
+                    + snapshot.buildNumber;
+        } catch (final RuntimeException e) {  // local repositories don't mention any timestamp
+            return version;
+        }
+    }
+
+    private Path getMetadata(JkRepo repo, String dir) throws IOException {
+        if (isFileSystem(repo)) {
+            final Path file = localFile(repo, dir + METADATA_FILE_NAME);
+            if (Files.exists(file)) {
+                return file;
+            }
+            return localFile(repo, dir + "maven-metadata-local.xml");
+        }
+        final String repoHash = Integer.toHexString(repo.getUrl().toString().hashCode());
+        final Path cachedFile = cacheDir.resolve(dir + "maven-metadata-" + repoHash + ".xml");
+        return get(repo, dir + METADATA_FILE_NAME, cachedFile, true);
+    }
+
+    private Path get(JkRepo repo, String path, Path cachedFile, boolean changing) throws IOException {
+        if (isFileSystem(repo)) {
+            final Path file = localFile(repo, path);
+            return Files.exists(file) ? file : null;
+        }
+        if (Files.exists(cachedFile) && (!changing || isFresh(cachedFile))) {
+            return cachedFile;
+        }
+        final boolean recorded = repoStats != null && path.endsWith(".pom");
+        final long start = System.currentTimeMillis();
+        try {
+            final boolean found = httpDownloader.download(new URL(baseUrl(repo) + path), cachedFile,
+                    repo.getCredentials());
+            if (recorded) {
+                repoStats.record(repo, found, System.currentTimeMillis() - start);
+            }
+            if (!found) {
+                return null;
+            }
+        } catch (final IOException e) {
+            if (recorded) {
+                repoStats.record(repo, false, System.currentTimeMillis() - start);
+            }
+            if (changing && Files.exists(cachedFile)) {  // stale metadata is better than nothing when offline
+                return cachedFile;
+            }
+            throw e;
+        }
+        return cachedFile;
+    }
+
+    private boolean isFresh(Path file) {
+        if (metadataTtlMillis == Long.MAX_VALUE) {
+            return true;
+        }
+        return System.currentTimeMillis() - file.toFile().lastModified() < metadataTtlMillis;
+    }
+
+    private static String moduleDir(JkModuleId moduleId) {
+        return moduleId.getGroup().replace('.', '/') + "/" + moduleId.getName() + "/";
+    }
+
+    private static boolean isFileSystem(JkRepo repo) {
+        return "file".equals(repo.getUrl().getProtocol());
+    }
+
+    private static Path localFile(JkRepo repo, String path) {
+        try {
+            return Paths.get(repo.getUrl().toURI()).resolve(path);
+        } catch (final URISyntaxException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private static String baseUrl(JkRepo repo) {
+        final String url = repo.getUrl().toString();
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+}
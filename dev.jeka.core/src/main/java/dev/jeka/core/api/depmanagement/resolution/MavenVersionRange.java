@@ -0,0 +1,102 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkVersion;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/*
+ * Selects versions matching dynamic version expressions : Maven ranges ('[1.0,2.0)', '[1.5,)', '[1.0],[1.2]'),
+ * Ivy prefix expressions ('1.+', '+') and 'latest.release' / 'latest.integration'. Ivy reversed brackets
+ * (']1.0,2.0[') are accepted as well.
+ */
+final class MavenVersionRange {
+
+    private MavenVersionRange() {
+    }
+
+    /**
+     * Returns the greatest of the specified versions matching the specified expression, <code>null</code> if
+     * none match.
+     */
+    static String select(String expression, Collection<String> versions) {
+        String result = null;
+        for (final String version : versions) {
+            if (matches(expression, version)
+                    && (result == null || JkVersion.VERSION_COMPARATOR.compare(version, result) > 0)) {
+                result = version;
+            }
+        }
+        return result;
+    }
+
+    static boolean matches(String expression, String version) {
+        final String value = expression.trim();
+        final boolean snapshot = JkVersion.of(version).isSnapshot();
+        if (value.equals("latest.integration")) {
+            return true;
+        }
+        if (value.startsWith("latest.")) {
+            return !snapshot;
+        }
+        if (value.endsWith("+")) {
+            return !snapshot && version.startsWith(value.substring(0, value.length() - 1));
+        }
+        if (snapshot) {
+            return false;
+        }
+        for (final String range : ranges(value)) {
+            if (matchesRange(range, version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Splits '[1.0,2.0),[3.0,)' in '[1.0,2.0)' and '[3.0,)'
+    private static List<String> ranges(String value) {
+        final List<String> result = new LinkedList<>();
+        int start = -1;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (start < 0 && isBracket(c)) {
+                start = i;
+            } else if (start >= 0 && isBracket(c)) {
+                result.add(value.substring(start, i + 1));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isBracket(char c) {
+        return c == '[' || c == ']' || c == '(' || c == ')';
+    }
+
+    private static boolean matchesRange(String range, String version) {
+        final boolean lowerInclusive = range.charAt(0) == '[';
+        final boolean upperInclusive = range.charAt(range.length() - 1) == ']';
+        final String content = range.substring(1, range.length() - 1);
+        final int commaIndex = content.indexOf(',');
+        if (commaIndex < 0) {  // '[1.0]' stands for exactly 1.0
+            return JkVersion.VERSION_COMPARATOR.compare(version, content.trim()) == 0;
+        }
+        final String lower = content.substring(0, commaIndex).trim();
+        final String upper = content.substring(commaIndex + 1).trim();
+        if (!lower.isEmpty()) {
+            final int comparison = JkVersion.VERSION_COMPARATOR.compare(version, lower);
+            if (comparison < 0 || (comparison == 0 && !lowerInclusive)) {
+                return false;
+            }
+        }
+        if (!upper.isEmpty()) {
+            final int comparison = JkVersion.VERSION_COMPARATOR.compare(version, upper);
+            if (comparison > 0 || (comparison == 0 && !upperInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
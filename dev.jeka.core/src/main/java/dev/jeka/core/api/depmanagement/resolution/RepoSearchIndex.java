@@ -0,0 +1,218 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Groups, modules and versions available in a set of repositories, persisted in the repository cache so searches
+ * are answered locally.
+ *
+ * Each search is an entry of the index, filled at first search then refreshed on its own : once older than the
+ * update policy TTL, the entry is still returned as is, while a fresh one is fetched in the background. With the
+ * 'always' update policy, entries are fetched at each search.
+ *
+ * Versions of modules hosted in Maven repositories are read from maven-metadata.xml. Other searches rely on
+ * repository listing.
+ */
+final class RepoSearchIndex {
+
+    private static final String GROUPS = "groups";
+
+    private static final String MODULES = "modules:";
+
+    private static final String VERSIONS = "versions:";
+
+    // By repository set description
+    private static final Map<String, RepoSearchIndex> INDEXES = new HashMap<>();
+
+    private static final Executor REFRESHER = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "jeka-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+
+    private final Executor refresher;
+
+    // By search, loaded lazily
+    private Map<String, Entry> entries;
+
+    // Searches currently refreshed in the background
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private RepoSearchIndex(Path file, Executor refresher) {
+        this.file = file;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Returns the index of the specified repositories, shared within this JVM.
+     */
+    static RepoSearchIndex of(JkRepoSet repos) {
+        synchronized (INDEXES) {
+            return INDEXES.computeIfAbsent(describe(repos), description -> new RepoSearchIndex(
+                    JkLocator.getJekaRepositoryCache().resolve("search-index")
+                            .resolve(JkInternalHttpDownloader.sha256(description) + ".txt"), REFRESHER));
+        }
+    }
+
+    static RepoSearchIndex of(Path file, Executor refresher) {
+        return new RepoSearchIndex(file, refresher);
+    }
+
+    List<String> searchGroups(JkRepoSet repos, JkResolutionParameters<?> parameters) {
+        return get(GROUPS, parameters.getUpdatePolicy().getTtlMillis(),
+                () -> JkInternalDependencyResolver.of(repos).searchGroups());
+    }
+
+    List<String> searchModules(JkRepoSet repos, String groupId, JkResolutionParameters<?> parameters) {
+        return get(MODULES + groupId, parameters.getUpdatePolicy().getTtlMillis(),
+                () -> JkInternalDependencyResolver.of(repos).searchModules(groupId));
+    }
+
+    List<String> searchVersions(JkRepoSet repos, JkModuleId moduleId, JkResolutionParameters<?> parameters) {
+        return get(VERSIONS + moduleId, parameters.getUpdatePolicy().getTtlMillis(),
+                () -> fetchVersions(repos, moduleId));
+    }
+
+    /**
+     * Returns the result of the specified search, fetching it with the specified supplier if it is not present
+     * in this index or if it is older than the specified TTL.
+     */
+    List<String> get(String search, long ttlMillis, Supplier<List<String>> fetcher) {
+        final Entry entry;
+        synchronized (this) {
+            entry = entries().get(search);
+        }
+        if (entry == null || ttlMillis <= 0) {
+            return put(search, fetcher.get());
+        }
+        if (System.currentTimeMillis() - entry.timestamp >= ttlMillis && refreshing.add(search)) {
+            refresher.execute(() -> {
+                try {
+                    put(search, fetcher.get());
+                } catch (final RuntimeException e) {
+                    JkLog.trace("Can not refresh search index entry " + search + " : " + e.getMessage());
+                } finally {
+                    refreshing.remove(search);
+                }
+            });
+        }
+        return entry.values;
+    }
+
+    private synchronized List<String> put(String search, List<String> values) {
+        final Entry entry = new Entry(System.currentTimeMillis(), Collections.unmodifiableList(
+                new ArrayList<>(values)));
+        entries().put(search, entry);
+        save();
+        return entry.values;
+    }
+
+    // Versions are read from maven-metadata.xml if the module is hosted in a Maven repository
+    private static List<String> fetchVersions(JkRepoSet repos, JkModuleId moduleId) {
+        final MavenRepoClient client = MavenRepoClient.of(JkResolutionParameters.of()
+                .setUpdatePolicy(JkResolutionParameters.JkUpdatePolicy.ALWAYS));
+        final Set<String> versions = new HashSet<>();
+        boolean listed = false;
+        for (final JkRepo repo : repos.getRepos()) {
+            if (!repo.acceptsGroup(moduleId.getGroup())) {
+                continue;
+            }
+            if (repo.isIvyRepo()) {
+                listed = true;
+                continue;
+            }
+            try {
+                versions.addAll(client.getVersions(repo, moduleId));
+            } catch (final IOException e) {
+                throw JkUtilsThrowable.unchecked(e);
+            }
+        }
+        if (listed || versions.isEmpty()) {
+            versions.addAll(JkInternalDependencyResolver.of(repos).searchVersions(moduleId));
+        }
+        return versions.stream()
+                .sorted(JkVersion.VERSION_COMPARATOR)
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            entries = load(file);
+        }
+        return entries;
+    }
+
+    private void save() {
+        final List<String> lines = new LinkedList<>();
+        entries.forEach((search, entry) -> lines.add(search + "\t" + entry.timestamp + "\t"
+                + String.join(" ", entry.values)));
+        try {
+            JkUtilsPath.createDirectories(file.getParent());
+            final Path temp = file.resolveSibling(file.getFileName() + "-" + UUID.randomUUID() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not save search index in " + file + " : " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Entry> load(Path file) {
+        final Map<String, Entry> result = new HashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        try {
+            for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                final String[] items = line.split("\t", -1);
+                if (items.length == 3) {
+                    final List<String> values = items[2].isEmpty() ? Collections.emptyList() :
+                            Collections.unmodifiableList(Arrays.asList(items[2].split(" ")));
+                    result.put(items[0], new Entry(Long.parseLong(items[1]), values));
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not read search index from " + file + " : " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static String describe(JkRepoSet repos) {
+        return repos.getRepos().stream()
+                .map(repo -> repo.getUrl() + " ivy=" + repo.isIvyRepo() + " groups=" + repo.getGroupPrefixes())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static final class Entry {
+
+        private final long timestamp;
+
+        private final List<String> values;
+
+        Entry(long timestamp, List<String> values) {
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+    }
+
+}
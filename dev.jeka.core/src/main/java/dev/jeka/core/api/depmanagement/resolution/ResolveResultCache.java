@@ -0,0 +1,267 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.depmanagement.resolution.JkResolvedDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Persists module resolve results in Jeka user home, so resolving again the same dependencies on the same
+ * repositories does not involve the dependency manager, nor any network access.
+ *
+ * Only results involving fixed versions exclusively (no dynamic version nor snapshot, either declared or found in
+ * transitive dependencies) are cached, as they can not change over time. A cached result is reused as long as all
+ * the files it refers to still exist.
+ */
+final class ResolveResultCache {
+
+    // Increment when the stored format or the key computation changes
+    private static final String FORMAT_VERSION = "4";
+
+    private ResolveResultCache() {
+    }
+
+    /**
+     * Returns the key identifying the resolution of the specified qualified dependencies or <code>null</code> if
+     * these dependencies are not eligible to caching.
+     */
+    static String key(JkVersionedModule moduleHolder, JkQualifiedDependencySet dependencies, JkRepoSet repos,
+                      JkResolutionParameters parameters) {
+        for (final JkQualifiedDependency qualifiedDependency : dependencies.getEntries()) {
+            if (!isFixed(qualifiedDependency.getModuleDependency().getVersion())) {
+                return null;
+            }
+        }
+        return JkInternalHttpDownloader.sha256(describe(moduleHolder, dependencies, repos, parameters));
+    }
+
+    /**
+     * Returns a text describing everything the resolution of the specified qualified dependencies depends on,
+     * whatever versions are fixed or not.
+     */
+    static String describe(JkVersionedModule moduleHolder, JkQualifiedDependencySet dependencies, JkRepoSet repos,
+                           JkResolutionParameters parameters) {
+        final List<String> lines = new LinkedList<>();
+        lines.add("format=" + FORMAT_VERSION);
+        lines.add("module=" + (moduleHolder == null ? "" : moduleHolder));
+        lines.add("conflictResolver=" + parameters.getConflictResolver());
+        lines.add("resolverEngine=" + parameters.getResolverEngine());
+        for (final JkRepo repo : repos.getRepos()) {
+            lines.add("repo=" + repo + " ivy=" + repo.ivyRepo + " " + repo.getIvyConfig().artifactPatterns()
+                    + repo.getIvyConfig().ivyPatterns()
+                    + (repo.getGroupPrefixes().isEmpty() ? "" : " groups=" + repo.getGroupPrefixes()));
+        }
+        for (final JkQualifiedDependency qualifiedDependency : dependencies.getEntries()) {
+            final JkModuleDependency dependency = qualifiedDependency.getModuleDependency();
+            final String artifacts = dependency.getArtifactSpecifications().stream()
+                    .map(spec -> spec.getClassifier() + "/" + spec.getType())
+                    .sorted()
+                    .collect(Collectors.joining(","));
+            final String exclusions = dependency.getExclusions().stream()
+                    .map(ResolveResultCache::toString)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+            lines.add("dependency=" + qualifiedDependency.getQualifier() + " " + dependency.getModuleId() + ":"
+                    + dependency.getVersion() + " transitivity=" + dependency.getTransitivity()
+                    + " artifacts=" + artifacts + " exclusions=" + exclusions);
+        }
+        dependencies.getGlobalExclusions().stream()
+                .map(ResolveResultCache::toString)
+                .sorted()
+                .forEach(exclusion -> lines.add("globalExclusion=" + exclusion));
+        dependencies.getVersionProvider().toMap().entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .sorted()
+                .forEach(entry -> lines.add("version=" + entry));
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Returns the cached result for the specified key or <code>null</code> if there is none or if files it
+     * refers to have been deleted.
+     */
+    static JkResolveResult get(String key) {
+        final Path file = file(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Entry entry;
+        try {
+            entry = JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read cached resolve result " + file + " : " + e.getMessage());
+            return null;
+        }
+        if (!entry.filesExist()) {
+            JkLog.trace("Files of cached resolve result " + file + " have been deleted.");
+            return null;
+        }
+        return JkResolveResult.of(entry.toNode(), JkResolveResult.JkErrorReport.allFine());
+    }
+
+    /**
+     * Stores the specified result, providing it is successful and does not involve any dynamic version.
+     */
+    static void put(String key, JkResolveResult resolveResult) {
+        if (resolveResult.getErrorReport().hasErrors() || !isFixed(resolveResult.getDependencyTree())) {
+            return;
+        }
+        final Path file = file(key);
+        JkUtilsPath.createDirectories(file.getParent());
+        final Path temp = file.resolveSibling(key + "-" + UUID.randomUUID() + ".tmp");
+        try {
+            JkUtilsIO.serialize(Entry.of(resolveResult.getDependencyTree()), temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not cache resolve result in " + file + " : " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (final IOException ioe) {
+                JkLog.trace("Can not delete " + temp);
+            }
+        }
+    }
+
+    private static Path file(String key) {
+        return JkLocator.getJekaUserHomeDir().resolve("cache/resolve-results").resolve(key + ".ser");
+    }
+
+    private static boolean isFixed(JkVersion version) {
+        return !version.isUnspecified() && !version.isDynamic() && !version.isSnapshot();
+    }
+
+    private static boolean isFixed(JkResolvedDependencyNode node) {
+        if (node.isModuleNode()) {
+            final JkModuleNodeInfo moduleNodeInfo = node.getModuleInfo();
+            if (!moduleNodeInfo.isTreeRoot() && !isFixed(moduleNodeInfo.getDeclaredVersion())) {
+                return false;
+            }
+            if (!moduleNodeInfo.isEvicted() && !moduleNodeInfo.isTreeRoot()
+                    && !isFixed(moduleNodeInfo.getResolvedVersion())) {
+                return false;
+            }
+        }
+        return node.getChildren().stream().allMatch(ResolveResultCache::isFixed);
+    }
+
+    private static String toString(JkDependencyExclusion exclusion) {
+        return exclusion.getModuleId() + "/" + exclusion.getClassifier() + "/" + exclusion.getType();
+    }
+
+    /*
+     * Module nodes of the tree, each shared node stored once. Children are stored before their parents, and refer
+     * to them by index, so the root comes last.
+     */
+    private static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<NodeRecord> nodes;
+
+        private Entry(List<NodeRecord> nodes) {
+            this.nodes = nodes;
+        }
+
+        static Entry of(JkResolvedDependencyNode tree) {
+            final List<NodeRecord> nodes = new ArrayList<>();
+            add(tree, nodes, new IdentityHashMap<>());
+            return new Entry(nodes);
+        }
+
+        private static int add(JkResolvedDependencyNode node, List<NodeRecord> nodes,
+                               Map<JkResolvedDependencyNode, Integer> indexes) {
+            final Integer index = indexes.get(node);
+            if (index != null) {
+                return index;
+            }
+            final List<JkResolvedDependencyNode> children = node.getChildren();
+            final int[] childIndexes = new int[children.size()];
+            for (int i = 0; i < childIndexes.length; i++) {
+                childIndexes[i] = add(children.get(i), nodes, indexes);
+            }
+            nodes.add(NodeRecord.of(node.getModuleInfo(), childIndexes));
+            indexes.put(node, nodes.size() - 1);
+            return nodes.size() - 1;
+        }
+
+        boolean filesExist() {
+            return nodes.stream().flatMap(node -> node.artifacts.stream()).allMatch(File::exists);
+        }
+
+        JkResolvedDependencyNode toNode() {
+            final JkResolvedDependencyNode[] result = new JkResolvedDependencyNode[nodes.size()];
+            final Map<String, JkModuleId> moduleIds = new HashMap<>();
+            for (int i = 0; i < result.length; i++) {
+                final NodeRecord record = nodes.get(i);
+                final List<JkResolvedDependencyNode> children = new ArrayList<>(record.children.length);
+                for (final int childIndex : record.children) {
+                    children.add(result[childIndex]);
+                }
+                result[i] = JkResolvedDependencyNode.ofModuleDep(record.toModuleNodeInfo(moduleIds), children);
+            }
+            return result[result.length - 1];
+        }
+    }
+
+    private static final class NodeRecord implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String moduleId;
+
+        private final String declaredVersion;
+
+        private final HashSet<String> declaredConfigurations;
+
+        private final HashSet<String> rootConfigurations;
+
+        private final String resolvedVersion;  // null if evicted
+
+        private final ArrayList<File> artifacts;
+
+        private final boolean treeRoot;
+
+        private final int[] children;
+
+        private NodeRecord(String moduleId, String declaredVersion, HashSet<String> declaredConfigurations,
+                           HashSet<String> rootConfigurations, String resolvedVersion, ArrayList<File> artifacts,
+                           boolean treeRoot, int[] children) {
+            this.moduleId = moduleId;
+            this.declaredVersion = declaredVersion;
+            this.declaredConfigurations = declaredConfigurations;
+            this.rootConfigurations = rootConfigurations;
+            this.resolvedVersion = resolvedVersion;
+            this.artifacts = artifacts;
+            this.treeRoot = treeRoot;
+            this.children = children;
+        }
+
+        static NodeRecord of(JkModuleNodeInfo info, int[] children) {
+            return new NodeRecord(info.getModuleId().toString(), info.getDeclaredVersion().getValue(),
+                    new HashSet<>(info.getDeclaredConfigurations()), new HashSet<>(info.getRootConfigurations()),
+                    info.isEvicted() ? null : info.getResolvedVersion().getValue(),
+                    info.getFiles().stream().map(Path::toFile).collect(Collectors.toCollection(ArrayList::new)),
+                    info.isTreeRoot(), children);
+        }
+
+        // Module ids are shared between nodes standing for the same module
+        JkModuleNodeInfo toModuleNodeInfo(Map<String, JkModuleId> moduleIds) {
+            return new JkModuleNodeInfo(moduleIds.computeIfAbsent(moduleId, JkModuleId::of),
+                    JkVersion.of(declaredVersion), declaredConfigurations, rootConfigurations,
+                    resolvedVersion == null ? null : JkVersion.of(resolvedVersion),
+                    artifacts.stream().map(File::toPath).collect(Collectors.toList()), treeRoot);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Keeps module resolve results in memory for the JVM lifetime, so identical requests issued by several projects of
+ * a build, or by IDE generators, are resolved only once. Unlike ResolveResultCache, results involving dynamic or
+ * snapshot versions are kept as well : they are not expected to change within a single build.
+ *
+ * Resolutions are single-flight : concurrent callers of a same request share one resolution. Only successful results
+ * are kept, so a failed resolution can be retried. A result whose files have been deleted since is dropped. As a
+ * daemon keeps the JVM alive between builds, it clears these results at each build.
+ */
+final class ResolveResultMemo {
+
+    private static final Map<String, CompletableFuture<JkResolveResult>> RESULTS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private ResolveResultMemo() {
+    }
+
+    static String key(JkVersionedModule moduleHolder, JkQualifiedDependencySet dependencies, JkRepoSet repos,
+                      JkResolutionParameters parameters) {
+        return ResolveResultCache.describe(moduleHolder, dependencies, repos, parameters)
+                + "\nupdatePolicy=" + parameters.getUpdatePolicy();
+    }
+
+    /**
+     * Returns the result memoized for the specified key, waiting for it if it is being resolved. If there is none,
+     * or if files it refers to have been deleted, returns the result of the specified resolution.
+     */
+    static JkResolveResult get(String key, Supplier<JkResolveResult> resolution) {
+        while (true) {
+            final CompletableFuture<JkResolveResult> created = new CompletableFuture<>();
+            final CompletableFuture<JkResolveResult> future = RESULTS.computeIfAbsent(key, k -> created);
+            if (future == created) {
+                MISSES.incrementAndGet();
+                return resolve(key, created, resolution);
+            }
+            final JkResolveResult result;
+            try {
+                result = future.join();
+            } catch (final CompletionException e) {
+                // Resolution failures are rethrown as is by the caller that has run the resolution
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw JkUtilsThrowable.unchecked(e.getCause(), e.getMessage());
+            }
+            if (result.getErrorReport().hasErrors()) {
+                return result;  // Shares the failure of the resolution it has waited for
+            }
+            if (result.getFiles().getEntries().stream().allMatch(Files::exists)) {
+                HITS.incrementAndGet();
+                JkLog.trace("Reuse resolve result computed earlier in this build.");
+                return result;
+            }
+            RESULTS.remove(key, future);
+        }
+    }
+
+    private static JkResolveResult resolve(String key, CompletableFuture<JkResolveResult> future,
+                                           Supplier<JkResolveResult> resolution) {
+        final JkResolveResult result;
+        try {
+            result = resolution.get();
+        } catch (final RuntimeException | Error e) {
+            RESULTS.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        if (result.getErrorReport().hasErrors()) {
+            RESULTS.remove(key, future);
+        }
+        future.complete(result);
+        return result;
+    }
+
+    static long hits() {
+        return HITS.get();
+    }
+
+    static long misses() {
+        return MISSES.get();
+    }
+
+    static void clear() {
+        RESULTS.clear();
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+}
@@ -8,7 +8,9 @@ import java.util.Set;
 import java.util.function.Predicate;
 
 /**
- * Not part of public api
+ * Not part of public api. <p>
+ * Queries are answered from a scan session : the classpath is scanned once and the result is reused by
+ * subsequent queries until the scanned classpath changes (entries added to the class loaders or files modified).
  */
 public interface JkInternalClasspathScanner {
 
@@ -23,7 +25,16 @@ public interface JkInternalClasspathScanner {
         return JkInternalClassloader.ofMainEmbeddedLibs().createCrossClassloaderProxy(JkInternalClasspathScanner.class, IMPL_CLASS, "of");
     }
 
-    Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate);
+    default Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate) {
+        return loadClassesHavingSimpleNameMatching(predicate, classpathElement -> true);
+    }
+
+    /**
+     * Same as {@link #loadClassesHavingSimpleNameMatching(Predicate)} but scanning only the classpath elements
+     * (jar or directory path) accepted by the specified filter.
+     */
+    Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate,
+                                                      Predicate<String> classpathElementFilter);
 
     List<String> findClassesHavingMainMethod(ClassLoader extraCclassLoader);
 
@@ -38,4 +49,9 @@ public interface JkInternalClasspathScanner {
                                                 Predicate<List<String>> annotationPredicate);
 
     JkPathSequence getClasspath(ClassLoader classLoader);
+
+    /**
+     * Releases the scan sessions kept so far. Next queries will scan the classpath again.
+     */
+    void closeScanSessions();
 }
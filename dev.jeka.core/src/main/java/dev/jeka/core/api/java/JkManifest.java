@@ -7,6 +7,7 @@ import dev.jeka.core.api.utils.JkUtilsThrowable;
 
 import java.io.*;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -147,8 +148,12 @@ public final class JkManifest<T> {
      * Adds the main class entry by auto-detecting the class holding the main method.
      */
     public JkManifest<T> addAutodetectMain(Path classDir) {
-        ClassLoader classLoader = JkUrlClassLoader.of(classDir).get();
-        List<String> classes = JkInternalClasspathScanner.INSTANCE.findClassesHavingMainMethod(classLoader);
+        final List<String> classes;
+        try (URLClassLoader classLoader = JkUrlClassLoader.of(classDir).get()) {
+            classes = JkInternalClasspathScanner.INSTANCE.findClassesHavingMainMethod(classLoader);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
         if (!classes.isEmpty()) {
             this.addMainClass(classes.get(0));
         } else {
@@ -6,31 +6,45 @@ import dev.jeka.core.api.utils.JkUtilsPath;
 import io.github.classgraph.*;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
 
+    // Scans kept for the current context class loader and for class loaders of its chain explicitly mentioned in
+    // queries. Sessions reference their class loader, so they are kept only while it belongs to the context chain.
+    private ScanSession contextSession;
+
+    private final Map<ClassLoader, ScanSession> classLoaderSessions = new HashMap<>();
+
     static ClassGraphClasspathScanner of() {
         return new ClassGraphClasspathScanner();
     }
 
     @Override
-    public Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate) {
-        return loadClassesMatching(hasSimpleName(predicate), false);
+    public Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate,
+                                                             Predicate<String> classpathElementFilter) {
+        return loadClassesMatching(hasSimpleName(predicate), classpathElementFilter);
     }
 
     @Override
     public <T> Class<T> loadClassesHavingNameOrSimpleName(String name, Class<T> superClass) {
-        for (Class<?> clazz : loadClassesMatching(classInfo -> classInfo.getName().equals(name), true)) {
-            if (superClass.isAssignableFrom(clazz)) {
-                return (Class<T>) clazz;
+        final List<ClassInfo> simpleNameMatches = new LinkedList<>();
+        for (final ClassInfo classInfo : contextScan().getAllClasses()) {
+            if (classInfo.getName().equals(name)) {
+                final Class<?> clazz = classInfo.loadClass();
+                if (superClass.isAssignableFrom(clazz)) {
+                    return (Class<T>) clazz;
+                }
+            } else if (classInfo.getSimpleName().equals(name)) {
+                simpleNameMatches.add(classInfo);
             }
         }
-        for (Class<?> clazz : loadClassesMatching(classInfo -> classInfo.getSimpleName().equals(name), true)) {
+        for (final ClassInfo classInfo : simpleNameMatches) {
+            final Class<?> clazz = classInfo.loadClass();
             if (superClass.isAssignableFrom(clazz)) {
                 return (Class<T>) clazz;
             }
@@ -43,20 +57,30 @@ class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
 
     }
 
-    private Set<Class<?>> loadClassesMatching(Predicate<ClassInfo> predicate, boolean ignoreClassVisibility) {
-        ClassGraph classGraph = new ClassGraph()
-                .ignoreClassVisibility()
-                .enableClassInfo()
-                .blacklistPackages("java", "org.apache.ivy", "org.bouncycastle", "nonapi.io.github.classgraph",
-                        "org.commonmark", "io.github.classgraph");
-        if (ignoreClassVisibility) {
-            classGraph = classGraph.ignoreClassVisibility();
-        }
-        final ScanResult scanResult = classGraph.scan();
+    /*
+     * If the current classpath has already been scanned, classes are picked from this scan. Otherwise, only the
+     * accepted classpath elements are scanned and the result is not kept, as it does not cover the whole classpath.
+     */
+    private synchronized Set<Class<?>> loadClassesMatching(Predicate<ClassInfo> predicate,
+                                                           Predicate<String> classpathElementFilter) {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         final Set<Class<?>> result = new HashSet<>();
-        for (final ClassInfo classInfo : scanResult.getAllClasses()) {
-            if (predicate.test(classInfo)) {
-                result.add(classInfo.loadClass());
+        if (contextSession != null && contextSession.isValidFor(classLoader)) {
+            for (final ClassInfo classInfo : contextSession.scanResult.getAllClasses()) {
+                final File element = classInfo.getClasspathElementFile();
+                if ((element == null || classpathElementFilter.test(element.getPath())) && predicate.test(classInfo)) {
+                    result.add(classInfo.loadClass());
+                }
+            }
+            return result;
+        }
+        try (ScanResult scanResult = contextClassGraph()
+                .filterClasspathElements(classpathElementFilter::test)
+                .scan()) {
+            for (final ClassInfo classInfo : scanResult.getAllClasses()) {
+                if (predicate.test(classInfo)) {
+                    result.add(classInfo.loadClass());
+                }
             }
         }
         return result;
@@ -64,12 +88,10 @@ class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
 
     @Override
     public List<String> findClassesHavingMainMethod(ClassLoader classloader) {
-        final ClassGraph classGraph = new ClassGraph()
-                .enableClassInfo()
-                .enableMethodInfo()
-                .overrideClassLoaders(classloader)
-                .ignoreParentClassLoaders();
-        final ScanResult scanResult = classGraph.scan();
+        return withClassLoaderScan(classloader, ClassGraphClasspathScanner::classesHavingMainMethod);
+    }
+
+    private static List<String> classesHavingMainMethod(ScanResult scanResult) {
         final List<String> result = new LinkedList<>();
         for (final ClassInfo classInfo : scanResult.getAllClasses()) {
             MethodInfoList methodInfoList = classInfo.getMethodInfo("main");
@@ -91,12 +113,12 @@ class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
     @Override
     public List<String> findClassesMatchingAnnotations(ClassLoader classloader,
                                                        Predicate<List<String>> annotationPredicate) {
-        final ClassGraph classGraph = new ClassGraph()
-                .enableClassInfo()
-                .overrideClassLoaders(classloader)
-                .enableAnnotationInfo()
-                .ignoreParentClassLoaders();
-        final ScanResult scanResult = classGraph.scan();
+        return withClassLoaderScan(classloader, scanResult -> classesMatchingAnnotations(scanResult,
+                annotationPredicate));
+    }
+
+    private static List<String> classesMatchingAnnotations(ScanResult scanResult,
+                                                           Predicate<List<String>> annotationPredicate) {
         final List<String> result = new LinkedList<>();
         for (final ClassInfo classInfo : scanResult.getAllClasses()) {
             AnnotationInfoList annotationInfoList = classInfo.getAnnotationInfo();
@@ -108,10 +130,121 @@ class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
         return result;
     }
 
+    @Override
     public JkPathSequence getClasspath(ClassLoader classLoader) {
-        List<File> files = new ClassGraph().scan().getClasspathFiles();
+        final List<File> files = new ClassGraph().getClasspathFiles();
         return JkPathSequence.of(JkUtilsPath.toPaths(files));
     }
 
+    @Override
+    public synchronized void closeScanSessions() {
+        if (contextSession != null) {
+            contextSession.scanResult.close();
+            contextSession = null;
+        }
+        classLoaderSessions.values().forEach(session -> session.scanResult.close());
+        classLoaderSessions.clear();
+    }
+
+    private synchronized ScanResult contextScan() {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (contextSession == null || !contextSession.isValidFor(classLoader)) {
+            if (contextSession != null) {
+                contextSession.scanResult.close();
+            }
+            contextSession = new ScanSession(classLoader, contextClassGraph().scan());
+        }
+        return contextSession.scanResult;
+    }
+
+    /*
+     * Class loaders out of the context chain are generally created for a single query (e.g. to find the main class
+     * of a compiled project), so their scan is closed right away rather than keeping them reachable.
+     */
+    private synchronized <T> T withClassLoaderScan(ClassLoader classLoader, Function<ScanResult, T> function) {
+        final Set<ClassLoader> contextChain = contextChain();
+        classLoaderSessions.entrySet().removeIf(entry -> {
+            if (contextChain.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().scanResult.close();
+            return true;
+        });
+        if (!contextChain.contains(classLoader)) {
+            try (ScanResult scanResult = classLoaderClassGraph(classLoader).scan()) {
+                return function.apply(scanResult);
+            }
+        }
+        ScanSession session = classLoaderSessions.get(classLoader);
+        if (session == null || !session.isValidFor(classLoader)) {
+            if (session != null) {
+                session.scanResult.close();
+            }
+            session = new ScanSession(classLoader, classLoaderClassGraph(classLoader).scan());
+            classLoaderSessions.put(classLoader, session);
+        }
+        return function.apply(session.scanResult);
+    }
+
+    private static Set<ClassLoader> contextChain() {
+        final Set<ClassLoader> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ClassLoader current = Thread.currentThread().getContextClassLoader(); current != null;
+                current = current.getParent()) {
+            result.add(current);
+        }
+        return result;
+    }
+
+    private static ClassGraph classLoaderClassGraph(ClassLoader classLoader) {
+        return new ClassGraph()
+                .enableClassInfo()
+                .enableMethodInfo()
+                .enableAnnotationInfo()
+                .overrideClassLoaders(classLoader)
+                .ignoreParentClassLoaders();
+    }
+
+    private static ClassGraph contextClassGraph() {
+        return new ClassGraph()
+                .ignoreClassVisibility()
+                .enableClassInfo()
+                .blacklistPackages("java", "org.apache.ivy", "org.bouncycastle", "nonapi.io.github.classgraph",
+                        "org.commonmark", "io.github.classgraph");
+    }
+
+    /*
+     * A scan result along with the state of the class loader chain it has been computed for. It stays valid
+     * as long as no entry is added to these class loaders and scanned files are not modified.
+     */
+    private static final class ScanSession {
+
+        private final List<Object> classpathKey;
+
+        private final ScanResult scanResult;
+
+        ScanSession(ClassLoader classLoader, ScanResult scanResult) {
+            this.classpathKey = classpathKey(classLoader);
+            this.scanResult = scanResult;
+        }
+
+        boolean isValidFor(ClassLoader classLoader) {
+            return classpathKey.equals(classpathKey(classLoader)) && !scanResult.classpathContentsModifiedSinceScan();
+        }
+
+        private static List<Object> classpathKey(ClassLoader classLoader) {
+            final List<Object> result = new ArrayList<>();
+            for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+                result.add(System.identityHashCode(current));
+                if (current instanceof URLClassLoader) {
+                    for (final URL url : ((URLClassLoader) current).getURLs()) {
+                        result.add(url.toString());
+                    }
+                }
+            }
+            result.add(System.getProperty("java.class.path"));
+            return result;
+        }
+
+    }
 
 }
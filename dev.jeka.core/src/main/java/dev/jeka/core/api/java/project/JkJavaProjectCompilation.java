@@ -1,6 +1,7 @@
 package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
 import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
 import dev.jeka.core.api.file.JkResourceProcessor;
 import dev.jeka.core.api.function.JkConsumers;
@@ -213,7 +214,8 @@ public class JkJavaProjectCompilation<T> {
     }
 
     public JkResolveResult resolveDependencies() {
-        return construction.getDependencyResolver().resolve(getDependencies());
+        return construction.resolveDependencies(PRODUCTION_PURPOSE.equals(purpose) ?
+                JkQualifiedDependencySet.COMPILE_SCOPE : JkQualifiedDependencySet.TEST_SCOPE);
     }
 
     public JkDependencySet getDependencies() {
@@ -242,11 +244,10 @@ public class JkJavaProjectCompilation<T> {
     }
 
     private JkJavaCompileSpec computeTestCompileSpec(JkJavaProjectCompilation prodStep) {
-        JkDependencySet dependencies = getDependencies();
         return JkJavaCompileSpec.of()
                 .setSourceAndTargetVersion(construction.getJavaVersion())
                 .setEncoding(construction.getSourceEncoding())
-                .setClasspath(construction.getDependencyResolver().resolve(dependencies).getFiles()
+                .setClasspath(resolveDependencies().getFiles()
                             .andPrepend(prodStep.layout.resolveClassDir()))
                 .addSources(layout.resolveSources().and(layout.resolveGeneratedSourceDir()))
                 .addOptions(compileOptions)
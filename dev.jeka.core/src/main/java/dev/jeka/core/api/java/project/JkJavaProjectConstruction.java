@@ -1,10 +1,10 @@
 package dev.jeka.core.api.java.project;
 
-import dev.jeka.core.api.depmanagement.JkDependencySet;
-import dev.jeka.core.api.depmanagement.JkModuleId;
-import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.*;
 import dev.jeka.core.api.depmanagement.artifact.JkArtifactId;
 import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.file.JkPathTreeSet;
@@ -15,6 +15,7 @@ import dev.jeka.core.api.java.JkManifest;
 
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 
@@ -60,6 +61,11 @@ public class JkJavaProjectConstruction {
     private JkPathTreeSet extraFilesToIncludeInFatJar = JkPathTreeSet.ofEmpty();
 
     private UnaryOperator<JkDependencySet> dependencySetModifier = x -> x;
+
+    // Compile, runtime and test resolve results, computed at once and kept as long as the key does not change
+    private Map<String, JkResolveResult> scopedResolveResults;
+
+    private List<Object> scopedResolveKey;
     
     /**
      * For Parent chaining
@@ -209,8 +215,34 @@ public class JkJavaProjectConstruction {
     }
 
     public JkPathSequence fetchRuntimeDependencies() {
-        return dependencyResolver.resolve(getRuntimeDependencies()
-                .normalised(project.getDuplicateConflictStrategy())).getFiles();
+        return resolveDependencies(JkQualifiedDependencySet.RUNTIME_SCOPE).getFiles();
+    }
+
+    /*
+     * Returns the resolve result for the specified scope, among compile, runtime and test. The three scopes are
+     * resolved together against a single dependency graph, and the results are reused until dependencies,
+     * repositories, module holder or resolution parameters change.
+     */
+    JkResolveResult resolveDependencies(String scope) {
+        final JkVersionedModule.ConflictStrategy strategy = project.getDuplicateConflictStrategy();
+        final Map<String, JkDependencySet> scopedDependencies = new LinkedHashMap<>();
+        scopedDependencies.put(JkQualifiedDependencySet.COMPILE_SCOPE, compilation.getDependencies()
+                .normalised(strategy));
+        scopedDependencies.put(JkQualifiedDependencySet.RUNTIME_SCOPE, getRuntimeDependencies().normalised(strategy));
+        scopedDependencies.put(JkQualifiedDependencySet.TEST_SCOPE, testing.getTestDependencies());
+        final List<Object> key = new LinkedList<>();
+        scopedDependencies.values().forEach(dependencies -> key.add(Arrays.asList(dependencies.getEntries(),
+                dependencies.getGlobalExclusions(), dependencies.getVersionProvider().toMap())));
+        key.add(dependencyResolver.getRepos().getRepos());
+        key.add(dependencyResolver.getModuleHolder());
+        final JkResolutionParameters<?> parameters = dependencyResolver.getParams();
+        key.add(Arrays.asList(parameters.getConflictResolver(), parameters.getUpdatePolicy(),
+                parameters.getResolverEngine(), parameters.isFailOnDependencyResolutionError()));
+        if (!key.equals(scopedResolveKey)) {
+            scopedResolveResults = dependencyResolver.resolve(scopedDependencies);
+            scopedResolveKey = key;
+        }
+        return scopedResolveResults.get(scope);
     }
 
 
@@ -49,8 +49,7 @@ public class JkJavaProjectDocumentation {
     public void run() {
         JkJavaProjectConstruction construction = project.getConstruction();
         JkJavaProjectCompilation compilation = construction.getCompilation();
-        Iterable<Path> classpath = construction.getDependencyResolver()
-                .resolve(compilation.getDependencies().normalised(project.getDuplicateConflictStrategy())).getFiles();
+        Iterable<Path> classpath = compilation.resolveDependencies().getFiles();
         Path dir = project.getOutputDir().resolve(javadocDir);
         JkPathTreeSet sources = compilation.getLayout().resolveSources();
         javadocProcessor.make(classpath, sources, dir);
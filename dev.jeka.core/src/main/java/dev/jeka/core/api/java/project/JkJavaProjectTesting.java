@@ -1,7 +1,7 @@
 package dev.jeka.core.api.java.project;
 
-import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
 import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
@@ -90,15 +90,20 @@ public class JkJavaProjectTesting {
      * dependencies involved in TEST scope.
      */
     public JkPathSequence getTestClasspath() {
-        JkDependencyResolver resolver = construction.getDependencyResolver();
         JkJavaProjectCompilation prodCompilation = construction.getCompilation();
-        JkDependencySet dependencies = prodCompilation.getDependencies()
+        return JkPathSequence.of(compilation.getLayout().resolveClassDir())
+                .and(prodCompilation.getLayout().resolveClassDir())
+                .and(construction.resolveDependencies(JkQualifiedDependencySet.TEST_SCOPE).getFiles());
+    }
+
+    /*
+     * Dependencies involved in TEST scope.
+     */
+    JkDependencySet getTestDependencies() {
+        return construction.getCompilation().getDependencies()
                 .and(compilation.getDependencies())
                 .and(construction.getRuntimeDependencies())
                 .normalised(construction.getProject().getDuplicateConflictStrategy());
-        return JkPathSequence.of(compilation.getLayout().resolveClassDir())
-                .and(prodCompilation.getLayout().resolveClassDir())
-                .and(resolver.resolve(dependencies.normalised(construction.getProject().getDuplicateConflictStrategy())).getFiles());
     }
 
     /**
@@ -60,6 +60,9 @@ public final class JkLog implements Serializable {
 
     private static AtomicInteger currentNestedTaskLevel = new AtomicInteger(0);
 
+    // Nesting level of threads logging their tasks independently of others
+    private static final ThreadLocal<AtomicInteger> THREAD_NESTED_TASK_LEVEL = new ThreadLocal<>();
+
     private static final ThreadLocal<LinkedList<Long>> START_TIMES = new ThreadLocal<>();
 
     private static LinkedList<Long> getStartTimes() {
@@ -99,8 +102,46 @@ public final class JkLog implements Serializable {
         verbosity = verbosityArg;
     }
 
+    /**
+     * Restores the initial state of the log : no consumer, normal verbosity and no pending task. This is meant
+     * for processes running Jeka several times in the same JVM.
+     */
+    public static void reset() {
+        if (consumer != null) {
+            consumer.restore();
+        }
+        consumer = null;
+        stream = JkUtilsIO.nopPrintStream();
+        errorStream = JkUtilsIO.nopOuputStream();
+        verbosity = Verbosity.NORMAL;
+        currentNestedTaskLevel.set(0);
+        THREAD_NESTED_TASK_LEVEL.remove();
+        getStartTimes().clear();
+    }
+
     public static int getCurrentNestedLevel() {
-        return currentNestedTaskLevel.get();
+        return nestedTaskLevel().get();
+    }
+
+    /**
+     * Makes tasks logged from the current thread nest independently of the ones logged from other threads,
+     * starting at the specified level. This is meant for worker threads logging tasks concurrently : each of
+     * them gets a consistent nesting. Invoke {@link #shareNesting()} when the thread is done.
+     */
+    public static void isolateNesting(int startLevel) {
+        THREAD_NESTED_TASK_LEVEL.set(new AtomicInteger(startLevel));
+    }
+
+    /**
+     * Makes tasks logged from the current thread nest along the ones of other threads again.
+     */
+    public static void shareNesting() {
+        THREAD_NESTED_TASK_LEVEL.remove();
+    }
+
+    private static AtomicInteger nestedTaskLevel() {
+        final AtomicInteger threadLevel = THREAD_NESTED_TASK_LEVEL.get();
+        return threadLevel != null ? threadLevel : currentNestedTaskLevel;
     }
 
     public static OutputStream getOutputStream() {
@@ -149,9 +190,11 @@ public final class JkLog implements Serializable {
      * Logs the start of the current task. Subsequent logs will be nested in this task log until #endTask is invoked.
      */
     public static void startTask(String message, Object ... params) {
-        consume(JkLogEvent.ofRegular(Type.START_TASK, String.format(message, params)));
+        final String formattedMessage = String.format(message, params);
+        JkTraceRecorder.begin(formattedMessage);
+        consume(JkLogEvent.ofRegular(Type.START_TASK, formattedMessage));
         if (shouldPrint(Type.START_TASK)) {
-            currentNestedTaskLevel.incrementAndGet();
+            nestedTaskLevel().incrementAndGet();
             getStartTimes().addLast(System.nanoTime());
         }
     }
@@ -162,8 +205,9 @@ public final class JkLog implements Serializable {
      * the duration taken to complete the current task.
      */
     public static void endTask(String message) {
+        JkTraceRecorder.end();
         if (shouldPrint(Type.END_TASK)) {
-            currentNestedTaskLevel.decrementAndGet();
+            nestedTaskLevel().decrementAndGet();
             Long startTime = getStartTimes().pollLast();
             if (startTime == null) {
                 for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
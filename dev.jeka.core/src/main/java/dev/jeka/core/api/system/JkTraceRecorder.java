@@ -0,0 +1,158 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Records timed sections of a Jeka run, as tasks logged with {@link JkLog#startTask(String, Object...)} and
+ * {@link JkLog#endTask()}, along with their thread and nanosecond timestamps. Recorded sections can be
+ * written in Chrome trace-event format, readable by Perfetto or <i>about:tracing</i> in Chrome.<p>
+ *
+ * Recording is off by default : sections are only recorded between {@link #start()} and {@link #stop(Path)}.
+ */
+public final class JkTraceRecorder {
+
+    private static volatile boolean recording;
+
+    private static volatile long origin;
+
+    private static final Queue<Event> EVENTS = new ConcurrentLinkedQueue<>();
+
+    private JkTraceRecorder() {
+    }
+
+    /**
+     * Starts recording sections, discarding the ones recorded previously.
+     */
+    public static void start() {
+        EVENTS.clear();
+        origin = System.nanoTime();
+        recording = true;
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Marks the beginning of a section on the current thread. Each call must be followed by a call
+     * to {@link #end()} on the same thread.
+     */
+    public static void begin(String name) {
+        if (recording) {
+            EVENTS.add(new Event('B', name));
+        }
+    }
+
+    /**
+     * Marks the end of the last section begun on the current thread.
+     */
+    public static void end() {
+        if (recording) {
+            EVENTS.add(new Event('E', null));
+        }
+    }
+
+    /**
+     * Runs the specified supplier within a section having the specified name.
+     */
+    public static <T> T section(String name, Supplier<T> supplier) {
+        begin(name);
+        try {
+            return supplier.get();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Same as {@link #section(String, Supplier)} for code returning no result.
+     */
+    public static void section(String name, Runnable runnable) {
+        section(name, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Stops recording and writes the recorded sections in the specified file using Chrome trace-event format.
+     */
+    public static void stop(Path file) {
+        recording = false;
+        final StringBuilder sb = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        final Map<Long, String> threadNames = new LinkedHashMap<>();
+        boolean first = true;
+        for (final Event event : EVENTS) {
+            threadNames.putIfAbsent(event.threadId, event.threadName);
+            if (!first) {
+                sb.append(",\n");
+            }
+            first = false;
+            sb.append("{\"ph\":\"").append(event.phase).append("\",\"pid\":1,\"tid\":").append(event.threadId)
+                    .append(",\"ts\":").append(String.format(Locale.ROOT, "%.3f",
+                            (event.nanoTime - origin) / 1000d));
+            if (event.name != null) {
+                sb.append(",\"cat\":\"jeka\",\"name\":\"").append(escape(event.name)).append('"');
+            }
+            sb.append('}');
+        }
+        for (final Map.Entry<Long, String> entry : threadNames.entrySet()) {
+            if (!first) {
+                sb.append(",\n");
+            }
+            first = false;
+            sb.append("{\"ph\":\"M\",\"pid\":1,\"tid\":").append(entry.getKey())
+                    .append(",\"name\":\"thread_name\",\"args\":{\"name\":\"").append(escape(entry.getValue()))
+                    .append("\"}}");
+        }
+        sb.append("\n]}\n");
+        EVENTS.clear();
+        if (file.getParent() != null) {
+            JkUtilsPath.createDirectories(file.getParent());
+        }
+        JkUtilsPath.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String value) {
+        final StringBuilder sb = new StringBuilder();
+        for (final char c : value.trim().toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Event {
+
+        private final char phase;
+
+        private final String name;
+
+        private final long nanoTime = System.nanoTime();
+
+        private final long threadId = Thread.currentThread().getId();
+
+        private final String threadName = Thread.currentThread().getName();
+
+        Event(char phase, String name) {
+            this.phase = phase;
+            this.name = name;
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.system.JkProcess;
+import dev.jeka.core.api.utils.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Creates a Class Data Sharing archive containing the classes loaded by a run of Jeka, so next launches map them
+ * from the archive instead of loading, parsing and verifying them again. The run is a child JVM launched as the
+ * current one was, with the same arguments. <p>
+ *
+ * The JVM warns at each launch when given an archive that does not match its build or classpath, so the archive
+ * name holds the Jeka version and the JDK version, as read from the JDK <i>release</i> file. Launch scripts compute
+ * the same name and pass the archive to the JVM only if it exists and the JDK is 13 or later. Upgrading Jeka or the
+ * JDK requires creating the archive again.
+ */
+final class CdsArchive {
+
+    // Keep in sync with jeka and jekaw scripts
+    private static final String FILE_NAME_PREFIX = "jeka-";
+
+    private static final String FILE_NAME_SUFFIX = ".jsa";
+
+    // Written by the distribution build next to the Jeka jar, read by jeka scripts
+    private static final String VERSION_FILE_NAME = "version.txt";
+
+    private static final String JAVA_VERSION_RELEASE_KEY = "JAVA_VERSION";
+
+    static final String SETUP_NAME = "cds";
+
+    private static final int MIN_JAVA_VERSION = 13;  // Dynamic archives need JDK 13
+
+    private static final String BOOTER_CLASS_NAME = "dev.jeka.core.wrapper.Booter";
+
+    // Set by dev.jeka.core.wrapper.Booter to the dir holding jekaw script, that is its first argument
+    private static final String WRAPPER_DIR_PROP_NAME = "jeka.wrapper.dir";
+
+    // Archive and debug options of the current JVM must not be passed to the recording one
+    private static final List<String> EXCLUDED_JVM_ARG_PREFIXES = Arrays.asList("-XX:SharedArchiveFile",
+            "-XX:ArchiveClassesAtExit", "-Xshare", "-XX:+UnlockDiagnosticVMOptions", "-agentlib:jdwp", "-Xrunjdwp");
+
+    private CdsArchive() {
+    }
+
+    /**
+     * Re-runs Jeka with the specified arguments, minus the ones requesting the archive creation, and dumps the
+     * loaded classes in the archive of the specified project.
+     */
+    static void create(Path projectDir, String[] args) {
+        if (JkUtilsJdk.runningMajorVersion() < MIN_JAVA_VERSION) {
+            throw new JkException("Class Data Sharing archive creation requires Java %s or later. Current is %s.",
+                    MIN_JAVA_VERSION, System.getProperty("java.version"));
+        }
+        final String launcherClassName = launcherClassName();
+        if (!BOOTER_CLASS_NAME.equals(launcherClassName) && !Main.class.getName().equals(launcherClassName)) {
+            throw new JkException("Class Data Sharing archive can only be created when Jeka is launched "
+                    + "from jeka or jekaw scripts (current launcher is %s). If Jeka daemon is enabled, "
+                    + "disable it by setting JEKA_DAEMON environment variable to false.", launcherClassName);
+        }
+        final String fileName = FILE_NAME_PREFIX + jekaVersion(launcherClassName, projectDir) + "-" + javaVersion()
+                + FILE_NAME_SUFFIX;
+        final Path archive = projectDir.resolve(JkConstants.WORK_PATH).resolve(fileName);
+        final Path tempArchive = archive.resolveSibling(fileName + ".tmp");
+        JkUtilsPath.createDirectories(archive.getParent());
+        JkUtilsPath.deleteIfExists(tempArchive);
+        final List<String> params = new LinkedList<>();
+        for (final String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (EXCLUDED_JVM_ARG_PREFIXES.stream().noneMatch(jvmArg::startsWith)) {
+                params.add(jvmArg);
+            }
+        }
+        params.add("-XX:ArchiveClassesAtExit=" + tempArchive);
+        params.add("-Xlog:cds=off,cds+dynamic=off");  // Dump lists classes it can not archive : too noisy
+        params.add("-cp");
+        params.add(System.getProperty("java.class.path"));
+        params.add(launcherClassName);
+        if (BOOTER_CLASS_NAME.equals(launcherClassName)) {
+            params.add(System.getProperty(WRAPPER_DIR_PROP_NAME, projectDir.toString()));
+        }
+        for (final String arg : args) {
+            if (!isSetupArg(arg)) {
+                params.add(arg);
+            }
+        }
+        JkLog.info("Run Jeka to record loaded classes ...");
+        final int exitCode = JkProcess.of(JkUtilsJdk.javaHome().resolve("bin").resolve("java").toString(),
+                params.toArray(new String[0]))
+                .withWorkingDir(projectDir)
+                .withLogCommand(JkLog.isVerbose())
+                .runSync();
+        if (exitCode != 0 || !Files.exists(tempArchive)) {
+            JkUtilsPath.deleteIfExists(tempArchive);
+            throw new JkException("Jeka run has failed (exit code %s) so no Class Data Sharing archive has been "
+                    + "created. Check that Jeka runs properly with arguments %s.", exitCode, params);
+        }
+        JkUtilsPath.deleteIfExists(archive);  // The JVM creates archives as read-only files
+        try {
+            Files.move(tempArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        JkLog.info("Class Data Sharing archive created at %s. Next Jeka launches on this project will use it "
+                + "as long as Jeka version and JDK remain the same.", archive);
+    }
+
+    /*
+     * Version read by the launch script : the one mentioned in the wrapper properties for jekaw, the one of the
+     * distribution for jeka.
+     */
+    private static String jekaVersion(String launcherClassName, Path projectDir) {
+        final String version;
+        if (BOOTER_CLASS_NAME.equals(launcherClassName)) {
+            final Path wrapperDir = Paths.get(System.getProperty(WRAPPER_DIR_PROP_NAME, projectDir.toString()));
+            final Path propFile = wrapperDir.resolve("jeka/wrapper/jeka.properties");
+            version = Files.exists(propFile) ? JkUtilsFile.readPropertyFileAsMap(propFile).get("jeka.version") : null;
+        } else {
+            final Path versionFile = JkLocator.getJekaHomeDir().resolve(VERSION_FILE_NAME);
+            version = Files.exists(versionFile) ? new String(JkUtilsPath.readAllBytes(versionFile),
+                    StandardCharsets.UTF_8) : null;
+        }
+        if (JkUtilsString.isBlank(version)) {
+            throw new JkException("Can not determine Jeka version to name the Class Data Sharing archive. "
+                    + "Use a Jeka distribution or a wrapper mentioning jeka.version.");
+        }
+        return version.trim();
+    }
+
+    private static String javaVersion() {
+        final Path releaseFile = JkUtilsJdk.javaHome().resolve("release");
+        if (Files.exists(releaseFile)) {
+            final String value = JkUtilsFile.readPropertyFileAsMap(releaseFile).get(JAVA_VERSION_RELEASE_KEY);
+            if (value != null) {
+                return value.trim().replace("\"", "");
+            }
+        }
+        throw new JkException("No %s entry found in %s, so the Class Data Sharing archive could not be picked "
+                + "by launch scripts.", JAVA_VERSION_RELEASE_KEY, releaseFile);
+    }
+
+    private static boolean isSetupArg(String arg) {
+        for (final String name : new String[] {"-JekaSetup", "-JKS"}) {
+            if (arg.equals(name) || arg.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 'sun.java.command' holds the main class followed by program arguments
+    private static String launcherClassName() {
+        final String command = System.getProperty("sun.java.command", Main.class.getName()).trim();
+        final int spaceIndex = command.indexOf(' ');
+        return spaceIndex < 0 ? command : command.substring(0, spaceIndex);
+    }
+
+}
@@ -0,0 +1,178 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal reader of class files, extracting only what is needed to track dependencies between def sources
+ * or to index plugins : class name, access flags, super class, source file name, names of the classes
+ * referenced in the constant pool and whether the class declares compile-time constants.
+ */
+final class ClassFileInfo {
+
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([\\w/$]+);");
+
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    final String className;
+
+    final int accessFlags;
+
+    final String superClassName;
+
+    final String sourceFileName;
+
+    final Set<String> referencedClassNames;
+
+    // Compile-time constants are inlined in classes reading them, so these ones do not refer to this class
+    final boolean declaresConstants;
+
+    private ClassFileInfo(String className, int accessFlags, String superClassName, String sourceFileName,
+                          Set<String> referencedClassNames, boolean declaresConstants) {
+        this.className = className;
+        this.accessFlags = accessFlags;
+        this.superClassName = superClassName;
+        this.sourceFileName = sourceFileName;
+        this.referencedClassNames = referencedClassNames;
+        this.declaresConstants = declaresConstants;
+    }
+
+    boolean isConcrete() {
+        return (accessFlags & (ACC_ABSTRACT | ACC_INTERFACE)) == 0;
+    }
+
+    /**
+     * Returns the path, relative to the source root, of the source file this class has been compiled from.
+     */
+    String sourcePath() {
+        final String packagePath = className.contains("/") ? JkUtilsString.substringBeforeLast(className, "/") + "/"
+                : "";
+        if (sourceFileName != null) {
+            return packagePath + sourceFileName;
+        }
+        final String simpleName = className.contains("/") ? JkUtilsString.substringAfterLast(className, "/")
+                : className;
+        return packagePath + JkUtilsString.substringBeforeFirst(simpleName + "$", "$") + ".java";
+    }
+
+    static ClassFileInfo read(Path classFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(classFile)))) {
+            return read(in);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e, "Error while reading class file " + classFile);
+        }
+    }
+
+    private static ClassFileInfo read(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();  // minor version
+        in.readUnsignedShort();  // major version
+        final int poolCount = in.readUnsignedShort();
+        final String[] utf8s = new String[poolCount];
+        final int[] classNameIndexes = new int[poolCount];
+        for (int i = 1; i < poolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7:
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8: case 16: case 19: case 20:
+                    in.readUnsignedShort();
+                    break;
+                case 15:
+                    skip(in, 3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    skip(in, 4);
+                    break;
+                case 5: case 6:
+                    skip(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        final Set<String> referencedClassNames = new HashSet<>();
+        for (int i = 1; i < poolCount; i++) {
+            if (classNameIndexes[i] > 0) {
+                addClassName(referencedClassNames, utf8s[classNameIndexes[i]]);
+            } else if (utf8s[i] != null && utf8s[i].indexOf(';') >= 0) {
+                final Matcher matcher = DESCRIPTOR_CLASS.matcher(utf8s[i]);
+                while (matcher.find()) {
+                    referencedClassNames.add(matcher.group(1));
+                }
+            }
+        }
+        final int accessFlags = in.readUnsignedShort();
+        final String className = utf8s[classNameIndexes[in.readUnsignedShort()]];
+        referencedClassNames.remove(className);
+        final int superClassIndex = in.readUnsignedShort();
+        final String superClassName = superClassIndex == 0 ? null : utf8s[classNameIndexes[superClassIndex]];
+        skip(in, 2 * in.readUnsignedShort());  // interfaces
+        final boolean declaresConstants = readMembers(in, utf8s);  // fields
+        readMembers(in, utf8s);  // methods
+        String sourceFileName = null;
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String name = utf8s[in.readUnsignedShort()];
+            final int length = in.readInt();
+            if ("SourceFile".equals(name)) {
+                sourceFileName = utf8s[in.readUnsignedShort()];
+                skip(in, length - 2);
+            } else {
+                skip(in, length);
+            }
+        }
+        return new ClassFileInfo(className, accessFlags, superClassName, sourceFileName, referencedClassNames,
+                declaresConstants);
+    }
+
+    private static void addClassName(Set<String> result, String name) {
+        if (name.startsWith("[")) {
+            final Matcher matcher = DESCRIPTOR_CLASS.matcher(name);
+            if (matcher.find()) {
+                result.add(matcher.group(1));
+            }
+        } else {
+            result.add(name);
+        }
+    }
+
+    // Returns true if any member has a ConstantValue attribute
+    private static boolean readMembers(DataInputStream in, String[] utf8s) throws IOException {
+        boolean hasConstantValue = false;
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 6);
+            final int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                hasConstantValue |= "ConstantValue".equals(utf8s[in.readUnsignedShort()]);
+                skip(in, in.readInt());
+            }
+        }
+        return hasConstantValue;
+    }
+
+    private static void skip(DataInputStream in, int byteCount) throws IOException {
+        in.readFully(new byte[byteCount]);
+    }
+
+}
@@ -0,0 +1,283 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
+import dev.jeka.core.api.java.JkInternalClasspathScanner;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.*;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Long running process serving Jeka executions for a single project, so successive runs benefit from an already
+ * started JVM, loaded classes and JIT-compiled code. The daemon is launched by the wrapper and listens on a
+ * loopback port. Port and authentication token are published in a state file passed as first argument, readable
+ * by the current user only. The daemon stops when it has been idle for the number of minutes passed as second argument.<p>
+ *
+ * Def classes and their dependencies are loaded in a class loader that is kept from one run to another while
+ * def sources, boot libraries and jars it contains stay unchanged.<p>
+ *
+ * A request consists in a token followed by command line arguments. The response is a sequence of frames, each
+ * starting with a type byte : {@link #STDOUT} or {@link #STDERR} followed by a length-prefixed chunk of bytes,
+ * and a final {@link #EXIT} followed by the exit code.
+ */
+public final class Daemon {
+
+    public static final byte STDOUT = 1;
+
+    public static final byte STDERR = 2;
+
+    public static final byte EXIT = 3;
+
+    /**
+     * Argument asking the daemon to stop.
+     */
+    public static final String STOP_ARG = "-DaemonStop";
+
+    private final Path stateFile;
+
+    private final Path workingDir = Paths.get("").toAbsolutePath();
+
+    private final String token = UUID.randomUUID().toString();
+
+    private URLClassLoader defClassLoader;
+
+    private String defClassLoaderFingerprint;
+
+    private Daemon(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Path stateFile = Paths.get(args[0]);
+        final int idleMinutes = Integer.parseInt(args[1]);
+        new Daemon(stateFile).serve(idleMinutes);
+        System.exit(0);
+    }
+
+    private void serve(int idleMinutes) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(idleMinutes * 60 * 1000);
+            writeState(serverSocket.getLocalPort());
+            boolean running = true;
+            while (running) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final SocketTimeoutException e) {
+                    break;
+                }
+                try (Socket closeable = socket) {
+                    running = handle(closeable);
+                } catch (final IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            deleteState();
+        }
+    }
+
+    private boolean handle(Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(in.readUTF())) {
+            return true;
+        }
+        final String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        final boolean stop = args.length == 1 && STOP_ARG.equals(args[0]);
+        final int exitCode = stop ? 0 : run(args, out);
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+        return !stop;
+    }
+
+    private int run(String[] args, DataOutputStream out) {
+        final Properties systemProps = (Properties) System.getProperties().clone();
+        final PrintStream formerOut = System.out;
+        final PrintStream formerErr = System.err;
+        final PrintStream requestOut = new PrintStream(new FrameOutputStream(out, STDOUT), true);
+        final PrintStream requestErr = new PrintStream(new FrameOutputStream(out, STDERR), true);
+        final int[] exitCode = {1};
+        System.setOut(requestOut);
+        System.setErr(requestErr);
+        try {
+
+            // Dynamic and snapshot versions have to be resolved again at each build
+            JkDependencyResolver.clearMemo();
+            final URLClassLoader classLoader = defClassLoader(args);
+
+            // A fresh thread guarantees that no thread local state leaks from a previous run
+            final Thread thread = new Thread(() -> exitCode[0] = Main.run(args), "jeka-daemon-run");
+            thread.setContextClassLoader(classLoader);
+            thread.start();
+            thread.join();
+            defClassLoaderFingerprint = fingerprint(classLoader, args);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            requestOut.flush();
+            requestErr.flush();
+            JkLog.reset();
+            JkOptions.reset();
+            System.setOut(formerOut);
+            System.setErr(formerErr);
+            System.setProperties(systemProps);
+        }
+        return exitCode[0];
+    }
+
+    private URLClassLoader defClassLoader(String[] args) {
+        if (defClassLoader != null) {
+            if (fingerprint(defClassLoader, args).equals(defClassLoaderFingerprint)) {
+                return defClassLoader;
+            }
+            JkUtilsIO.closeQuietly(defClassLoader);
+            PluginDictionary.clearCache();
+            JkInternalClasspathScanner.INSTANCE.closeScanSessions();
+        }
+        defClassLoader = new URLClassLoader(new URL[0], Daemon.class.getClassLoader());
+        return defClassLoader;
+    }
+
+    /*
+     * Stands for what has been loaded in the specified class loader : def sources of the projects whose
+     * def classes are in, jars and extra dependencies mentioned in command line.
+     */
+    private String fingerprint(URLClassLoader classLoader, String[] args) {
+        final Fingerprint fingerprint = Fingerprint.of()
+                .addStamp(workingDir.resolve(JkConstants.BOOT_DIR))
+                .addStamp(workingDir.resolve(JkConstants.DEF_DIR));
+        for (final URL url : classLoader.getURLs()) {
+            final Path entry;
+            try {
+                entry = Paths.get(url.toURI());
+            } catch (final URISyntaxException | RuntimeException e) {
+                fingerprint.add(url.toString());
+                continue;
+            }
+            if (entry.endsWith(JkConstants.DEF_BIN_DIR)) {
+                final Path projectDir = entry.getParent().getParent().getParent();
+                fingerprint.addStamp(projectDir.resolve(JkConstants.DEF_DIR));
+            } else if (Files.isRegularFile(entry)) {
+                fingerprint.addStamp(entry);
+            } else {
+                fingerprint.add(entry.toString());
+            }
+        }
+        Stream.of(args).filter(arg -> arg.startsWith("@")).forEach(fingerprint::add);
+        return fingerprint.digest();
+    }
+
+    private void writeState(int port) {
+        final Properties properties = new Properties();
+        properties.setProperty("port", Integer.toString(port));
+        properties.setProperty("token", token);
+        properties.setProperty("pid", ManagementFactory.getRuntimeMXBean().getName());
+        JkUtilsPath.createDirectories(stateFile.getParent());
+        final Path temp = stateFile.resolveSibling(stateFile.getFileName() + "." + token + ".tmp");
+        try {
+            createOwnerOnlyFile(temp);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        try (OutputStream outputStream = Files.newOutputStream(temp)) {
+            properties.store(outputStream, "Jeka daemon serving " + workingDir);
+            outputStream.close();
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    // The token grants running builds as the current user, so no one else must be able to read it
+    private static void createOwnerOnlyFile(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            return;
+        }
+        Files.createFile(file);
+        final AclFileAttributeView view = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (view != null) {
+            final AclEntry entry = AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(view.getOwner())
+                    .setPermissions(AclEntryPermission.READ_DATA, AclEntryPermission.WRITE_DATA,
+                            AclEntryPermission.APPEND_DATA, AclEntryPermission.READ_ATTRIBUTES,
+                            AclEntryPermission.WRITE_ATTRIBUTES, AclEntryPermission.READ_NAMED_ATTRS,
+                            AclEntryPermission.WRITE_NAMED_ATTRS, AclEntryPermission.READ_ACL,
+                            AclEntryPermission.WRITE_ACL, AclEntryPermission.DELETE, AclEntryPermission.SYNCHRONIZE)
+                    .build();
+            view.setAcl(Collections.singletonList(entry));
+        }
+    }
+
+    // Another daemon may have replaced the state file in the meantime
+    private void deleteState() {
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(stateFile)) {
+            properties.load(inputStream);
+            if (token.equals(properties.getProperty("token"))) {
+                Files.delete(stateFile);
+            }
+        } catch (final IOException e) {
+            // nothing to delete
+        }
+    }
+
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+
+    }
+
+}
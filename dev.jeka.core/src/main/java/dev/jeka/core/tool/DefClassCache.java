@@ -0,0 +1,84 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent cache of compiled def classes, shared by all projects of the machine and located under
+ * [Jeka user home]/cache/def-classes. Each entry is a directory named after a key computed from def sources,
+ * compilation classpath, compilation options and running JDK, so a hit guarantees that compiling again
+ * would produce the same output.
+ */
+final class DefClassCache {
+
+    private static final String CACHE_PATH = "cache/def-classes";
+
+    private final Path cacheDir;
+
+    private DefClassCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    static DefClassCache ofUserHome() {
+        return new DefClassCache(JkLocator.getJekaUserHomeDir().resolve(CACHE_PATH));
+    }
+
+    /**
+     * Computes the key standing for compiling the def source files having the specified hashes within the
+     * specified environment (see {@link DefCompileState#environmentKey(Iterable, List, Path, FileDigestCache)}).
+     */
+    static String key(String environmentKey, Map<String, String> sourceFileHashes) {
+        final Fingerprint fingerprint = Fingerprint.of().add(environmentKey);
+        new TreeMap<>(sourceFileHashes).forEach((path, hash) -> fingerprint.add(path).add(hash));
+        return fingerprint.digest();
+    }
+
+    /**
+     * Replaces the content of the specified class dir with the cached classes for the specified key.
+     * Returns <code>false</code> if there is no entry for this key.
+     */
+    boolean restore(String key, Path defClassDir) {
+        final Path entry = cacheDir.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+        JkPathTree.of(defClassDir).deleteContent();
+        JkPathTree.of(entry).copyTo(defClassDir, StandardCopyOption.REPLACE_EXISTING);
+        JkLog.trace("Def classes restored from cache " + entry);
+        return true;
+    }
+
+    /**
+     * Stores the content of the specified class dir under the specified key. An existing entry is never
+     * overwritten, as it is supposed to hold the same content.
+     */
+    void store(String key, Path defClassDir) {
+        final Path entry = cacheDir.resolve(key);
+        if (Files.exists(entry)) {
+            return;
+        }
+        JkUtilsPath.createDirectories(cacheDir);
+        final Path temp = cacheDir.resolve(key + "-" + System.nanoTime() + ".tmp");
+        JkPathTree.of(defClassDir).copyTo(temp, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+            JkLog.trace("Def classes stored in cache " + entry);
+        } catch (final IOException e) {
+
+            // Another process may have stored the same entry concurrently
+            JkLog.trace("Could not store def classes in cache " + entry + " : " + e.getMessage());
+            JkPathTree.of(temp).deleteRoot();
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.system.JkInfo;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Resolved def classpath of a project, persisted in jeka/.work along with a fingerprint of the def dependencies,
+ * the repositories and the Jeka version it has been resolved with. As long as this fingerprint matches, the
+ * classpath can be reused without resolving dependencies again.
+ */
+final class DefClasspathCache {
+
+    static final String FILE_NAME = "def-classpath.txt";
+
+    private final Path file;
+
+    private DefClasspathCache(Path file) {
+        this.file = file;
+    }
+
+    static DefClasspathCache of(Path projectBaseDir) {
+        return new DefClasspathCache(projectBaseDir.resolve(JkConstants.WORK_PATH).resolve(FILE_NAME));
+    }
+
+    /**
+     * Computes the key standing for resolving the specified dependencies on the specified repos.
+     */
+    static String key(JkDependencySet dependencies, JkRepoSet repos) {
+        final Fingerprint fingerprint = Fingerprint.of()
+                .add(JkInfo.getJekaVersion())
+                .add(repos.toString());
+        for (final JkDependency dependency : dependencies.getEntries()) {
+            fingerprint.add(dependency.toString());
+            if (dependency instanceof JkModuleDependency) {
+                ((JkModuleDependency) dependency).getExclusions().forEach(exclusion -> fingerprint.add(
+                        exclusion.getModuleId() + ":" + exclusion.getClassifier() + ":" + exclusion.getType()));
+            }
+        }
+        dependencies.getGlobalExclusions().forEach(exclusion -> fingerprint.add(
+                exclusion.getModuleId() + ":" + exclusion.getClassifier() + ":" + exclusion.getType()));
+        return fingerprint.add(dependencies.getVersionProvider().toString()).digest();
+    }
+
+    /**
+     * Returns the classpath stored for the specified key, or <code>null</code> if the stored key does not match
+     * or if some files of the classpath do not exist anymore.
+     */
+    JkPathSequence get(String key) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final List<String> lines = JkUtilsPath.readAllLines(file);
+        if (lines.isEmpty() || !lines.get(0).equals(key)) {
+            return null;
+        }
+        final List<Path> result = new LinkedList<>();
+        for (final String line : lines.subList(1, lines.size())) {
+            final Path path = Paths.get(line);
+            if (!Files.exists(path)) {
+                JkLog.trace("Cached def classpath entry " + path + " is missing.");
+                return null;
+            }
+            result.add(path);
+        }
+        return JkPathSequence.of(result);
+    }
+
+    void put(String key, JkPathSequence classpath) {
+        final StringBuilder sb = new StringBuilder(key).append('\n');
+        classpath.getEntries().forEach(path -> sb.append(path.toAbsolutePath()).append('\n'));
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
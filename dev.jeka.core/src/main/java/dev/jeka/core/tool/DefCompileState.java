@@ -0,0 +1,203 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * State of the last successful compilation of def sources, persisted in jeka/.work. It records the hash of each
+ * file lying in def source dir, along with class files produced by each source and classes these ones refer to.
+ * This allows to recompile only the def sources that have changed, and the ones depending on them.
+ * <p>
+ * As compile-time constants are inlined, classes reading them can not be found from class references : changing
+ * a source declaring such constants leads to recompile all sources. In the same way, if a class file can not be
+ * mapped to the source it comes from (as when a source does not lie in the folder matching its package), the
+ * state is not usable and sources are fully recompiled.
+ */
+final class DefCompileState implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    static final String FILE_NAME = "def-compile-state.ser";
+
+    private final String environmentKey;
+
+    // relative path of file in def source dir -> hash of its content
+    private final Map<String, String> fileHashes;
+
+    // relative path of source file -> internal names of classes compiled from it
+    private final Map<String, Set<String>> producedClasses;
+
+    // relative path of source file -> internal names of classes referenced by classes compiled from it
+    private final Map<String, Set<String>> referencedClasses;
+
+    // relative paths of source files whose classes declare compile-time constants
+    private final Set<String> constantSources;
+
+    // false if some class files could not be mapped to the source file they come from
+    private final boolean sourcesMapped;
+
+    private DefCompileState(String environmentKey, Map<String, String> fileHashes,
+                            Map<String, Set<String>> producedClasses, Map<String, Set<String>> referencedClasses,
+                            Set<String> constantSources, boolean sourcesMapped) {
+        this.environmentKey = environmentKey;
+        this.fileHashes = fileHashes;
+        this.producedClasses = producedClasses;
+        this.referencedClasses = referencedClasses;
+        this.constantSources = constantSources;
+        this.sourcesMapped = sourcesMapped;
+    }
+
+    /**
+     * Creates a state from the specified file hashes and the class files currently present in the specified
+     * class dir.
+     */
+    static DefCompileState of(String environmentKey, Map<String, String> fileHashes, Path defClassDir) {
+        final Map<String, Set<String>> producedClasses = new HashMap<>();
+        final Map<String, Set<String>> referencedClasses = new HashMap<>();
+        final Set<String> constantSources = new HashSet<>();
+        boolean sourcesMapped = true;
+        for (final Path classFile : JkPathTree.of(defClassDir).andMatching(true, "**.class").getFiles()) {
+            final ClassFileInfo classFileInfo = ClassFileInfo.read(classFile);
+            final String sourcePath = classFileInfo.sourcePath();
+            if (!fileHashes.containsKey(sourcePath)) {
+                JkLog.trace("Can not find source of def class " + classFileInfo.className + " (expected "
+                        + sourcePath + ").");
+                sourcesMapped = false;
+            }
+            producedClasses.computeIfAbsent(sourcePath, key -> new HashSet<>()).add(classFileInfo.className);
+            referencedClasses.computeIfAbsent(sourcePath, key -> new HashSet<>())
+                    .addAll(classFileInfo.referencedClassNames);
+            if (classFileInfo.declaresConstants) {
+                constantSources.add(sourcePath);
+            }
+        }
+        return new DefCompileState(environmentKey, new HashMap<>(fileHashes), producedClasses, referencedClasses,
+                constantSources, sourcesMapped);
+    }
+
+    /**
+     * Returns the state persisted in the specified file or <code>null</code> if none or if it can not be read.
+     */
+    static DefCompileState load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read def compile state " + file + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the key standing for everything but sources, that may affect def compilation result. Classpath
+     * entries are taken in account by content, so the key does not change when the project is checked out
+     * elsewhere or when entries are restored from a cache. Digests of classpath files are read from and saved in
+     * the specified cache.
+     */
+    static String environmentKey(Iterable<Path> classpath, List<String> compileOptions, Path projectDir,
+                                 FileDigestCache digestCache) {
+        final Fingerprint fingerprint = Fingerprint.of()
+                .add(System.getProperty("java.vendor"))
+                .add(System.getProperty("java.version"))
+                .add(compileOptions);
+        classpath.forEach(entry -> fingerprint.addContentDigest(entry, projectDir, digestCache));
+        digestCache.save();
+        return fingerprint.digest();
+    }
+
+    /**
+     * Returns the content hash of each file lying in the specified dir, keyed by relative path.
+     */
+    static Map<String, String> hashFiles(Path defSourceDir) {
+        final Map<String, String> result = new TreeMap<>();
+        for (final Path relativeFile : JkPathTree.of(defSourceDir).getRelativeFiles()) {
+            final String key = relativeFile.toString().replace('\\', '/');
+            result.put(key, Fingerprint.of().addContent(defSourceDir.resolve(relativeFile)).digest());
+        }
+        return result;
+    }
+
+    void save(Path file) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsIO.serialize(this, file);
+    }
+
+    /**
+     * Returns <code>true</code> if this state has been computed using the specified environment, all class files
+     * it mentions are still present and each of them has been mapped to its source.
+     */
+    boolean isCompatible(String environmentKey, Path defClassDir) {
+        return sourcesMapped && this.environmentKey.equals(environmentKey) && classFilesExist(defClassDir);
+    }
+
+    /**
+     * Returns <code>true</code> if the files having the specified hashes are the ones this state has been
+     * computed from and all the class files it mentions are still present.
+     */
+    boolean isUpToDate(Map<String, String> currentFileHashes, Path defClassDir) {
+        return fileHashes.equals(currentFileHashes) && classFilesExist(defClassDir);
+    }
+
+    private boolean classFilesExist(Path defClassDir) {
+        return producedClasses.values().stream()
+                .flatMap(Set::stream)
+                .allMatch(className -> Files.exists(defClassDir.resolve(className + ".class")));
+    }
+
+    /**
+     * Returns relative paths of files that have been added, modified or removed since this state, augmented
+     * with sources depending transitively on them. If one of the modified or removed sources declares
+     * compile-time constants, all sources are returned.
+     */
+    Set<String> invalidatedFiles(Map<String, String> currentFileHashes) {
+        final Set<String> result = new HashSet<>();
+        currentFileHashes.forEach((path, hash) -> {
+            if (!hash.equals(fileHashes.get(path))) {
+                result.add(path);
+            }
+        });
+        fileHashes.keySet().stream()
+                .filter(path -> !currentFileHashes.containsKey(path))
+                .forEach(result::add);
+        if (!Collections.disjoint(result, constantSources)) {
+            result.addAll(fileHashes.keySet());
+            result.addAll(currentFileHashes.keySet());
+            return result;
+        }
+        final Set<String> invalidatedClasses = producedClasses(result);
+        boolean changed = !invalidatedClasses.isEmpty();
+        while (changed) {
+            changed = false;
+            for (final Map.Entry<String, Set<String>> entry : referencedClasses.entrySet()) {
+                final String source = entry.getKey();
+                if (!result.contains(source) && !Collections.disjoint(entry.getValue(), invalidatedClasses)) {
+                    result.add(source);
+                    invalidatedClasses.addAll(producedClasses.getOrDefault(source, Collections.emptySet()));
+                    changed = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns internal names of the classes compiled from the specified sources.
+     */
+    Set<String> producedClasses(Set<String> sources) {
+        final Set<String> result = new HashSet<>();
+        for (final String source : sources) {
+            result.addAll(producedClasses.getOrDefault(source, Collections.emptySet()));
+        }
+        return result;
+    }
+
+}
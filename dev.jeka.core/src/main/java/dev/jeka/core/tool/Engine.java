@@ -14,6 +14,7 @@ import dev.jeka.core.api.kotlin.JkKotlinCompiler;
 import dev.jeka.core.api.kotlin.JkKotlinJvmCompileSpec;
 import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.system.JkTraceRecorder;
 import dev.jeka.core.api.utils.JkUtilsPath;
 import dev.jeka.core.api.utils.JkUtilsReflect;
 import dev.jeka.core.api.utils.JkUtilsString;
@@ -22,9 +23,12 @@ import dev.jeka.core.api.utils.JkUtilsTime;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static dev.jeka.core.api.depmanagement.JkDependencySet.Hint.lastAndIf;
 
@@ -47,6 +51,8 @@ final class Engine {
     private final JkPathMatcher KOTLIN_DEF_SOURCE_MATCHER = JkPathMatcher.of(true,"**.kt")
            .and(false, "**/_*", "_*");
 
+    private static final Object RESOLVE_LOCK = new Object();
+
     private final Path projectBaseDir;
 
     private JkDependencySet defDependencies;
@@ -133,7 +139,8 @@ final class Engine {
         final List<Path> sourceFiles = JkPathTree.of(resolver.defSourceDir)
                 .andMatcher(JAVA_DEF_SOURCE_MATCHER.or(KOTLIN_DEF_SOURCE_MATCHER)).getFiles();
         JkLog.trace("Parse source code of " + sourceFiles);
-        final SourceParser parser = SourceParser.of(this.projectBaseDir, sourceFiles);
+        final SourceParser parser = JkTraceRecorder.section("Parse def sources of " + this.projectBaseDir,
+                () -> SourceParser.of(this.projectBaseDir, sourceFiles));
         this.defDependencies = this.defDependencies.and(parser.dependencies());
         this.defRepos = parser.importRepos().and(defRepos);
         this.rootsOfImportedJekaClasses = parser.projects();
@@ -145,7 +152,7 @@ final class Engine {
      * It returns a path sequence containing the resolved dependencies and result of compilation.
      */
     private JkPathSequence resolveAndCompile(boolean compileSources) {
-        return resolveAndCompile(new HashSet<>(), JkPathSequence.of(), compileSources);
+        return resolveAndCompile(ConcurrentHashMap.newKeySet(), JkPathSequence.of(), compileSources);
     }
 
     private JkPathSequence resolveAndCompile(Set<Path> yetCompiledProjects, JkPathSequence path, boolean compileSources) {
@@ -165,26 +172,51 @@ final class Engine {
         JkPathSequence projectDependenciesPath =
                 resolveAndCompileDependentProjects(yetCompiledProjects, dependencyPath, compileSources);
         if (compileSources) {
-            compileDef(dependencyPath.and(projectDependenciesPath));
+            JkTraceRecorder.section("Compile def sources of " + this.projectBaseDir,
+                    () -> compileDef(dependencyPath.and(projectDependenciesPath)));
         }
         JkLog.endTask("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
         return dependencyPath.and(projectDependenciesPath).and(this.resolver.defClassDir).withoutDuplicates();
     }
 
+    /*
+     * Returns the resolved def classpath. Resolution is skipped if neither def dependencies nor repositories
+     * have changed since the last successful one, unless dependencies have dynamic versions.
+     */
     private JkPathSequence dependenciesPath() {
+        final boolean cacheable = Files.isDirectory(this.projectBaseDir.resolve(JkConstants.JEKA_DIR))
+                && !this.defDependencies.hasDynamicVersions();
+        final DefClasspathCache defClasspathCache = DefClasspathCache.of(this.projectBaseDir);
+        final String cacheKey = cacheable ? DefClasspathCache.key(this.defDependencies, this.defRepos) : null;
+        if (cacheable) {
+            final JkPathSequence cachedClasspath = defClasspathCache.get(cacheKey);
+            if (cachedClasspath != null) {
+                JkLog.trace("Def dependencies are up to date, reuse classpath stored in "
+                        + JkConstants.WORK_PATH + "/" + DefClasspathCache.FILE_NAME);
+                return cachedClasspath;
+            }
+        }
         final JkDependencyResolver defDependencyResolver = getDefDependencyResolver();
-        final JkResolveResult resolveResult = defDependencyResolver.resolve(this.defDependencies);
+        final JkResolveResult resolveResult;
+        synchronized (RESOLVE_LOCK) {  // Ivy resolutions must not run concurrently on the same cache
+            resolveResult = JkTraceRecorder.section("Resolve def dependencies of " + this.projectBaseDir,
+                    () -> defDependencyResolver.resolve(this.defDependencies));
+        }
+        final JkPathSequence result = resolveResult.getFiles().withoutDuplicates();
         if (resolveResult.getErrorReport().hasErrors()) {
             JkLog.warn(resolveResult.getErrorReport().toString());
+        } else if (cacheable) {
+            defClasspathCache.put(cacheKey, result);
         }
-        return resolveResult.getFiles().withoutDuplicates();
+        return result;
     }
 
     private JkClass getJkClassInstance(String jkClassHint, JkPathSequence runtimePath) {
         final JkUrlClassLoader classLoader = JkUrlClassLoader.ofCurrent();
         classLoader.addEntries(runtimePath);
         JkLog.trace("Setting def execution classpath to : " + classLoader.getDirectClasspath());
-        final JkClass jkClass = resolver.resolve(jkClassHint);
+        final JkClass jkClass = JkTraceRecorder.section("Load and instantiate Jeka class",
+                () -> resolver.resolve(jkClassHint));
         if (jkClass == null) {
             return null;
         }
@@ -217,34 +249,182 @@ final class Engine {
     }
 
     /*
-     * Resolves dependencies and compiles project that this one depends on.
-     * It returns a path resulting of the dependency resolution and compilation output.
+     * Resolves dependencies and compiles projects that this one depends on, directly or transitively.
+     * Imported projects form a graph : each project is compiled once its own imports are, so independent
+     * projects are compiled in parallel. It returns a path resulting of the dependency resolution and
+     * compilation output of direct imports, in declaration order.
      */
     private JkPathSequence resolveAndCompileDependentProjects(Set<Path> yetCompiledProjects,
                                                               JkPathSequence compilePath,
                                                               boolean compileSources) {
-        boolean compileImports = !this.rootsOfImportedJekaClasses.isEmpty();
-        if (compileImports) {
-            JkLog.startTask("Compile Jeka classes of dependent projects : "
-                    + toRelativePaths(this.projectBaseDir, this.rootsOfImportedJekaClasses));
+        if (this.rootsOfImportedJekaClasses.isEmpty()) {
+            return JkPathSequence.of();
         }
-        JkPathSequence inputPath = compilePath;
-        JkPathSequence result = JkPathSequence.of();
-        for (final Path file : this.rootsOfImportedJekaClasses) {
-            final Engine engine = new Engine(file.toAbsolutePath().normalize());
-            JkPathSequence resultPath = engine.resolveAndCompile(yetCompiledProjects, inputPath, compileSources);
-            inputPath = inputPath.and(resultPath);
-            result = result.and(resultPath);
+        JkLog.startTask("Compile Jeka classes of dependent projects : "
+                + toRelativePaths(this.projectBaseDir, this.rootsOfImportedJekaClasses));
+        final Map<Path, Engine> engines = new LinkedHashMap<>();  // in compilation order
+        final Map<Path, List<Path>> imports = new HashMap<>();
+        for (final Path importedProject : this.rootsOfImportedJekaClasses) {
+            collectImportedProjects(normalized(importedProject), yetCompiledProjects, new HashSet<>(), engines,
+                    imports);
         }
-        if (compileImports) {
+        final int threadCount = Math.max(1, Math.min(engines.size(), Runtime.getRuntime().availableProcessors()));
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-def-compile");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        final Map<Path, CompletableFuture<JkPathSequence>> results = new HashMap<>();
+        final int nestedLevel = JkLog.getCurrentNestedLevel();
+        try {
+            for (final Map.Entry<Path, Engine> entry : engines.entrySet()) {
+                final List<CompletableFuture<JkPathSequence>> importResults = imports.get(entry.getKey()).stream()
+                        .map(results::get)
+                        .collect(Collectors.toList());
+                final Engine engine = entry.getValue();
+                final CompletableFuture<JkPathSequence> result = CompletableFuture
+                        .allOf(importResults.toArray(new CompletableFuture[0]))
+                        .thenApplyAsync(nothing -> {
+                            JkLog.isolateNesting(nestedLevel);
+                            try {
+                                return engine.resolveAndCompileImported(compilePath, join(importResults),
+                                        compileSources);
+                            } finally {
+                                JkLog.shareNesting();
+                            }
+                        }, executorService);
+                results.put(entry.getKey(), result);
+            }
+            final List<CompletableFuture<JkPathSequence>> directImportResults =
+                    this.rootsOfImportedJekaClasses.stream()
+                            .map(Engine::normalized)
+                            .filter(results::containsKey)
+                            .distinct()
+                            .map(results::get)
+                            .collect(Collectors.toList());
+            final JkPathSequence result = join(directImportResults);
+            join(new ArrayList<>(results.values()));
+            return result.withoutDuplicates();
+        } finally {
+            executorService.shutdownNow();
             JkLog.endTask();
         }
-        return result.withoutDuplicates();
+    }
+
+    /*
+     * Adds the specified project and the ones it imports transitively to the specified engine map, imported
+     * projects first. Imports leading to a cycle are ignored.
+     */
+    private static void collectImportedProjects(Path projectDir, Set<Path> yetCompiledProjects, Set<Path> ancestors,
+                                                Map<Path, Engine> engines, Map<Path, List<Path>> imports) {
+        if (!yetCompiledProjects.add(projectDir)) {
+            return;
+        }
+        final Engine engine = new Engine(projectDir);
+        final List<Path> projectImports = new LinkedList<>();
+        if (engine.resolver.hasDefSource()) {
+            engine.preCompile();
+            ancestors.add(projectDir);
+            for (final Path importedProject : engine.rootsOfImportedJekaClasses) {
+                final Path importedProjectDir = normalized(importedProject);
+                if (ancestors.contains(importedProjectDir) || projectImports.contains(importedProjectDir)) {
+                    continue;
+                }
+                collectImportedProjects(importedProjectDir, yetCompiledProjects, ancestors, engines, imports);
+                if (engines.containsKey(importedProjectDir)) {
+                    projectImports.add(importedProjectDir);
+                }
+            }
+            ancestors.remove(projectDir);
+        }
+        engines.put(projectDir, engine);
+        imports.put(projectDir, projectImports);
+    }
+
+    /*
+     * Resolves dependencies and compiles def classes of this imported project, whose own imports have already
+     * been compiled, producing the specified path.
+     */
+    private JkPathSequence resolveAndCompileImported(JkPathSequence path, JkPathSequence importsPath,
+                                                     boolean compileSources) {
+        if (!this.resolver.hasDefSource()) {
+            if (Environment.commandLine.getDefDependencies().isEmpty()) {
+                return JkPathSequence.of();
+            }
+            return dependenciesPath();
+        }
+        final long start = System.nanoTime();
+        final JkPathSequence dependencyPath = dependenciesPath().andPrepend(path).withoutDuplicates();
+        if (compileSources) {
+            JkTraceRecorder.section("Compile def sources of " + this.projectBaseDir,
+                    () -> compileDef(dependencyPath.and(importsPath)));
+        }
+        JkLog.info("Def classes for project " + this.projectBaseDir.getFileName() + " ready in "
+                + JkUtilsTime.durationInMillis(start) + " milliseconds.");
+        return dependencyPath.and(importsPath).and(this.resolver.defClassDir).withoutDuplicates();
+    }
+
+    // Rethrows the original failure, so users see the JkException or compilation error rather than its wrapper
+    private static JkPathSequence join(List<CompletableFuture<JkPathSequence>> futures) {
+        JkPathSequence result = JkPathSequence.of();
+        for (final CompletableFuture<JkPathSequence> future : futures) {
+            try {
+                result = result.and(future.join());
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        return result;
+    }
+
+    private static Path normalized(Path projectDir) {
+        return projectDir.toAbsolutePath().normalize();
     }
 
     private void compileDef(JkPathSequence defClasspath) {
+        final String environmentKey = DefCompileState.environmentKey(defClasspath, compileOptions,
+                this.projectBaseDir, FileDigestCache.of());
+        final Map<String, String> fileHashes = DefCompileState.hashFiles(resolver.defSourceDir);
+        final Path stateFile = resolver.defClassDir.resolveSibling(DefCompileState.FILE_NAME);
+        final boolean hasKotlin = hasKotlin();
+        final DefCompileState previousState = hasKotlin ? null : DefCompileState.load(stateFile);
+        final boolean incremental = previousState != null
+                && previousState.isCompatible(environmentKey, resolver.defClassDir);
+        final Set<String> invalidatedFiles = incremental ? previousState.invalidatedFiles(fileHashes) : null;
+        if (incremental && invalidatedFiles.isEmpty()) {
+            JkLog.trace("Def classes are up to date.");
+            return;
+        }
+        final DefClassCache defClassCache = DefClassCache.ofUserHome();
+        final String cacheKey = DefClassCache.key(environmentKey, fileHashes);
+        if (defClassCache.restore(cacheKey, resolver.defClassDir)) {
+            if (hasKotlin) {
+                JkUrlClassLoader.ofCurrent().addEntries(JkKotlinCompiler.ofKotlinHome().getStdLib());
+            } else {
+                DefCompileState.of(environmentKey, fileHashes, resolver.defClassDir).save(stateFile);
+            }
+            return;
+        }
+        JkUtilsPath.deleteIfExists(stateFile);
+        if (incremental) {
+            compileDefIncrementally(defClasspath, previousState, invalidatedFiles);
+        } else {
+            compileDefFully(defClasspath, hasKotlin);
+        }
+        if (!hasKotlin) {
+            DefCompileState.of(environmentKey, fileHashes, resolver.defClassDir).save(stateFile);
+        }
+        defClassCache.store(cacheKey, resolver.defClassDir);
+    }
+
+    private void compileDefFully(JkPathSequence defClasspath, boolean hasKotlin) {
         JkPathTree.of(resolver.defClassDir).deleteContent();
-        if (hasKotlin()) {
+        if (hasKotlin) {
             final JkKotlinJvmCompileSpec kotlinCompileSpec = defKotlinCompileSpec(defClasspath);
             JkKotlinCompiler kotlinCompiler = JkKotlinCompiler.ofKotlinHome();
             wrapCompile(() -> kotlinCompiler.compile(kotlinCompileSpec));
@@ -258,6 +438,43 @@ final class Engine {
                 .copyTo(this.resolver.defClassDir, StandardCopyOption.REPLACE_EXISTING);
     }
 
+    /*
+     * Recompiles only the specified files (changed sources and their dependents) and copies changed resources,
+     * keeping the rest of the def class dir untouched.
+     */
+    private void compileDefIncrementally(JkPathSequence defClasspath, DefCompileState previousState,
+                                         Set<String> invalidatedFiles) {
+        JkLog.trace("Recompile def files " + invalidatedFiles);
+        for (final String className : previousState.producedClasses(invalidatedFiles)) {
+            JkUtilsPath.deleteIfExists(resolver.defClassDir.resolve(className + ".class"));
+        }
+        final List<Path> sourcesToCompile = new LinkedList<>();
+        for (final String relativePath : invalidatedFiles) {
+            final Path file = resolver.defSourceDir.resolve(relativePath);
+            if (relativePath.endsWith(".java")) {
+                if (Files.exists(file) && JAVA_DEF_SOURCE_MATCHER.matches(Paths.get(relativePath))) {
+                    sourcesToCompile.add(file);
+                }
+            } else {
+                final Path target = resolver.defClassDir.resolve(relativePath);
+                JkUtilsPath.deleteIfExists(target);
+                if (Files.exists(file)) {
+                    JkUtilsPath.createDirectories(target.getParent());
+                    JkUtilsPath.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        if (!sourcesToCompile.isEmpty()) {
+            JkUtilsPath.createDirectories(resolver.defClassDir);
+            final JkJavaCompileSpec javaCompileSpec = JkJavaCompileSpec.of()
+                    .setClasspath(defClasspath.and(resolver.defClassDir))
+                    .setOutputDir(resolver.defClassDir)
+                    .addSources(sourcesToCompile)
+                    .addOptions(this.compileOptions);
+            wrapCompile(() -> JkJavaCompiler.of().compile(javaCompileSpec));
+        }
+    }
+
     private void wrapCompile(Supplier<Boolean> compileTask) {
         boolean success = compileTask.get();
         if (!success) {
@@ -268,9 +485,9 @@ final class Engine {
 
     private void launch(JkClass jkClass, CommandLine commandLine) {
         if (!commandLine.getSubProjectMethods().isEmpty()) {
-            for (final JkClass importedJkClass : jkClass.getImportedJkClasses().getAll()) {
-                runProject(importedJkClass, commandLine.getSubProjectMethods());
-            }
+            ImportedJkClassScheduler.of(Environment.standardOptions.subProjectWorkers).run(
+                    jkClass.getImportedJkClasses().getAll(),
+                    importedJkClass -> runProject(importedJkClass, commandLine.getSubProjectMethods()));
             runProject(jkClass, commandLine.getSubProjectMethods());
         }
         List<CommandLine.MethodInvocation> methods = commandLine.getMasterMethods();
@@ -101,8 +101,14 @@ class Environment {
 
         String logRuntimeInformation;
 
+        String logProfile;
+
+        String jekaSetup;
+
         int logMaxLength = -1;
 
+        int subProjectWorkers = 1;
+
         private String jkClassName;
 
         private final Set<String> names = new HashSet<>();
@@ -115,13 +121,30 @@ class Environment {
             this.logRuntimeInformation = valueOf(String.class, map, null, "LogRuntimeInformation", "LRI");
             this.logStyle = valueOf(JkLog.Style.class, map, JkLog.Style.INDENT, "LogStyle", "LS");
             this.logMaxLength = valueOf(Integer.class, map, -1,"LogMaxLength", "LML");
+            this.logProfile = valueOf(String.class, map, null, "LogProfile", "LP");
             this.jkClassName = valueOf(String.class, map, null, "JekaClass", "JKC");
+            this.jekaSetup = valueOf(String.class, map, null, "JekaSetup", "JKS");
+            this.subProjectWorkers = valueOf(Integer.class, map, 1, "SubProjectWorkers", "SPW");
         }
 
         Set<String> names() {
             return names;
         }
 
+        /**
+         * Returns the file where the timing trace of this run should be written, or <code>null</code>
+         * if no trace has been requested.
+         */
+        Path logProfileFile() {
+            if (logProfile == null) {
+                return null;
+            }
+            if (JkUtilsString.isBlank(logProfile)) {
+                return Paths.get(JkConstants.OUTPUT_PATH, "jeka-trace.json");
+            }
+            return Paths.get(logProfile);
+        }
+
         String jkClassName() {
             if ("".equals(jkClassName)) {
                 return JkConstants.DEFAULT_JEKA_CLASS.getName();
@@ -2,56 +2,76 @@ package dev.jeka.core.tool;
 
 import dev.jeka.core.api.utils.JkUtilsReflect;
 import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/*
+ * Injects option values into Jeka class and plugin fields.
+ *
+ * Option fields of a class, along their accessors and value converters, are computed once per class and kept in an
+ * injection plan so that instantiating the same class again (from imported projects or a daemon run) does not
+ * pay for reflection introspection anymore. Plans are held in a ClassValue, so they do not prevent def class
+ * loaders from being garbage collected.
+ */
 final class FieldInjector {
 
     private static final String UNHANDLED_TYPE = "";
 
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return new InjectionPlan(type);
+        }
+    };
+
     static Set<String> inject(Object target, Map<String, String> props) {
         return inject(target, props, "");
     }
 
     private static Set<String> inject(Object target, Map<String, String> props, String fieldPrefix) {
-        Set<String> usedProperties = new HashSet<>();
-        for (final Field field : getOptionFields(target.getClass())) {
-            Set<String> matchedKeys = inject(target, field, props, fieldPrefix);
-            usedProperties.addAll(matchedKeys);
+        if (props.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final Map<String, Map<String, String>> subPropsByName = subPropsByName(props);
+        final Set<String> usedProperties = new HashSet<>();
+        for (final OptionField optionField : PLANS.get(target.getClass()).optionFields) {
+            usedProperties.addAll(inject(target, optionField, props, subPropsByName, fieldPrefix));
         }
         return usedProperties;
     }
 
     static void injectEnv(Object target) {
-        for (final Field field : getOptionFields(target.getClass())) {
-            final JkEnv env = field.getAnnotation(JkEnv.class);
-            if (env != null) {
-                final String stringValue = System.getenv(env.value());
-                if (stringValue != null) {
-                    final Class<?> type = field.getType();
-                    Object value;
-                    try {
-                        value = parse(type, stringValue);
-                    } catch (final IllegalArgumentException e) {
-                        throw new JkException("Option " + env.value() + " has been set with improper value '"
-                                + stringValue + "'");
-                    }
-                    JkUtilsReflect.setFieldValue(target, field, value);
+        for (final OptionField optionField : PLANS.get(target.getClass()).envFields) {
+            final String envName = optionField.envName;
+            final String stringValue = System.getenv(envName);
+            if (stringValue != null) {
+                Object value;
+                try {
+                    value = optionField.converter.apply(stringValue);
+                } catch (final IllegalArgumentException e) {
+                    throw new JkException("Option " + envName + " has been set with improper value '"
+                            + stringValue + "'");
                 }
+                optionField.set(target, value);
             }
         }
     }
 
     static List<Field> getOptionFields(Class<?> clazz) {
-        return JkUtilsReflect.getAllDeclaredFields(clazz,true).stream()
-                .filter(FieldInjector::isOptionField)
+        return PLANS.get(clazz).optionFields.stream().map(optionField -> optionField.field)
                 .collect(Collectors.toList());
     }
 
@@ -68,44 +88,53 @@ final class FieldInjector {
                 .anyMatch(name -> name.equals(setterName));
     }
 
-    private static Set<String> inject(Object target, Field field, Map<String, String> props, String prefix) {
-        final String name = field.getName();
-        final Class<?> type = field.getType();
-        final boolean present = props.containsKey(name);
-        if (present) {
+    private static Set<String> inject(Object target, OptionField optionField, Map<String, String> props,
+                                      Map<String, Map<String, String>> subPropsByName, String prefix) {
+        final String name = optionField.field.getName();
+        if (props.containsKey(name)) {
             final String stringValue = props.get(name);
             Object value;
             try {
-                value = parse(type, stringValue);
+                value = optionField.converter.apply(stringValue);
             } catch (final IllegalArgumentException e) {
                 throw new JkException("Option " + name + " has been set with improper value '" + stringValue + "'");
             }
             if (value == UNHANDLED_TYPE) {
                 throw new IllegalArgumentException("Class " + target.getClass().getName()
-                        + ", field " + name + ", can't handle type " + type);
+                        + ", field " + name + ", can't handle type " + optionField.field.getType());
             }
-            if (Modifier.isFinal(field.getModifiers())) {
-                throw new JkException("Can not set value on final " + field.getDeclaringClass().getName()
-                        + "#" + field.getName() + " field.");
-            }
-            JkUtilsReflect.setFieldValue(target, field, value);
+            optionField.checkNotFinal();
+            optionField.set(target, value);
             return Collections.singleton(prefix + name);
-        } else if (hasKeyStartingWith(name + ".", props)) {
-            String fieldPrefix = name + ".";
-            Object value = JkUtilsReflect.getFieldValue(target, field);
-            if (value == null) {
-                value = JkUtilsReflect.newInstance(field.getType());
-                if (Modifier.isFinal(field.getModifiers())) {
-                    throw new JkException("Can not set value on final " + field.getDeclaringClass().getName()
-                            + "#" + field.getName() + " field.");
-                }
-                JkUtilsReflect.setFieldValue(target, field, value);
-            }
-            final Map<String, String> subProps = extractKeyStartingWith(fieldPrefix, props);
-            return inject(value, subProps, prefix + fieldPrefix);
-        } else {
+        }
+        final Map<String, String> subProps = subPropsByName.get(name);
+        if (subProps == null) {
             return Collections.emptySet();
         }
+        Object value = optionField.get(target);
+        if (value == null) {
+            value = JkUtilsReflect.newInstance(optionField.field.getType());
+            optionField.checkNotFinal();
+            optionField.set(target, value);
+        }
+        return inject(value, subProps, prefix + name + ".");
+    }
+
+    /*
+     * Groups properties of the form 'name.subName' by 'name', so each field finds its nested properties
+     * with a single lookup.
+     */
+    private static Map<String, Map<String, String>> subPropsByName(Map<String, String> props) {
+        final Map<String, Map<String, String>> result = new HashMap<>();
+        for (final Map.Entry<String, String> entry : props.entrySet()) {
+            final String key = entry.getKey();
+            final int dotIndex = key.indexOf('.');
+            if (dotIndex >= 0) {
+                result.computeIfAbsent(key.substring(0, dotIndex), k -> new HashMap<>())
+                        .put(key.substring(dotIndex + 1), entry.getValue());
+            }
+        }
+        return result;
     }
 
     private static Object defaultValue(Class<?> type) {
@@ -118,73 +147,163 @@ final class FieldInjector {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
     static Object parse(Class<?> type, String stringValue)
             throws IllegalArgumentException {
-        if (stringValue == null) {
-            return defaultValue(type);
-        }
+        return converter(type).apply(stringValue);
+    }
+
+    /*
+     * Returns the function turning option string values into values of the specified type. Functions throw
+     * IllegalArgumentException on improper values and return UNHANDLED_TYPE for types that cannot be converted.
+     */
+    private static Function<String, Object> converter(Class<?> type) {
+        final Object defaultValue = defaultValue(type);
+        final Function<String, Object> converter = rawConverter(type);
+        return stringValue -> stringValue == null ? defaultValue : converter.apply(stringValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<String, Object> rawConverter(Class<?> type) {
         if (type.equals(String.class)) {
-            return stringValue;
+            return stringValue -> stringValue;
         }
         if (type.equals(Boolean.class) || type.equals(boolean.class)) {
-            return Boolean.valueOf(stringValue);
+            return Boolean::valueOf;
         }
-        try {
-            if (type.equals(Integer.class) || type.equals(int.class)) {
-                return Integer.valueOf(stringValue);
-            }
-            if (type.equals(Long.class) || type.equals(long.class)) {
-                return Long.valueOf(stringValue);
-            }
-            if (type.equals(Short.class) || type.equals(short.class)) {
-                return Short.valueOf(stringValue);
-            }
-            if (type.equals(Byte.class) || type.equals(byte.class)) {
-                return Byte.valueOf(stringValue);
-            }
-            if (type.equals(Double.class) || type.equals(double.class)) {
-                return Double.valueOf(stringValue);
-            }
-            if (type.equals(Float.class) || type.equals(float.class)) {
-                return Float.valueOf(stringValue);
-            }
-
-        } catch (final NumberFormatException e) {
-            throw new IllegalArgumentException(e.getMessage(), e);
+        if (type.equals(Integer.class) || type.equals(int.class)) {
+            return numberConverter(Integer::valueOf);
+        }
+        if (type.equals(Long.class) || type.equals(long.class)) {
+            return numberConverter(Long::valueOf);
+        }
+        if (type.equals(Short.class) || type.equals(short.class)) {
+            return numberConverter(Short::valueOf);
+        }
+        if (type.equals(Byte.class) || type.equals(byte.class)) {
+            return numberConverter(Byte::valueOf);
+        }
+        if (type.equals(Double.class) || type.equals(double.class)) {
+            return numberConverter(Double::valueOf);
+        }
+        if (type.equals(Float.class) || type.equals(float.class)) {
+            return numberConverter(Float::valueOf);
         }
         if (type.isEnum()) {
             @SuppressWarnings("rawtypes")
             final Class enumType = type;
-            return Enum.valueOf(enumType, stringValue);
+            return stringValue -> Enum.valueOf(enumType, stringValue);
         }
         if (type.equals(File.class)) {
-            return new File(stringValue);
+            return File::new;
         }
         if (type.equals(Path.class)) {
-            return Paths.get(stringValue);
+            return Paths::get;
         }
-        return UNHANDLED_TYPE;
+        return stringValue -> UNHANDLED_TYPE;
     }
 
-    private static boolean hasKeyStartingWith(String prefix, Map<String, String> values) {
-        for (final String string : values.keySet()) {
-            if (string.startsWith(prefix)) {
-                return true;
+    private static Function<String, Object> numberConverter(Function<String, Object> parser) {
+        return stringValue -> {
+            try {
+                return parser.apply(stringValue);
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
             }
+        };
+    }
+
+    private static final class InjectionPlan {
+
+        private final List<OptionField> optionFields;
+
+        private final List<OptionField> envFields;
+
+        InjectionPlan(Class<?> type) {
+            this.optionFields = Collections.unmodifiableList(JkUtilsReflect.getAllDeclaredFields(type, true).stream()
+                    .filter(FieldInjector::isOptionField)
+                    .map(OptionField::new)
+                    .collect(Collectors.toList()));
+            this.envFields = Collections.unmodifiableList(optionFields.stream()
+                    .filter(optionField -> optionField.envName != null)
+                    .collect(Collectors.toList()));
         }
-        return false;
     }
 
-    private static Map<String, String> extractKeyStartingWith(String prefix,
-            Map<String, String> values) {
-        final Map<String, String> result = new HashMap<>();
-        for (final String string : values.keySet()) {
-            if (string.startsWith(prefix)) {
-                result.put(string.substring(prefix.length()), values.get(string));
+    private static final class OptionField {
+
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final Field field;
+
+        private final Function<String, Object> converter;
+
+        private final String envName;
+
+        private final boolean isFinal;
+
+        // null when the field can not be made accessible, so reflection is used and reports the failure
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        OptionField(Field field) {
+            this.field = field;
+            this.converter = converter(field.getType());
+            final JkEnv env = field.getAnnotation(JkEnv.class);
+            this.envName = env == null ? null : env.value();
+            this.isFinal = Modifier.isFinal(field.getModifiers());
+            MethodHandle getterHandle = null;
+            MethodHandle setterHandle = null;
+            try {
+                JkUtilsReflect.setAccessibleIfNeeded(field);
+                final MethodHandles.Lookup lookup = MethodHandles.lookup();
+                getterHandle = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                setterHandle = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (final RuntimeException | IllegalAccessException e) {
+                // keep reflection for this field
             }
+            this.getter = getterHandle;
+            this.setter = setterHandle;
+        }
+
+        void checkNotFinal() {
+            if (isFinal) {
+                throw new JkException("Can not set value on final " + field.getDeclaringClass().getName()
+                        + "#" + field.getName() + " field.");
+            }
+        }
+
+        Object get(Object target) {
+            if (getter == null) {
+                return JkUtilsReflect.getFieldValue(target, field);
+            }
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (final Throwable e) {
+                throw JkUtilsThrowable.unchecked(asException(e));
+            }
+        }
+
+        void set(Object target, Object value) {
+            if (setter == null) {
+                JkUtilsReflect.setFieldValue(target, field, value);
+                return;
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (final Throwable e) {
+                throw JkUtilsThrowable.unchecked(asException(e));
+            }
+        }
+
+        private static Exception asException(Throwable throwable) {
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+            return (Exception) throwable;
         }
-        return result;
     }
 
 }
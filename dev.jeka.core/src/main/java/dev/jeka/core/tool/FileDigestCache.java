@@ -0,0 +1,127 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Content digests of files, persisted in [Jeka user home]/cache/file-digests.txt along with the size and last
+ * modified time of each file. Files whose size and last modified time have not changed are not hashed again.
+ */
+final class FileDigestCache {
+
+    private static final FileDigestCache INSTANCE =
+            new FileDigestCache(JkLocator.getJekaUserHomeDir().resolve("cache/file-digests.txt"));
+
+    private final Path file;
+
+    // By absolute path, loaded lazily
+    private Map<String, Stamp> stamps;
+
+    private boolean dirty;
+
+    private FileDigestCache(Path file) {
+        this.file = file;
+    }
+
+    static FileDigestCache of() {
+        return INSTANCE;
+    }
+
+    static FileDigestCache of(Path file) {
+        return new FileDigestCache(file);
+    }
+
+    /**
+     * Returns the digest of the content of the specified file.
+     */
+    synchronized String digest(Path file) {
+        final String key = file.toAbsolutePath().normalize().toString();
+        final long size;
+        final long lastModified;
+        try {
+            size = Files.size(file);
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        final Stamp stamp = stamps().get(key);
+        if (stamp != null && stamp.size == size && stamp.lastModified == lastModified) {
+            return stamp.digest;
+        }
+        final String digest = Fingerprint.of().addContent(file).digest();
+        stamps().put(key, new Stamp(size, lastModified, digest));
+        dirty = true;
+        return digest;
+    }
+
+    /**
+     * Writes digests in Jeka user home, if any file has been hashed since last save.
+     */
+    synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final List<String> lines = new LinkedList<>();
+        stamps.forEach((path, stamp) -> lines.add(stamp.size + " " + stamp.lastModified + " " + stamp.digest
+                + " " + path));
+        try {
+            JkUtilsPath.createDirectories(file.getParent());
+            final Path temp = file.resolveSibling(file.getFileName() + "-" + UUID.randomUUID() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not save file digests in " + file + " : " + e.getMessage());
+        }
+    }
+
+    private Map<String, Stamp> stamps() {
+        if (stamps == null) {
+            stamps = load(file);
+        }
+        return stamps;
+    }
+
+    private static Map<String, Stamp> load(Path file) {
+        final Map<String, Stamp> result = new HashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        try {
+            for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                final String[] items = line.split(" ", 4);
+                if (items.length == 4) {
+                    result.put(items[3], new Stamp(Long.parseLong(items[0]), Long.parseLong(items[1]), items[2]));
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not read file digests from " + file + " : " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static final class Stamp {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String digest;
+
+        Stamp(long size, long lastModified, String digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+}
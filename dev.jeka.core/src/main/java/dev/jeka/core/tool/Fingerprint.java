@@ -0,0 +1,135 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Accumulates strings and file states into a SHA-1 digest. Used to compute keys for caching engine
+ * work (compiled def classes, resolved classpath, ...) across runs.
+ */
+final class Fingerprint {
+
+    private final MessageDigest messageDigest;
+
+    private Fingerprint() {
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    static Fingerprint of() {
+        return new Fingerprint();
+    }
+
+    Fingerprint add(String value) {
+        messageDigest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        messageDigest.update((byte) 0);
+        return this;
+    }
+
+    Fingerprint add(Iterable<String> values) {
+        values.forEach(this::add);
+        return this;
+    }
+
+    /**
+     * Adds the content of the specified file.
+     */
+    Fingerprint addContent(Path file) {
+        try (InputStream is = Files.newInputStream(file)) {
+            final byte[] buf = new byte[8192];
+            int len;
+            while ((len = is.read(buf)) != -1) {
+                messageDigest.update(buf, 0, len);
+            }
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        messageDigest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds path, size and last modified time of the specified file or of each file contained in the specified
+     * directory. This is cheaper than hashing content and suits well for classpath entries.
+     */
+    Fingerprint addStamp(Path fileOrDir) {
+        add(fileOrDir.toString());
+        if (!Files.exists(fileOrDir)) {
+            return add("-");
+        }
+        if (Files.isRegularFile(fileOrDir)) {
+            return addFileStamp(fileOrDir);
+        }
+        final List<Path> files;
+        try (Stream<Path> stream = JkUtilsPath.walk(fileOrDir)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+            add(fileOrDir.relativize(file).toString());
+            addFileStamp(file);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the content digest of the specified file or of each file contained in the specified directory, so the
+     * result does not depend on where the file lies nor on when it has been written. The specified file or
+     * directory is labeled by its path relative to the specified base dir if it lies in, or by its name otherwise.
+     * Digests are taken from the specified cache when files have not changed.
+     */
+    Fingerprint addContentDigest(Path fileOrDir, Path baseDir, FileDigestCache digestCache) {
+        final Path absolutePath = fileOrDir.toAbsolutePath().normalize();
+        final Path absoluteBaseDir = baseDir.toAbsolutePath().normalize();
+        final Path label = absolutePath.startsWith(absoluteBaseDir) ? absoluteBaseDir.relativize(absolutePath)
+                : absolutePath.getFileName();
+        add(String.valueOf(label).replace('\\', '/'));
+        if (!Files.exists(fileOrDir)) {
+            return add("-");
+        }
+        if (Files.isRegularFile(fileOrDir)) {
+            return add(digestCache.digest(fileOrDir));
+        }
+        final List<Path> files;
+        try (Stream<Path> stream = JkUtilsPath.walk(fileOrDir)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+            add(fileOrDir.relativize(file).toString().replace('\\', '/'));
+            add(digestCache.digest(file));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the hexadecimal representation of the digest. This instance should not be used anymore after.
+     */
+    String digest() {
+        return JkUtilsString.toHexString(messageDigest.digest()).toLowerCase();
+    }
+
+    private Fingerprint addFileStamp(Path file) {
+        try {
+            add(Long.toString(Files.size(file)));
+            add(Long.toString(Files.getLastModifiedTime(file).toMillis()));
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        return this;
+    }
+
+}
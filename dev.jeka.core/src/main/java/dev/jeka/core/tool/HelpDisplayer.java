@@ -50,8 +50,11 @@ final class HelpDisplayer {
         sb.append("  -LogBanner (shorthand -LB) : logs intro and outro banners.\n");
         sb.append("  -LogSetup (shorthand -LSU) : logs Jeka classes setup process.\n");
         sb.append("  -LogStyle (shorthand -LS) : choose the display log style : INDENT(default), BRACE, SQUARE or DEBUG.\n");
+        sb.append("  -LogProfile (shorthand -LP) : records duration of Jeka tasks and setup phases in the specified file, using Chrome trace format (ex : -LP=trace.json, default to jeka/output/jeka-trace.json).\n");
         sb.append("  -LogMaxLength (shorthand -LML) : Console will do a carriage return automatically after N characters are outputted in a single line (ex : -LML=120).\n");
         sb.append("  -JekaClass (shorthand -JKC) : Force to use the specified class as the Jeka class to invoke. It can be the short name of the class (without package prefix).\n");
+        sb.append("  -JekaSetup (shorthand -JKS) : performs a setup task instead of a regular run. 'cds' creates a Class Data Sharing archive from a run of the rest of the command line, so next Jeka launches start faster (ex : -JKS=cds java#pack). Requires Java 13 or later.\n");
+        sb.append("  -SubProjectWorkers (shorthand -SPW) : number of imported projects on which sub-project methods (ex : java#pack*) can run at the same time. Projects run after the ones they import. Default to 1.\n");
         return sb.toString();
     }
 
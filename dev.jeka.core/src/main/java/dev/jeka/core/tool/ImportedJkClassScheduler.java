@@ -0,0 +1,96 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLog;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/*
+ * Runs an action on imported Jeka classes, starting each one as soon as the Jeka classes it imports are done.
+ * Jeka classes not depending on each other are processed concurrently by a fixed number of workers.
+ * Once an action has failed, no other one is started and the failure is rethrown when running ones are over.
+ */
+final class ImportedJkClassScheduler {
+
+    private final int workerCount;
+
+    private ImportedJkClassScheduler(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    static ImportedJkClassScheduler of(int workerCount) {
+        return new ImportedJkClassScheduler(Math.max(1, workerCount));
+    }
+
+    /**
+     * Runs the specified action on the specified Jeka classes. Jeka classes are expected to be ordered so that
+     * each one comes after the ones it imports, as {@link JkImportedJkClasses#getAll()} does.
+     */
+    void run(List<JkClass> jkClasses, Consumer<JkClass> action) {
+        if (workerCount == 1 || jkClasses.size() <= 1) {
+            jkClasses.forEach(action);
+            return;
+        }
+        final int threadCount = Math.min(workerCount, jkClasses.size());
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-sub-project");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        final int nestedLevel = JkLog.getCurrentNestedLevel();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Map<Path, CompletableFuture<Void>> results = new LinkedHashMap<>();
+        try {
+            for (final JkClass jkClass : jkClasses) {
+                final CompletableFuture<?>[] importResults = jkClass.getImportedJkClasses().getDirects().stream()
+                        .map(imported -> results.get(key(imported)))
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture[]::new);
+                final CompletableFuture<Void> result = CompletableFuture.allOf(importResults).thenRunAsync(() -> {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    JkLog.isolateNesting(nestedLevel);
+                    try {
+                        action.accept(jkClass);
+                    } catch (final RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        JkLog.shareNesting();
+                    }
+                }, executorService);
+                results.putIfAbsent(key(jkClass), result);
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0])).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (failure.get() == null) {
+                throw e;
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static Path key(JkClass jkClass) {
+        return jkClass.getBaseDir().toAbsolutePath().normalize();
+    }
+
+}
@@ -4,6 +4,7 @@ import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
 import dev.jeka.core.api.depmanagement.JkDependencySet;
 import dev.jeka.core.api.file.JkPathTree;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.system.JkTraceRecorder;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsObject;
 import dev.jeka.core.api.utils.JkUtilsReflect;
@@ -121,9 +122,15 @@ public class JkClass {
         final JkClass jkClassInstance = jkCkass;
 
         // Inject options & environment variables
-        JkOptions.populateFields(jkCkass, JkOptions.readSystemAndUserOptions());
-        FieldInjector.injectEnv(jkCkass);
-        Set<String> unusedCmdOptions = JkOptions.populateFields(jkCkass, Environment.commandLine.getCommandOptions());
+        JkTraceRecorder.begin("Inject options in " + jkClass.getName());
+        final Set<String> unusedCmdOptions;
+        try {
+            JkOptions.populateFields(jkCkass, JkOptions.readSystemAndUserOptions());
+            FieldInjector.injectEnv(jkCkass);
+            unusedCmdOptions = JkOptions.populateFields(jkCkass, Environment.commandLine.getCommandOptions());
+        } finally {
+            JkTraceRecorder.end();
+        }
         unusedCmdOptions.forEach(key -> JkLog.warn("Option '" + key
                 + "' from command line does not match with any field of class " + jkCkass.getClass().getName()));
 
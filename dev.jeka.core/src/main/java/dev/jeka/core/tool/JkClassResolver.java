@@ -66,32 +66,38 @@ final class JkClassResolver {
                 "**.java", "*.java").count(0, false) > 0;
     }
 
+    /**
+     * Returns <code>true</code> if def sources have changed since their last successful compilation. This compares
+     * source hashes with the ones recorded at compile time, so no def class is loaded to decide.
+     */
     boolean needCompile() {
         if (!this.hasDefSource()) {
             JkLog.trace("No def sources found. Skip compile.");
             return false;
         }
-        final JkPathTree dir = JkPathTree.of(defSourceDir);
-        for (final Path path : dir.getRelativeFiles()) {
-            final String pathName = path.toString();
-            if (pathName.endsWith(".java")) {
-                final String simpleName;
-                if (pathName.contains(File.pathSeparator)) {
-                    simpleName = JkUtilsString.substringAfterLast(pathName, File.separator);
-                } else {
-                    simpleName = pathName;
-                }
-                if (simpleName.startsWith("_")) {
-                    continue;
-                }
-                final Class<?> clazz = JkClassLoader.ofCurrent()
-                        .loadGivenClassSourcePathIfExist(pathName);
-                if (clazz == null) {
-                    return true;
-                } else {
-                    JkLog.trace("Def class " + clazz + " already present in classpath.");
-                }
+        final DefCompileState compileState = DefCompileState.load(
+                defClassDir.resolveSibling(DefCompileState.FILE_NAME));
+        if (compileState != null) {
+            if (compileState.isUpToDate(DefCompileState.hashFiles(defSourceDir), defClassDir)) {
+                JkLog.trace("Def classes are up to date. Skip compile.");
+                return false;
+            }
+            JkLog.trace("Def sources have changed since last compilation.");
+            return true;
+        }
+
+        // No compile state : def classes may have been compiled by an IDE
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        for (final Path path : JkPathTree.of(defSourceDir).andMatching(true, "**.java").getRelativeFiles()) {
+            final String pathName = path.toString().replace(File.separatorChar, '/');
+            if (JkUtilsString.substringAfterLast("/" + pathName, "/").startsWith("_")) {
+                continue;
+            }
+            final String classResource = JkUtilsString.substringBeforeLast(pathName, ".java") + ".class";
+            if (classLoader.getResource(classResource) == null) {
+                return true;
             }
+            JkLog.trace("Def class " + classResource + " already present in classpath.");
         }
         JkLog.trace("All def classes are already present in classpath. Skip compile.");
         return false;
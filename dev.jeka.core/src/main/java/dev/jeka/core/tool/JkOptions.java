@@ -29,6 +29,11 @@ public final class JkOptions {
         INSTANCE.props.putAll(map);
     }
 
+    // Forgets options set by a previous run within the same JVM
+    static synchronized void reset() {
+        INSTANCE = new JkOptions(readSystemAndUserOptions());
+    }
+
     private JkOptions(Map<String, String> options) {
         props.putAll(options);
     }
@@ -0,0 +1,180 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Index of the plugins contained in a jar or a class directory, stored in <code>META-INF/jeka-plugins.idx</code>.
+ * Each line of this file maps a plugin short name to its class name, as <code>java=dev.jeka.core.tool.builtins.java.JkPluginJava</code>.<p>
+ * When a classpath entry contains such an index, Jeka discovers the plugins it contains without scanning it.
+ * The index is generated automatically by the <i>java</i> plugin, right after compilation.
+ */
+public final class JkPluginIndex {
+
+    /**
+     * Path of the index file, relative to the classpath entry root.
+     */
+    public static final String RESOURCE_PATH = "META-INF/jeka-plugins.idx";
+
+    private static final String PLUGIN_CLASS_PREFIX = JkPlugin.class.getSimpleName();
+
+    // short name -> class names
+    private final Map<String, List<String>> classNames;
+
+    private final Set<Path> indexedEntries;
+
+    private JkPluginIndex(Map<String, List<String>> classNames, Set<Path> indexedEntries) {
+        this.classNames = classNames;
+        this.indexedEntries = indexedEntries;
+    }
+
+    /**
+     * Writes the index of plugin classes lying in the specified class directory. If the directory does not contain
+     * any plugin classes, no index is written.
+     * @return The number of indexed plugins.
+     */
+    public static int write(Path classDir) {
+        final Path indexFile = classDir.resolve(RESOURCE_PATH);
+        JkUtilsPath.deleteIfExists(indexFile);
+        final List<Path> candidates = JkPathTree.of(classDir)
+                .andMatching(true, PLUGIN_CLASS_PREFIX + "*.class", "**/" + PLUGIN_CLASS_PREFIX + "*.class",
+                        "**/*$" + PLUGIN_CLASS_PREFIX + "*.class")
+                .getFiles();
+        final StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (final Path classFile : candidates) {
+            final ClassFileInfo classFileInfo = ClassFileInfo.read(classFile);
+            final String className = classFileInfo.className.replace('/', '.');
+            if (!classFileInfo.isConcrete() || !simpleName(className).startsWith(PLUGIN_CLASS_PREFIX)
+                    || !mayExtendPlugin(classDir, classFileInfo)) {
+                continue;
+            }
+            sb.append(shortName(className)).append('=').append(className).append('\n');
+            count++;
+        }
+        if (count > 0) {
+            JkUtilsPath.createDirectories(indexFile.getParent());
+            JkUtilsPath.write(indexFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+            JkLog.trace("Plugin index written in " + indexFile);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the union of all plugin indexes found in the specified class loader.
+     */
+    static JkPluginIndex of(ClassLoader classLoader) {
+        final Map<String, List<String>> classNames = new TreeMap<>();
+        final Set<Path> indexedEntries = new HashSet<>();
+        final Enumeration<URL> urls;
+        try {
+            urls = classLoader.getResources(RESOURCE_PATH);
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        while (urls.hasMoreElements()) {
+            final URL url = urls.nextElement();
+            final Path entry = classpathEntry(url);
+            if (entry == null || !indexedEntries.add(entry)) {
+                continue;
+            }
+            try (InputStream inputStream = url.openStream()) {
+                for (final String line : JkUtilsIO.readAsLines(inputStream)) {
+                    final String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#") || !trimmed.contains("=")) {
+                        continue;
+                    }
+                    final String shortName = JkUtilsString.substringBeforeFirst(trimmed, "=").trim();
+                    final String className = JkUtilsString.substringAfterFirst(trimmed, "=").trim();
+                    classNames.computeIfAbsent(shortName, key -> new LinkedList<>()).add(className);
+                }
+            } catch (final IOException e) {
+                throw JkUtilsThrowable.unchecked(e, "Error while reading plugin index " + url);
+            }
+        }
+        return new JkPluginIndex(classNames, indexedEntries);
+    }
+
+    List<String> getClassNames(String shortName) {
+        return classNames.getOrDefault(shortName, Collections.emptyList());
+    }
+
+    List<String> getAllClassNames() {
+        final List<String> result = new LinkedList<>();
+        classNames.values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified jar or class directory contains a plugin index.
+     */
+    boolean isIndexed(Path classpathEntry) {
+        return indexedEntries.contains(classpathEntry.toAbsolutePath().normalize());
+    }
+
+    /*
+     * Returns false if the class is known to not extend JkPlugin. Super classes lying outside the specified dir can not
+     * be inspected, so they are assumed to be plugins.
+     */
+    private static boolean mayExtendPlugin(Path classDir, ClassFileInfo classFileInfo) {
+        final String pluginClassName = JkPlugin.class.getName().replace('.', '/');
+        String superClassName = classFileInfo.superClassName;
+        while (superClassName != null) {
+            if (superClassName.equals(pluginClassName)) {
+                return true;
+            }
+            if (superClassName.equals("java/lang/Object")) {
+                return false;
+            }
+            final Path superClassFile = classDir.resolve(superClassName + ".class");
+            if (!Files.exists(superClassFile)) {
+                return true;
+            }
+            superClassName = ClassFileInfo.read(superClassFile).superClassName;
+        }
+        return false;
+    }
+
+    private static String simpleName(String className) {
+        return className.contains("$") ? JkUtilsString.substringAfterLast(className, "$")
+                : JkUtilsString.substringAfterLast("." + className, ".");
+    }
+
+    private static String shortName(String className) {
+        return JkUtilsString.uncapitalize(JkUtilsString.substringAfterFirst(simpleName(className),
+                PLUGIN_CLASS_PREFIX));
+    }
+
+    private static Path classpathEntry(URL url) {
+        try {
+            final String urlString = url.toString();
+            if (urlString.startsWith("jar:")) {
+                final String jarUri = JkUtilsString.substringBeforeFirst(
+                        JkUtilsString.substringAfterFirst(urlString, "jar:"), "!");
+                return Paths.get(new URI(jarUri)).toAbsolutePath().normalize();
+            }
+            if ("file".equals(url.getProtocol())) {
+                return Paths.get(url.toURI()).getParent().getParent().toAbsolutePath().normalize();
+            }
+        } catch (final URISyntaxException | RuntimeException e) {
+            JkLog.trace("Can not locate classpath entry of plugin index " + url + " : " + e.getMessage());
+        }
+        return null;
+    }
+
+}
@@ -2,6 +2,7 @@ package dev.jeka.core.tool;
 
 import dev.jeka.core.api.java.JkClassLoader;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.system.JkTraceRecorder;
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsSystem;
@@ -33,10 +34,21 @@ public final class Main {
             JkClassLoader.of(urlClassLoader).invokeStaticMethod(false, "dev.jeka.core.tool.Main", "main" , argArray);
             return;
         }
+        System.exit(run(args)); // Triggers shutdown hooks
+    }
+
+    /**
+     * Runs Jeka in the current working directory and returns the process exit code, without exiting the JVM.
+     * The current context class loader is expected to be an {@link URLClassLoader}.
+     */
+    static int run(String[] args) {
         final long start = System.nanoTime();
         JkUtilsSystem.disableUnsafeWarning();
         try {
             Environment.initialize(args);
+            if (Environment.standardOptions.logProfileFile() != null) {
+                JkTraceRecorder.start();
+            }
             JkLog.setConsumer(Environment.standardOptions.logStyle);
             final JkLog.Verbosity verbosity = JkLog.verbosity();
             if (Environment.standardOptions.logBanner) {
@@ -45,16 +57,20 @@ public final class Main {
             if (Environment.standardOptions.logRuntimeInformation != null) {
                 JkInit.displayRuntimeInfo();
             }
+            final Path workingDir = Paths.get("").toAbsolutePath();
+            if (Environment.standardOptions.jekaSetup != null) {
+                setup(Environment.standardOptions.jekaSetup, workingDir, args);
+                return 0;
+            }
             if (!Environment.standardOptions.logSetup) {
                 JkLog.setVerbosity(JkLog.Verbosity.WARN_AND_ERRORS);
             }
-            final Path workingDir = Paths.get("").toAbsolutePath();
             final Engine engine = new Engine(workingDir);
             engine.execute(Environment.commandLine, verbosity);
             if (Environment.standardOptions.logBanner) {
                 displayOutro(start);
             }
-            System.exit(0); // Triggers shutdown hooks
+            return 0;
         } catch (final RuntimeException e) {
             JkLog.JkEventLogConsumer consumer = JkLog.getConsumer();
             if (consumer != null) {
@@ -79,7 +95,22 @@ public final class Main {
             } else {
                 System.err.println("Failed !");
             }
-            System.exit(1);
+            return 1;
+        } finally {
+            if (JkTraceRecorder.isRecording()) {
+                final Path traceFile = Environment.standardOptions.logProfileFile();
+                JkTraceRecorder.stop(traceFile);
+                System.out.println("Timing trace written in " + traceFile.toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    private static void setup(String setupName, Path workingDir, String[] args) {
+        if (CdsArchive.SETUP_NAME.equals(setupName)) {
+            CdsArchive.create(workingDir, args);
+        } else {
+            throw new JkException("Unknown setup '%s'. Available setups are : %s.", setupName,
+                    CdsArchive.SETUP_NAME);
         }
     }
 
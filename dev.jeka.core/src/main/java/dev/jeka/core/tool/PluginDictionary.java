@@ -1,13 +1,20 @@
 package dev.jeka.core.tool;
 
 import dev.jeka.core.api.java.JkClassLoader;
+import dev.jeka.core.api.java.JkClasspath;
 import dev.jeka.core.api.java.JkInternalClasspathScanner;
+import dev.jeka.core.api.java.JkUrlClassLoader;
 import dev.jeka.core.api.utils.JkUtilsReflect;
 import dev.jeka.core.api.utils.JkUtilsString;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URLClassLoader;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /*
@@ -20,6 +27,9 @@ import java.util.stream.Collectors;
  * The naming convention is as follow : The class simple name should be prefixed
  * with 'JkPlugin'.<br/>
  * For example, 'my.package.JkPluginXxxxx' will be discovered as a plugin named Xxxxx.
+ * <p>
+ * Plugins are first looked up in {@link JkPluginIndex} files, the classpath entries not having such
+ * an index are scanned.
  *
  * @author Jerome Angibaud
  * 
@@ -31,6 +41,13 @@ final class PluginDictionary {
 
     private Set<PluginDescription> plugins;
 
+    /**
+     * Forgets plugins found so far. Needed when def classes are reloaded in a new class loader.
+     */
+    static void clearCache() {
+        SHORTNAME_CACHE.clear();
+    }
+
     /**
      * Returns all the plugins present in classpath for this template class.
      */
@@ -76,8 +93,10 @@ final class PluginDictionary {
 
     private static <T> Set<PluginDescription> loadAllPlugins() {
         final String nameSuffix = JkPlugin.class.getSimpleName();
-        Set<PluginDescription> result = toPluginDescriptions(JkInternalClasspathScanner.INSTANCE
-                .loadClassesHavingSimpleNameMatching(name -> name.startsWith(nameSuffix)));
+        final JkPluginIndex index = JkPluginIndex.of(JkClassLoader.ofCurrent().get());
+        final Set<Class<?>> classes = loadClasses(index.getAllClassNames());
+        classes.addAll(scanNonIndexedEntries(index, name -> name.startsWith(nameSuffix)));
+        Set<PluginDescription> result = toPluginDescriptions(classes);
         for(PluginDescription pluginDescription : result) {
             SHORTNAME_CACHE.put(pluginDescription.shortName, pluginDescription);
         }
@@ -90,7 +109,9 @@ final class PluginDictionary {
             return result;
         }
         final String simpleName = simpleClassName(shortName);
-        Set<Class<?>> classes = JkInternalClasspathScanner.INSTANCE.loadClassesHavingSimpleName(simpleName );
+        final JkPluginIndex index = JkPluginIndex.of(JkClassLoader.ofCurrent().get());
+        final Set<Class<?>> classes = loadClasses(index.getClassNames(shortName));
+        classes.addAll(scanNonIndexedEntries(index, name -> name.equals(simpleName)));
         final Set<PluginDescription> set = toPluginDescriptions(classes);
         if (set.size() > 1) {
             throw new JkException("Several plugin have the same short name : '" + shortName
@@ -105,6 +126,47 @@ final class PluginDictionary {
         return result;
     }
 
+    private static Set<Class<?>> loadClasses(List<String> classNames) {
+        final Set<Class<?>> result = new HashSet<>();
+        for (final String className : classNames) {
+            final Class<?> clazz = JkClassLoader.ofCurrent().loadIfExist(className);
+            if (clazz != null) {
+                result.add(clazz);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Scans classpath entries that does not contain a plugin index. The scan is skipped if all entries are indexed.
+     */
+    private static Set<Class<?>> scanNonIndexedEntries(JkPluginIndex index, Predicate<String> simpleNamePredicate) {
+        final boolean allIndexed = currentClasspath().stream().allMatch(index::isIndexed);
+        if (allIndexed) {
+            return Collections.emptySet();
+        }
+        return JkInternalClasspathScanner.INSTANCE.loadClassesHavingSimpleNameMatching(simpleNamePredicate,
+                classpathElement -> !isIndexed(index, classpathElement));
+    }
+
+    private static boolean isIndexed(JkPluginIndex index, String classpathElement) {
+        try {
+            return index.isIndexed(Paths.get(classpathElement));
+        } catch (final InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static List<Path> currentClasspath() {
+        final List<Path> result = new LinkedList<>();
+        final ClassLoader classLoader = JkClassLoader.ofCurrent().get();
+        if (classLoader instanceof URLClassLoader) {
+            JkUrlClassLoader.of((URLClassLoader) classLoader).getFullClasspath().forEach(result::add);
+        }
+        JkClasspath.ofCurrentRuntime().forEach(result::add);
+        return result;
+    }
+
     private static PluginDescription loadPluginsHavingLongName(String longName) {
         final Class<? extends JkPlugin> pluginClass = JkClassLoader.ofCurrent().loadIfExist(longName);
         if (pluginClass == null) {
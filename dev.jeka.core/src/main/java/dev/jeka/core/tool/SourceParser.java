@@ -9,45 +9,95 @@ import dev.jeka.core.api.utils.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
- * Without doubt, the most crappy code of this project.
+ * Extracts values of @JkDefClasspath, @JkDefRepo, @JkDefImport and @JkCompileOption annotations from def sources.
  * The important point is that we achieve parsing without using any dependencies : just the JDK.
  *
+ * Sources are read by a single pass lexer skipping comments, string and char literals. As def sources rarely
+ * change, parse results are cached in memory, keyed by file size and modification time, and persisted in
+ * jeka/.work so each file is parsed at most once per process and usually not at all.
+ *
  * @author Jerome Angibaud
  */
 final class SourceParser {
 
-    private static SourceParser of(Path baseDir, Path code) {
-        return of(baseDir, JkUtilsPath.toUrl(code));
-    }
+    static final String CACHE_FILE_NAME = "def-source-annotations.ser";
+
+    // absolute path of source file -> parse result, shared by all projects parsed in this process
+    private static final Map<Path, Annotations> PARSED_FILES = new ConcurrentHashMap<>();
+
+    private static final Set<Path> LOADED_CACHE_FILES = ConcurrentHashMap.newKeySet();
 
     public static SourceParser of(Path baseDir, Iterable<Path>  files) {
+        final Path cacheFile = baseDir.resolve(JkConstants.WORK_PATH).resolve(CACHE_FILE_NAME);
+        loadCache(cacheFile);
+        final Map<String, Annotations> parsedFiles = new HashMap<>();
+        boolean parsedAny = false;
         SourceParser result = new SourceParser(JkDependencySet.of(), JkRepoSet.of(),
                 new LinkedHashSet<>(), new LinkedList<>());
         for (final Path code : files) {
-            result = result.and(of(baseDir, code));
+            final Path file = code.toAbsolutePath().normalize();
+            final long size;
+            final long lastModified;
+            try {
+                size = Files.size(file);
+                lastModified = Files.getLastModifiedTime(file).toMillis();
+            } catch (final IOException e) {
+                throw JkUtilsThrowable.unchecked(e);
+            }
+            Annotations annotations = PARSED_FILES.get(file);
+            if (annotations == null || annotations.size != size || annotations.lastModified != lastModified) {
+                annotations = Annotations.parse(new String(JkUtilsPath.readAllBytes(file), StandardCharsets.UTF_8),
+                        file.toString(), size, lastModified);
+                PARSED_FILES.put(file, annotations);
+                parsedAny = true;
+            }
+            parsedFiles.put(file.toString(), annotations);
+            result = result.and(of(baseDir, annotations));
+        }
+        if (parsedAny && Files.isDirectory(baseDir.resolve(JkConstants.JEKA_DIR))) {
+            JkUtilsPath.createDirectories(cacheFile.getParent());
+            JkUtilsIO.serialize(parsedFiles, cacheFile);
         }
         return result;
     }
 
     static SourceParser of(Path baseDir, URL codeUrl) {
         try (final InputStream inputStream = JkUtilsIO.inputStream(codeUrl)) {
-            final String uncomentedCode = removeComments(inputStream);
-            final JkDependencySet deps = dependencies(uncomentedCode, baseDir, codeUrl);
-            final LinkedHashSet<Path> projects = projects(uncomentedCode, baseDir, codeUrl);
-            final List<String> compileOptions = compileOptions(uncomentedCode, codeUrl);
-            return new SourceParser(deps, repos(uncomentedCode, codeUrl), projects, compileOptions);
+            return of(baseDir, Annotations.parse(JkUtilsIO.readAsString(inputStream), codeUrl.toString(), 0, 0));
         } catch (IOException e) {
             throw JkUtilsThrowable.unchecked(e);
         }
     }
 
+    private static SourceParser of(Path baseDir, Annotations annotations) {
+        return new SourceParser(dependenciesFromImports(baseDir, annotations.classpath),
+                JkRepoSet.of(annotations.repos.toArray(new String[0])),
+                projectDependencies(baseDir, annotations.imports),
+                annotations.compileOptions);
+    }
+
+    private static void loadCache(Path cacheFile) {
+        if (!LOADED_CACHE_FILES.add(cacheFile) || !Files.exists(cacheFile)) {
+            return;
+        }
+        try {
+            final Map<String, Annotations> cached = JkUtilsIO.deserialize(cacheFile);
+            cached.forEach((path, annotations) -> PARSED_FILES.putIfAbsent(Paths.get(path), annotations));
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read def source parse cache " + cacheFile + " : " + e.getMessage());
+        }
+    }
+
     private final JkDependencySet dependencies;
 
     private final JkRepoSet importRepos;
@@ -65,7 +115,6 @@ final class SourceParser {
         this.compileOptions = compileOptions;
     }
 
-    @SuppressWarnings("unchecked")
     private SourceParser and(SourceParser other) {
         LinkedHashSet<Path> allDependencyProjects = new LinkedHashSet<>(this.dependencyProjects);
         allDependencyProjects.addAll(other.dependencyProjects);
@@ -91,35 +140,14 @@ final class SourceParser {
         return this.compileOptions;
     }
 
-    private static JkDependencySet dependencies(String code, Path baseDir, URL url) {
-        final List<String> deps = stringsInJkImport(code, url);
-        return dependenciesFromImports(baseDir, deps);
-    }
-
-    private static JkRepoSet repos(String code, URL url) {
-        final List<String> repoUrls = stringsInAnnotation(code, JkDefRepo.class, url);
-        return JkRepoSet.of(repoUrls.toArray(new String[0]));
-    }
-
-    private static LinkedHashSet<Path>  projects(String code, Path baseDir, URL url) {
-        final List<String> deps = jkImportRun(code, url);
-        return projectDependencies(baseDir, deps);
-    }
-
-    private static List<String>  compileOptions(String code, URL url) {
-        return stringsInAnnotation(code, JkCompileOption.class, url);
-    }
-
     private static JkDependencySet dependenciesFromImports(Path baseDir, List<String> deps) {
         JkDependencySet result = JkDependencySet.of();
         for (final String dependency : deps) {
             if (isModuleDependencyDescription(dependency)) {
                 result = result.and(JkModuleDependency.of(dependency));
             } else  if (dependency.contains("*")) {
-                if (dependency.contains("*")) {
-                    for (Path path : JkPathTree.of(baseDir).andMatching(true, dependency).getFiles()) {
-                        result = result.andFiles(path);
-                    }
+                for (Path path : JkPathTree.of(baseDir).andMatching(true, dependency).getFiles()) {
+                    result = result.andFiles(path);
                 }
             } else {
                 Path depFile = Paths.get(dependency);
@@ -138,7 +166,6 @@ final class SourceParser {
         return result;
     }
 
-
     /**
      * Returns <code>true</code> if the candidate string is a valid module dependency description.
      */
@@ -159,244 +186,255 @@ final class SourceParser {
         return projects;
     }
 
-    private static List<String> stringsInJkImport(String code, URL url) {
-        return stringsInAnnotation(code, JkDefClasspath.class, url);
-    }
+    /*
+     * String values of the annotations of interest found in a source file.
+     */
+    private static final class Annotations implements Serializable {
 
-    @SuppressWarnings("unchecked")
-    private static List<String> stringsInAnnotation(String code, Class<?> annotationClass, URL url) {
-        final List<String> result = new LinkedList<>();
-        try (final Scanner scanner = new Scanner(code)){
-            scanner.useDelimiter("");
-
-            while (scanner.hasNext()) {
-                final String jkImportWord = scanner.findInLine("@" + annotationClass.getSimpleName());
-                if (jkImportWord == null) {
-                    final String nextLine = scanner.nextLine();
-                    if (removeQuotes(nextLine).contains("class ")) {
-                        return Collections.EMPTY_LIST;
-                    }
-                    continue;
-                }
-                final String context = " parsing @" + annotationClass.getSimpleName();
-                final String between = extractStringTo(scanner, "(", url, context);
-                if (!containsOnly(between, " ", "\n", "\r", "\t")) {
-                    continue;
-                }
-                result.addAll(scanInsideAnnotation(scanner, url, context));
-            }
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final List<String> classpath = new ArrayList<>();
+
+        private final List<String> repos = new ArrayList<>();
+
+        private final List<String> imports = new ArrayList<>();
+
+        private final List<String> compileOptions = new ArrayList<>();
+
+        private Annotations(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
         }
-        return result;
-    }
 
+        static Annotations parse(String code, String location, long size, long lastModified) {
+            final Annotations result = new Annotations(size, lastModified);
+            new Lexer(code, location, result).run();
+            return result;
+        }
 
-    private static boolean containsOnly(String stringToMatch, String... candidates) {
-        String left = stringToMatch;
-        for (final String candidate : candidates) {
-            left = left.replace(candidate, "");
+        List<String> valuesOf(String annotationName) {
+            if (annotationName.equals(JkDefClasspath.class.getSimpleName())) {
+                return classpath;
+            }
+            if (annotationName.equals(JkDefRepo.class.getSimpleName())) {
+                return repos;
+            }
+            if (annotationName.equals(JkDefImport.class.getSimpleName())) {
+                return imports;
+            }
+            if (annotationName.equals(JkCompileOption.class.getSimpleName())) {
+                return compileOptions;
+            }
+            return null;
         }
-        return left.isEmpty();
-    }
 
-    private static List<String> jkImportRun(String code, URL url) {
-        return stringsInAnnotation(code, JkDefImport.class, url);
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<String> scanInsideAnnotation(Scanner scanner, URL url, String context) {
+    /*
+     * Single pass lexer collecting string values of annotations of interest. Annotations are recognized
+     * outside of comments and literals, with simple or qualified name. Only strings of the 'value' element
+     * are collected, either given as a single string or as an array.
+     */
+    private static final class Lexer {
+
+        private final String code;
+
+        private final String location;
 
-        final String betweenParenthesis = extractStringTo(scanner, ")", url, context);
-        final List<String> items = splitIgnoringQuotes(betweenParenthesis);
-        for (final String item : items) {
-            final String trimedItem = item.trim();
-            if (trimedItem.startsWith("\"")) {
-                return JkUtilsIterable.listOf(withoutQuotes(trimedItem));
+        private final Annotations annotations;
+
+        private int pos;
+
+        Lexer(String code, String location, Annotations annotations) {
+            this.code = code;
+            this.location = location;
+            this.annotations = annotations;
+        }
+
+        void run() {
+            while (pos < code.length()) {
+                final char c = code.charAt(pos);
+                if (c == '/' && skipComment()) {
+                    continue;
+                }
+                if (c == '"') {
+                    readString();
+                } else if (c == '\'') {
+                    skipCharLiteral();
+                } else if (c == '@') {
+                    pos++;
+                    readAnnotation();
+                } else {
+                    pos++;
+                }
+            }
+        }
+
+        private void readAnnotation() {
+            skipBlanks();
+            final String name = readQualifiedName();
+            final List<String> target = annotations.valuesOf(name.substring(name.lastIndexOf('.') + 1));
+            if (target == null) {
+                return;
             }
-            if (trimedItem.startsWith("{")) {
-                return curlyBraceToStrings(betweenParenthesis, url, context);
+            skipBlanks();
+            if (pos >= code.length() || code.charAt(pos) != '(') {
+                return;
             }
-            if (trimedItem.startsWith("value ") || trimedItem.startsWith("of=")) {
-                final String after = JkUtilsString.substringAfterFirst(trimedItem, "=").trim();
-                if (after.startsWith("\"")) {
-                    return JkUtilsIterable.listOf(withoutQuotes(after));
+            pos++;
+            final int start = pos;
+            boolean valueElement = true;
+            boolean elementStart = true;
+            int depth = 0;
+            while (pos < code.length()) {
+                final char c = code.charAt(pos);
+                if (c == '/' && skipComment()) {
+                    continue;
                 }
-                if (after.startsWith("{")) {
-                    return curlyBraceToStrings(after, url, context);
+                if (elementStart && Character.isJavaIdentifierStart(c)) {
+                    final String elementName = readQualifiedName();
+                    skipBlanks();
+                    if (pos < code.length() && code.charAt(pos) == '=') {
+                        valueElement = elementName.equals("value");
+                        pos++;
+                    }
+                    elementStart = false;
+                    continue;
+                }
+                if (c == '"') {
+                    final String value = readConcatenatedStrings();
+                    if (valueElement) {
+                        target.add(value);
+                    }
+                    elementStart = false;
+                    continue;
+                }
+                if (c == '(' || c == '{') {
+                    depth++;
+                } else if (c == '}' ) {
+                    depth--;
+                } else if (c == ')') {
+                    if (depth == 0) {
+                        pos++;
+                        return;
+                    }
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    valueElement = true;
+                    elementStart = true;
+                } else if (c == '\'') {
+                    skipCharLiteral();
+                    continue;
+                } else if (!Character.isWhitespace(c)) {
+                    elementStart = false;
                 }
+                pos++;
+            }
+            throw new JkException("No matching ) found parsing @%s in %s : %s", name, location,
+                    code.substring(start, Math.min(code.length(), start + 80)));
+        }
+
+        // Reads string literals joined by '+', as "org.foo:bar:" + "1.0"
+        private String readConcatenatedStrings() {
+            final StringBuilder result = new StringBuilder(readString());
+            while (true) {
+                final int previousPos = pos;
+                skipBlanks();
+                if (pos < code.length() && code.charAt(pos) == '+') {
+                    pos++;
+                    skipBlanks();
+                    if (pos < code.length() && code.charAt(pos) == '"') {
+                        result.append(readString());
+                        continue;
+                    }
+                }
+                pos = previousPos;
+                return result.toString();
             }
         }
-        return Collections.EMPTY_LIST;
-    }
 
-    private static List<String> curlyBraceToStrings(String input, URL url, String context) {
-        final Scanner innerScanner = new Scanner(input);
-        innerScanner.useDelimiter("");
-        final String braced = extractStringTo(innerScanner, "}", url, context);
-        final List<String> elements = splitIgnoringQuotes(braced);
-        final List<String> result = new LinkedList<>();
-        for (final String element : elements) {
-            result.add(withoutQuotes(element));
+        private String readQualifiedName() {
+            final int start = pos;
+            while (pos < code.length()
+                    && (Character.isJavaIdentifierPart(code.charAt(pos)) || code.charAt(pos) == '.')) {
+                pos++;
+            }
+            return code.substring(start, pos);
         }
-        return result;
-    }
 
-    private static String withoutQuotes(String string) {
-        return JkUtilsString.substringBeforeLast(JkUtilsString.substringAfterFirst(string, "\""),
-                "\"");
-    }
+        private void skipBlanks() {
+            while (pos < code.length()) {
+                if (Character.isWhitespace(code.charAt(pos))) {
+                    pos++;
+                } else if (code.charAt(pos) != '/' || !skipComment()) {
+                    return;
+                }
+            }
+        }
 
-    private static List<String> splitIgnoringQuotes(String input) {
-        final List<String> result = new LinkedList<>();
-        int start = 0;
-        boolean inQuotes = false;
-        for (int current = 0; current < input.length(); current++) {
-            if (input.charAt(current) == '\"') {
-                inQuotes = !inQuotes; // toggle state
+        // Returns false if there is no comment at current position
+        private boolean skipComment() {
+            if (code.startsWith("//", pos)) {
+                final int end = code.indexOf('\n', pos);
+                pos = end < 0 ? code.length() : end + 1;
+                return true;
             }
-            final boolean atLastChar = (current == input.length() - 1);
-            if (atLastChar) {
-                result.add(input.substring(start));
-            } else if (input.charAt(current) == ',' && !inQuotes) {
-                result.add(input.substring(start, current));
-                start = current + 1;
+            if (code.startsWith("/*", pos)) {
+                final int end = code.indexOf("*/", pos + 2);
+                pos = end < 0 ? code.length() : end + 2;
+                return true;
             }
+            return false;
         }
-        return result;
-    }
 
-    private static String extractStringTo(Scanner scanner, String delimiter, URL url, String context) {
-        boolean inQuote = false;
-        boolean escaping = false;
-        final StringBuilder builder = new StringBuilder();
-        final StringBuilder all = new StringBuilder();
-        while (scanner.hasNext()) {
-            final String character = scanner.next();
-            all.append(character);
-            if (!inQuote) {
-                if (character.equals("\"")) {
-                    inQuote = true;
-                    builder.append(character);
-                } else if (character.equals(delimiter)) {
-                    return builder.toString();
+        // Reads a string literal, or a text block, starting at current position
+        private String readString() {
+            final boolean textBlock = code.startsWith("\"\"\"", pos);
+            pos += textBlock ? 3 : 1;
+            final StringBuilder result = new StringBuilder();
+            while (pos < code.length()) {
+                final char c = code.charAt(pos++);
+                if (c == '\\' && pos < code.length()) {
+                    result.append(unescape(code.charAt(pos++)));
+                } else if (c == '"' && (!textBlock || code.startsWith("\"\"", pos))) {
+                    pos += textBlock ? 2 : 0;
+                    return result.toString();
+                } else if (c == '\n' && !textBlock) {
+                    return result.toString();
                 } else {
-                    builder.append(character);
-                }
-            } else if (escaping) {
-                escaping = false;
-            } else { // in quote
-                switch (character) {
-                    case "\\":
-                        escaping = true;
-                        break;
-                    case "\"":
-                        inQuote = false;
-                        builder.append(character);
-                        break;
-                    default:
-                        builder.append(character);
-                        break;
+                    result.append(c);
                 }
             }
+            return result.toString();
         }
-        throw new IllegalStateException("No matching " + delimiter + " found" + context + " in "
-                + url + ". " + all.toString());
-    }
 
-    private static String removeQuotes(String line) {
-        boolean inQuote = false;
-        boolean escaping = false;
-        final StringBuilder builder = new StringBuilder();
-        final Scanner scanner = new Scanner(line);
-        while (scanner.hasNext()) {
-            final String character = scanner.next();
-            if (!inQuote) {
-                if (character.equals("\"")) {
-                    inQuote = true;
-                } else {
-                    builder.append(character);
-                }
-            } else if (escaping) {
-                escaping = false;
-            } else {
-                if (character.equals("\\")) {
-                    escaping = true;
-                } else if (character.equals("\"")) {
-                    inQuote = false;
+        private void skipCharLiteral() {
+            pos++;
+            while (pos < code.length()) {
+                final char c = code.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '\'' || c == '\n') {
+                    return;
                 }
             }
         }
-        scanner.close();
-        return builder.toString();
-    }
-
-    private static String removeComments(InputStream inputStream) {
-        final int outsideComment = 0;
-        final int insideLineComment = 1;
-        final int insideblockComment = 2;
-        boolean insideStringLiteral = false;
-
-        // we want to have at least one new line in the result if the block is
-        // not inline.
-        final int insideblockComment_noNewLineYet = 3;
-
-        int currentState = outsideComment;
-        final StringBuilder endResult = new StringBuilder();
-        final Scanner scanner;
-        scanner = new Scanner(inputStream);
-        scanner.useDelimiter("");
-        while (scanner.hasNext()) {
-            final String character = scanner.next();
-            switch (currentState) {
-                case outsideComment:
-                    if (insideStringLiteral) {
-                        if (character.equals("\"")) {
-                            insideStringLiteral = false;
-                        }
-                        endResult.append(character);
-                    } else if (character.equals("/") && scanner.hasNext()) {
-                        final String c2 = scanner.next();
-                        switch (c2) {
-                            case "/":
-                                currentState = insideLineComment;
-                                break;
-                            case "*":
-                                currentState = insideblockComment_noNewLineYet;
-                                break;
-                            default:
-                                endResult.append(character).append(c2);
-                                break;
-                        }
-                    } else if (character.equals("\"")) {
-                        insideStringLiteral = true;
-                        endResult.append(character);
-                    } else {
-                        endResult.append(character);
-                    }
-                    break;
-                case insideLineComment:
-                    if (character.equals("\n")) {
-                        currentState = outsideComment;
-                        endResult.append("\n");
-                    }
-                    break;
-                case insideblockComment_noNewLineYet:
-                    if (character.equals("\n")) {
-                        endResult.append("\n");
-                        currentState = insideblockComment;
-                    }
-                case insideblockComment:
-                    while (character.equals("*") && scanner.hasNext()) {
-                        final String c2 = scanner.next();
-                        if (c2.equals("/")) {
-                            currentState = outsideComment;
-                            break;
-                        }
 
-                    }
+        private static char unescape(char c) {
+            switch (c) {
+                case 'n': return '\n';
+                case 't': return '\t';
+                case 'r': return '\r';
+                case 'b': return '\b';
+                case 'f': return '\f';
+                default: return c;
             }
         }
-        scanner.close();
-        return endResult.toString();
+
     }
 
 }
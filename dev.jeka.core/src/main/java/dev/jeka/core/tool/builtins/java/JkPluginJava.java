@@ -146,6 +146,10 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         if (this.compilerExtraArgs != null) {
             project.getConstruction().getCompilation().addOptions(JkUtilsString.translateCommandline(this.compilerExtraArgs));
         }
+
+        // Index plugin classes so they can be discovered without scanning classpath
+        JkJavaProjectCompilation<?> compilation = project.getConstruction().getCompilation();
+        compilation.getPostCompileActions().append(() -> JkPluginIndex.write(compilation.getLayout().resolveClassDir()));
     }
 
     private void setupScaffolder() {
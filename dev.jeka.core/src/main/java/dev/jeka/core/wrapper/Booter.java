@@ -2,17 +2,21 @@ package dev.jeka.core.wrapper;
 
 import java.io.*;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.channels.Channels;
+import java.net.*;
 import java.nio.channels.FileChannel;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -27,35 +31,37 @@ class Booter {
 
     private final static String BIN_NAME = "dev.jeka.jeka-core.jar";
 
+    // Keep in sync with dev.jeka.core.tool.CdsArchive
+    private static final String WRAPPER_DIR_PROP_NAME = "jeka.wrapper.dir";
+
     public static void main(String[] args) throws Exception {
         final Path jekawDir = Paths.get(args[0]);
+        System.setProperty(WRAPPER_DIR_PROP_NAME, args[0]);
         Properties props = props(jekawDir);
         Path jekaBinPath = location(props);  // First try to get it from explicit location
         if (jekaBinPath == null) {
             final String version = version(props);
             jekaBinPath = getJekaBinPath(version);
             if (!Files.exists(jekaBinPath)) {
-                final Path zip = downloadDistribZip(version);
-                final Path dir = getJekaVersionCacheDir(version);
-                System.out.println("Unzip distribution to " + dir + " ...");
-                Files.createDirectories(dir);
-                unzip(zip, dir);
-                Files.deleteIfExists(dir.resolve("options.properties"));
-                Files.deleteIfExists(dir.resolve("system.properties"));
-                Files.deleteIfExists(dir.resolve("jeka.bat"));
-                Files.deleteIfExists(dir.resolve("jeka"));
-                System.out.println("Jeka " + version + " installed in " + dir);
+                install(version);
             }
         }
         List<URL> classpath = new LinkedList<>();
         classpath.addAll(getBootLibs());
         classpath.add(jekaBinPath.toUri().toURL());
+        final String[] actualArgs = args.length <= 1 ? new String[0]
+                : Arrays.copyOfRange(args, 1, args.length);
+        final DaemonClient daemonClient = DaemonClient.of(props, jekawDir, classpath, getJekaUserHomeDir());
+        if (daemonClient != null) {
+            final Integer exitCode = daemonClient.run(actualArgs);
+            if (exitCode != null) {
+                System.exit(exitCode);
+            }
+        }
         final ClassLoader classLoader = new URLClassLoader(classpath.toArray(new URL[0]));
         Thread.currentThread().setContextClassLoader(classLoader);
         final Class<?> mainClass = classLoader.loadClass(MAIN_CLASS_NAME);
         final Method method = mainClass.getMethod("main", String[].class);
-        final String[] actualArgs = args.length <= 1 ? new String[0]
-                : Arrays.copyOfRange(args, 1, args.length);
         method.invoke(null, (Object) actualArgs);
     }
 
@@ -81,64 +87,176 @@ class Booter {
         }
     }
 
-    private static Path downloadDistribZip(String version) {
+    /*
+     * Downloads and extracts the distribution in a single pass, verifying it against the checksum published along it.
+     * A lock file prevents concurrent processes from installing the same version twice : the ones waiting for the
+     * lock just reuse the installation done by the first one. Extraction happens in a staging directory moved to
+     * the version directory once complete, so an interrupted install never looks like a usable one.
+     */
+    private static void install(String version) throws IOException {
+        final Path dir = getJekaVersionCacheDir(version);
+        final Path cacheDir = dir.getParent();
+        Files.createDirectories(cacheDir);
+        final Path lockFile = cacheDir.resolve(version + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            final FileLock lock = lockChannel.lock();
+            try {
+                if (Files.exists(dir.resolve(BIN_NAME))) {
+                    return;
+                }
+                final Path stagingDir = cacheDir.resolve(version + ".part");
+                deleteTree(stagingDir);
+                Files.createDirectories(stagingDir);
+                downloadAndUnzip(version, stagingDir);
+                Files.deleteIfExists(stagingDir.resolve("options.properties"));
+                Files.deleteIfExists(stagingDir.resolve("system.properties"));
+                Files.deleteIfExists(stagingDir.resolve("jeka.bat"));
+                Files.deleteIfExists(stagingDir.resolve("jeka"));
+                deleteTree(dir);
+                Files.move(stagingDir, dir);
+                System.out.println("Jeka " + version + " installed in " + dir);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static void downloadAndUnzip(String version, Path dir) throws IOException {
         String repo = repoOptions();
         if (repo == null) {
             repo = "https://repo.maven.apache.org/maven2/";
         }
         final String urlString = repo + "dev/jeka/jeka-core/"
                 + version + "/jeka-core-" + version + "-distrib.zip";
-        System.out.println("Downloading " + urlString + " ...");
+        final Checksum checksum = publishedChecksum(urlString);
+        if (checksum == null) {
+            System.out.println("No checksum published for " + urlString + ", distribution won't be verified.");
+        }
+        System.out.println("Downloading " + urlString + " and unzip to " + dir + " ...");
+        InputStream inputStream = null;
         try {
-            final URL url = new URL(urlString);
-            ReadableByteChannel readableByteChannel = null;
-            try {
-                readableByteChannel = Channels.newChannel(url.openStream());
-            } catch (final FileNotFoundException e) {
-                System.out.println(urlString + " not found. Please check that version " + version + " exists in repo " + repo);
-                System.out.println("Jeka version to download is defined in ./jeka/wrapper/jeka.properties file.");
-                System.exit(1);
-            }
-            final Path temp = Files.createTempFile("jeka-wrapper", ".zip");
-            try (FileOutputStream fileOutputStream = new FileOutputStream(temp.toFile())) {
-                final FileChannel fileChannel = fileOutputStream.getChannel();
-                fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+            inputStream = new URL(urlString).openStream();
+        } catch (final FileNotFoundException e) {
+            System.out.println(urlString + " not found. Please check that version " + version + " exists in repo " + repo);
+            System.out.println("Jeka version to download is defined in ./jeka/wrapper/jeka.properties file.");
+            System.exit(1);
+        }
+        final MessageDigest messageDigest = checksum == null ? null : checksum.newMessageDigest();
+        try (InputStream is = checksum == null ? inputStream : new DigestInputStream(inputStream, messageDigest)) {
+            unzip(is, dir);
+            drain(is);
+        }
+        if (checksum != null) {
+            final String actual = toHex(messageDigest.digest());
+            if (!actual.equalsIgnoreCase(checksum.value)) {
+                deleteTree(dir);
+                throw new IllegalStateException(checksum.algorithm + " checksum of " + urlString + " is " + actual
+                        + " while " + checksum.value + " was expected.");
             }
-            return temp;
-        } catch (final IOException e) {
-            throw new UncheckedIOException(e);
         }
     }
 
-    private static void unzip(Path zip, Path dir) throws IOException {
-        try (InputStream fis = Files.newInputStream(zip); ZipInputStream zis = new ZipInputStream(fis)) {
-            ZipEntry entry = zis.getNextEntry();
-            while (entry != null) {
-                final Path file = dir.resolve(entry.getName());
-                if (entry.isDirectory()) {
-                    if (Files.exists(file) && !Files.isDirectory(file)) {
-                        Files.delete(file);
-                    }
-                    if (!Files.exists(file)){
-                        Files.createDirectories(file);
-                    }
-                } else {
-                    final Path parent = file.getParent();
-                    if (!Files.exists(parent)) {
-                        Files.createDirectories(parent);
-                    }
-                    if (Files.exists(file)) {
-                        Files.delete(file);
+    /*
+     * Returns null if no checksum is published. Only a 404 status (or a missing file for non http repositories) means
+     * that a checksum is not published : other failures are thrown, so distribution is not installed unverified
+     * because of a transient network problem.
+     */
+    static Checksum publishedChecksum(String urlString) throws IOException {
+        for (final String algorithm : new String[] {"SHA-256", "SHA-1"}) {
+            final String checksumUrl = urlString + "." + algorithm.replace("-", "").toLowerCase(Locale.ROOT);
+            final URLConnection connection = new URL(checksumUrl).openConnection();
+            final InputStream inputStream;
+            try {
+                if (connection instanceof HttpURLConnection) {
+                    final int status = ((HttpURLConnection) connection).getResponseCode();
+                    if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                        continue;
                     }
-                    try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(file.toFile()))) {
-                        final byte[] buffer = new byte[Math.toIntExact(entry.getSize())];
-                        int location;
-                        while ((location = zis.read(buffer)) != -1) {
-                            bos.write(buffer, 0, location);
-                        }
+                    if (status != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Http status " + status + " for " + checksumUrl);
                     }
                 }
-                entry = zis.getNextEntry();
+                inputStream = connection.getInputStream();
+            } catch (final FileNotFoundException e) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+                    StandardCharsets.US_ASCII))) {
+                final String line = reader.readLine();
+
+                // Checksum files may mention the file name after the checksum value
+                final String value = line == null ? "" : line.trim().split("\\s+")[0];
+                if (!value.isEmpty()) {
+                    return new Checksum(algorithm, value);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void unzip(InputStream inputStream, Path dir) throws IOException {
+        final Path root = dir.toAbsolutePath().normalize();
+        final ZipInputStream zis = new ZipInputStream(inputStream);
+        ZipEntry entry = zis.getNextEntry();
+        while (entry != null) {
+            final Path file = root.resolve(entry.getName()).normalize();
+            if (!file.startsWith(root)) {
+                throw new IllegalStateException("Zip entry " + entry.getName() + " points outside of " + root);
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(file);
+            } else {
+                Files.createDirectories(file.getParent());
+                Files.copy(zis, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            entry = zis.getNextEntry();
+        }
+    }
+
+    // Reads bytes following the zip entries (central directory) so they are taken in account by the digest.
+    private static void drain(InputStream inputStream) throws IOException {
+        final byte[] buffer = new byte[8192];
+        while (inputStream.read(buffer) != -1) {
+            // just consume
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder result = new StringBuilder();
+        for (final byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            final List<Path> all = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (final Path path : all) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    static final class Checksum {
+
+        final String algorithm;
+
+        final String value;
+
+        Checksum(String algorithm, String value) {
+            this.algorithm = algorithm;
+            this.value = value;
+        }
+
+        MessageDigest newMessageDigest() {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
             }
         }
     }
@@ -166,14 +284,8 @@ class Booter {
         return result;
     }
 
-    private static Path getJekaVersionCacheDir(String verion) {
-        final Path result = getJekaUserHomeDir().resolve("cache/wrapper/" + verion);
-        try {
-            Files.createDirectories(result);
-        } catch (final IOException e) {
-            throw new UncheckedIOException(e);
-        }
-        return result;
+    private static Path getJekaVersionCacheDir(String version) {
+        return getJekaUserHomeDir().resolve("cache/wrapper/" + version);
     }
 
     private static Path getJekaBinPath(String version) {
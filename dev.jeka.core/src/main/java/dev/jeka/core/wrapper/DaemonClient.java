@@ -0,0 +1,284 @@
+package dev.jeka.core.wrapper;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/* Sends Jeka executions to a daemon process (dev.jeka.core.tool.Daemon) serving the project, and launches
+   this daemon if none is running.
+
+   This class must not depend of any other package in dev.jeka.core project as it
+   will be turned in its own jar.
+ */
+final class DaemonClient {
+
+    private static final String DAEMON_CLASS_NAME = "dev.jeka.core.tool.Daemon";
+
+    // Keep in sync with dev.jeka.core.tool.Daemon
+    private static final String STOP_ARG = "-DaemonStop";
+
+    private static final byte STDOUT = 1;
+
+    private static final byte STDERR = 2;
+
+    private static final byte EXIT = 3;
+
+    private static final String DEFAULT_IDLE_MINUTES = "180";
+
+    private static final long START_TIMEOUT_MILLIS = 30_000;
+
+    /*
+     * The daemon inherits the environment of the client launching it, so a client with a different environment
+     * gets its own daemon. These variables change from one shell invocation to another without affecting builds,
+     * so the daemon keeps the values of the client that has launched it.
+     */
+    private static final List<String> VOLATILE_ENV_NAMES = Arrays.asList("_", "PWD", "OLDPWD", "SHLVL",
+            "JEKA_CMD_LINE_ARGS");
+
+    private final Path projectDir;
+
+    private final List<URL> classpath;
+
+    private final String idleMinutes;
+
+    private final Path stateFile;
+
+    private DaemonClient(Path projectDir, List<URL> classpath, String idleMinutes, Path daemonDir) {
+        this.projectDir = projectDir;
+        this.classpath = classpath;
+        this.idleMinutes = idleMinutes;
+        this.stateFile = daemonDir.resolve(key() + ".properties");
+    }
+
+    /**
+     * Returns a client if daemon is enabled, either by JEKA_DAEMON environment variable or by
+     * <code>jeka.daemon</code> wrapper property. Returns <code>null</code> otherwise.
+     */
+    static DaemonClient of(Properties wrapperProps, Path projectDir, List<URL> classpath, Path jekaUserHome) {
+        final String env = System.getenv("JEKA_DAEMON");
+        final String enabled = env != null ? env : wrapperProps.getProperty("jeka.daemon", "false");
+        if (!"true".equalsIgnoreCase(enabled.trim())) {
+            return null;
+        }
+        final String idleMinutes = wrapperProps.getProperty("jeka.daemon.idleMinutes", DEFAULT_IDLE_MINUTES).trim();
+        return new DaemonClient(projectDir.toAbsolutePath().normalize(), classpath, idleMinutes,
+                jekaUserHome.resolve("daemon"));
+    }
+
+    /**
+     * Runs Jeka with the specified arguments on the daemon, launching it if needed. Returns the exit code or
+     * <code>null</code> if the daemon could not be reached, so caller can run Jeka in process. Once the arguments
+     * are being sent, the daemon may have started the execution : a failure then results in a non-zero exit code
+     * rather than in running the execution a second time in process.
+     */
+    Integer run(String[] args) {
+        final boolean stop = args.length == 1 && STOP_ARG.equals(args[0]);
+        Socket socket;
+        try {
+            socket = connect();
+            if (socket == null) {
+                if (stop) {
+                    System.out.println("No Jeka daemon running for " + projectDir);
+                    return 0;
+                }
+                socket = connect(start());
+            }
+        } catch (final IOException | RuntimeException e) {
+            System.err.println("Jeka daemon unavailable (" + e + "). Running in process.");
+            return null;
+        }
+        try (Socket closeable = socket) {
+            return exchange(closeable, args);
+        } catch (final IOException | RuntimeException e) {
+            System.err.println("Connection to Jeka daemon lost (" + e + "). Execution outcome is unknown.");
+            return 1;
+        }
+    }
+
+    private Socket connect() throws IOException {
+        final Properties state = readState();
+        if (state == null) {
+            return null;
+        }
+        try {
+            return connect(state);
+        } catch (final ConnectException e) {   // daemon has died without cleaning its state
+            Files.deleteIfExists(stateFile);
+            return null;
+        }
+    }
+
+    private Socket connect(Properties state) throws IOException {
+        final Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(state.getProperty("port")));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeUTF(state.getProperty("token"));
+        out.flush();
+        return socket;
+    }
+
+    private int exchange(Socket socket, String[] args) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(args.length);
+        for (final String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] buffer = new byte[8192];
+        while (true) {
+            final byte type;
+            try {
+                type = in.readByte();
+            } catch (final EOFException e) {
+                System.err.println("Jeka daemon closed connection unexpectedly.");
+                return 1;
+            }
+            if (type == EXIT) {
+                System.out.flush();
+                System.err.flush();
+                return in.readInt();
+            }
+            final int length = in.readInt();
+            if (length > buffer.length) {
+                buffer = new byte[length];
+            }
+            in.readFully(buffer, 0, length);
+            if (type == STDOUT) {
+                System.out.write(buffer, 0, length);
+            } else if (type == STDERR) {
+                System.out.flush();
+                System.err.write(buffer, 0, length);
+            }
+        }
+    }
+
+    private Properties start() throws IOException {
+        Files.createDirectories(stateFile.getParent());
+        final String javaHome = System.getProperty("java.home");
+        final List<String> command = new LinkedList<>();
+        command.add(Paths.get(javaHome, "bin", "java").toString());
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .filter(arg -> !arg.startsWith("-agentlib:jdwp") && !arg.startsWith("-Xrunjdwp"))
+                .forEach(command::add);
+        command.add("-cp");
+        command.add(classpath.stream().map(DaemonClient::toPath).map(Path::toString)
+                .collect(Collectors.joining(File.pathSeparator)));
+        command.add(DAEMON_CLASS_NAME);
+        command.add(stateFile.toString());
+        command.add(idleMinutes);
+        final File logFile = stateFile.resolveSibling(stateFile.getFileName() + ".log").toFile();
+        System.out.println("Starting Jeka daemon for " + projectDir + " ...");
+        new ProcessBuilder(command)
+                .directory(projectDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+        final long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            final Properties state = readState();
+            if (state != null) {
+                return state;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IllegalStateException("Daemon did not start in time. See " + logFile);
+    }
+
+    private Properties readState() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        if (isReadableByOthers(stateFile)) {
+            throw new IOException("Daemon state file " + stateFile + " is readable by other users");
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(stateFile)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    // The state file holds the token granting to run builds as the current user
+    private static boolean isReadableByOthers(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            return permissions.contains(PosixFilePermission.GROUP_READ)
+                    || permissions.contains(PosixFilePermission.OTHERS_READ);
+        }
+        final AclFileAttributeView view = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (view == null) {
+            return false;
+        }
+        final UserPrincipal owner = view.getOwner();
+        return view.getAcl().stream().anyMatch(entry -> entry.type() == AclEntryType.ALLOW
+                && !entry.principal().equals(owner)
+                && entry.permissions().contains(AclEntryPermission.READ_DATA));
+    }
+
+    /*
+     * A daemon serves a single project, using the same Jeka distribution, JVM, JVM options (including system
+     * properties) and environment variables as the ones the wrapper is launched with.
+     */
+    private String key() {
+        final List<String> items = new LinkedList<>();
+        items.add(projectDir.toString());
+        for (final URL url : classpath) {
+            final Path path = toPath(url);
+            items.add(path.toString());
+            try {
+                items.add(Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis());
+            } catch (final IOException e) {
+                items.add("-");
+            }
+        }
+        items.add(System.getProperty("java.home"));
+        items.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        new TreeMap<>(System.getenv()).forEach((name, value) -> {
+            if (!VOLATILE_ENV_NAMES.contains(name)) {
+                items.add(name + "=" + value);
+            }
+        });
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            for (final String item : items) {
+                messageDigest.update(item.getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) 0);
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (final byte b : messageDigest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path toPath(URL url) {
+        try {
+            return Paths.get(url.toURI());
+        } catch (final URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package dev.jeka.core.api.depmanagement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JkRepoTest {
+
+    @Test
+    public void testAcceptsGroup() {
+        JkRepo repo = JkRepo.ofMavenCentral();
+        Assert.assertTrue(repo.acceptsGroup("com.google.guava"));
+        repo.addGroupPrefixes("com.mycompany.*", "org.acme");
+        Assert.assertTrue(repo.acceptsGroup("com.mycompany"));
+        Assert.assertTrue(repo.acceptsGroup("com.mycompany.foo"));
+        Assert.assertTrue(repo.acceptsGroup("org.acme.bar"));
+        Assert.assertFalse(repo.acceptsGroup("com.mycompanyfoo"));
+        Assert.assertFalse(repo.acceptsGroup("com.google.guava"));
+        Assert.assertFalse(repo.copy().acceptsGroup("com.google.guava"));
+    }
+
+}
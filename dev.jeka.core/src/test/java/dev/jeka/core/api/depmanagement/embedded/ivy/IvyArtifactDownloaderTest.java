@@ -0,0 +1,96 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class IvyArtifactDownloaderTest {
+
+    // sha1 of "content"
+    private static final String SHA1 = "040f06fd774092478d450774f5ba30c5da78acc8";
+
+    private final Map<String, String> resources = new HashMap<>();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            final String content = resources.get(exchange.getRequestURI().getPath());
+            if (content == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        dir = temporaryFolder.newFolder("downloads").toPath();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        resources.put("/lib.jar", "content");
+        resources.put("/lib.jar.sha1", SHA1 + "  lib.jar");
+        final File file = dir.resolve("lib.jar").toFile();
+        Assert.assertNull(IvyArtifactDownloader.of(2).download(url("/lib.jar"), file));
+        Assert.assertEquals("content", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        resources.put("/lib.jar", "corrupted");
+        resources.put("/lib.jar.sha1", SHA1);
+        final File file = dir.resolve("lib.jar").toFile();
+        final String failure = IvyArtifactDownloader.of(2).download(url("/lib.jar"), file);
+        Assert.assertNotNull(failure);
+        Assert.assertTrue(failure, failure.contains("does not match published one"));
+        Assert.assertFalse(file.exists());
+        Assert.assertArrayEquals(new String[0], dir.toFile().list());
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        final File file = dir.resolve("lib.jar").toFile();
+        final String failure = IvyArtifactDownloader.of(2).download(url("/lib.jar"), file);
+        Assert.assertNotNull(failure);
+        Assert.assertTrue(failure, failure.contains("not found"));
+        Assert.assertFalse(file.exists());
+    }
+
+    private URL url(String path) throws Exception {
+        return new URL("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + path);
+    }
+
+}
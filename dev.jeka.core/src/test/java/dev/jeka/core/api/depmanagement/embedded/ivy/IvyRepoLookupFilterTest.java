@@ -0,0 +1,86 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IvyRepoLookupFilterTest {
+
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger lookupCount = new AtomicInteger();
+
+    @Test
+    public void testMissRecordedThenSkipped() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("misses.txt");
+        final JkRepo repo = JkRepo.of("https://repo.example.org");
+        lookup(IvyRepoLookupFilter.of(repo, TTL, file), "1.0");
+        lookup(IvyRepoLookupFilter.of(repo, TTL, file), "1.0");
+        Assert.assertEquals(1, lookupCount.get());
+        Assert.assertEquals(1, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testSnapshotAndFileRepoNotRecorded() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("misses.txt");
+        final IvyRepoLookupFilter filter = IvyRepoLookupFilter.of(JkRepo.of("https://repo.example.org"), TTL, file);
+        lookup(filter, "1.0-SNAPSHOT");
+        lookup(filter, "1.0-SNAPSHOT");
+        final IvyRepoLookupFilter fileFilter = IvyRepoLookupFilter.of(
+                JkRepo.of(temporaryFolder.newFolder("repo").toPath()), TTL, file);
+        lookup(fileFilter, "1.0");
+        lookup(fileFilter, "1.0");
+        Assert.assertEquals(4, lookupCount.get());
+        Assert.assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testExpiredMissesCompacted() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("misses.txt");
+        final long now = System.currentTimeMillis();
+        Files.write(file, Arrays.asList(
+                "org.acme:a:1.0 " + (now - 2 * TTL),
+                "org.acme:b:1.0 " + (now - 2 * TTL),
+                "org.acme:b:1.0 " + now), StandardCharsets.UTF_8);
+        final IvyRepoLookupFilter filter = IvyRepoLookupFilter.of(JkRepo.of("https://repo.example.org"), TTL, file);
+        lookup(filter, "1.0");
+        Assert.assertEquals(1, lookupCount.get());
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("org.acme:b:1.0 " + now, lines.get(0));
+        Assert.assertTrue(lines.get(1).startsWith("org.acme:a:1.0 "));
+        lookup(filter, "1.0", "b");
+        Assert.assertEquals(1, lookupCount.get());
+    }
+
+    private void lookup(IvyRepoLookupFilter filter, String version) throws Exception {
+        lookup(filter, version, "a");
+    }
+
+    private void lookup(IvyRepoLookupFilter filter, String version, String name) throws Exception {
+        final ModuleRevisionId moduleRevisionId = ModuleRevisionId.newInstance("org.acme", name, version);
+        Assert.assertNull(filter.getDependency(new DefaultDependencyDescriptor(moduleRevisionId, false),
+                new ResolveData(null, new ResolveOptions()), (dd, data) -> {
+                    lookupCount.incrementAndGet();
+                    return null;
+                }));
+    }
+
+}
@@ -0,0 +1,43 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class JkInternalRepoStatsTest {
+
+    @Test
+    public void testSortAndSave() throws IOException {
+        Path file = Files.createTempDirectory("jeka-test").resolve("repo-stats.txt");
+        JkRepo slow = JkRepo.of("https://slow.example.com/maven2");
+        JkRepo fast = JkRepo.of("https://fast.example.com/maven2");
+        JkRepo missing = JkRepo.of("https://missing.example.com/maven2");
+        JkInternalRepoStats stats = JkInternalRepoStats.of(file);
+        for (int i = 0; i < 5; i++) {
+            stats.record(slow, true, 300);
+            stats.record(fast, true, 50);
+            stats.record(missing, false, 10);
+        }
+        List<JkRepo> repos = JkUtilsIterable.listOf(slow, missing, fast);
+        Assert.assertEquals(JkUtilsIterable.listOf(fast, slow, missing), stats.sort(repos));
+
+        stats.save();
+        Assert.assertEquals(JkUtilsIterable.listOf(fast, slow, missing), JkInternalRepoStats.of(file).sort(repos));
+    }
+
+    @Test
+    public void testIsOrderIndependent() {
+        Assert.assertTrue(JkInternalRepoStats.isOrderIndependent(JkVersion.of("1.0")));
+        Assert.assertFalse(JkInternalRepoStats.isOrderIndependent(JkVersion.of("1.0-SNAPSHOT")));
+        Assert.assertFalse(JkInternalRepoStats.isOrderIndependent(JkVersion.of("1.+")));
+        Assert.assertFalse(JkInternalRepoStats.isOrderIndependent(JkVersion.UNSPECIFIED));
+    }
+
+}
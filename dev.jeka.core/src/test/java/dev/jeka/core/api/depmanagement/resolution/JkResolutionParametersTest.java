@@ -0,0 +1,34 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters.JkUpdatePolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class JkResolutionParametersTest {
+
+    @Test
+    public void testUpdatePolicyOf() {
+        Assert.assertEquals(JkUpdatePolicy.ALWAYS, JkUpdatePolicy.of("always"));
+        Assert.assertEquals(JkUpdatePolicy.DAILY, JkUpdatePolicy.of(" Daily"));
+        Assert.assertEquals(JkUpdatePolicy.NEVER, JkUpdatePolicy.of("never"));
+        Assert.assertEquals(TimeUnit.MINUTES.toMillis(30), JkUpdatePolicy.of("interval:30").getTtlMillis());
+        Assert.assertEquals("interval:30", JkUpdatePolicy.of("interval:30").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdatePolicyOfIllegal() {
+        JkUpdatePolicy.of("interval:soon");
+    }
+
+    @Test
+    public void testRefreshed() {
+        JkResolutionParameters parameters = JkResolutionParameters.of();
+        Assert.assertEquals(JkUpdatePolicy.DAILY, parameters.getUpdatePolicy());
+        Assert.assertFalse(parameters.isRefreshed());
+        parameters.setRefreshed(true);
+        Assert.assertEquals(JkUpdatePolicy.ALWAYS, parameters.getUpdatePolicy());
+    }
+
+}
@@ -0,0 +1,79 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static dev.jeka.core.api.depmanagement.resolution.JkResolvedDependencyNode.JkModuleNodeInfo;
+
+public class JkResolvedDependencyNodeTest {
+
+    @Test
+    public void testWithRootConfiguration() {
+        JkResolvedDependencyNode hibernate = node("org.hibernate:hibernate-core", "5.4.27", "compile", "test",
+                node("net.bytebuddy:byte-buddy", "1.10.17", "compile"));
+        JkResolvedDependencyNode mockito = node("org.mockito:mockito-core", "3.7.7", "test",
+                node("net.bytebuddy:byte-buddy", "1.10.19", "test"));
+        JkResolvedDependencyNode root = JkResolvedDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("org.acme:app:1.0")),
+                JkUtilsIterable.listOf(hibernate, mockito));
+
+        JkResolvedDependencyNode compileTree = root.withRootConfiguration("compile");
+        Assert.assertEquals(2, compileTree.toFlattenList().size());
+        Assert.assertEquals("1.10.17", compileTree.getResolvedVersions()
+                .getVersionOf(JkModuleId.of("net.bytebuddy:byte-buddy")).getValue());
+        Assert.assertNull(compileTree.getFirst(JkModuleId.of("org.mockito:mockito-core")));
+
+        JkResolvedDependencyNode testTree = root.withRootConfiguration("test");
+        Assert.assertEquals(3, testTree.toFlattenList().size());
+        Assert.assertEquals("1.10.19", testTree.getResolvedVersions()
+                .getVersionOf(JkModuleId.of("net.bytebuddy:byte-buddy")).getValue());
+        Assert.assertEquals(0, testTree.getFirst(JkModuleId.of("org.hibernate:hibernate-core")).getChildren().size());
+    }
+
+    @Test
+    public void testSharedNodes() {
+        JkResolvedDependencyNode slf4j = node("org.slf4j:slf4j-api", "1.7.30", "compile");
+        JkResolvedDependencyNode logback = node("ch.qos.logback:logback-classic", "1.2.3", "compile", slf4j);
+        JkResolvedDependencyNode oldSlf4j = node("org.slf4j:slf4j-api", "1.7.25", "compile");
+        JkResolvedDependencyNode root = JkResolvedDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("org.acme:app:1.0")),
+                JkUtilsIterable.listOf(logback, oldSlf4j, logback));
+
+        Assert.assertEquals(5, root.toFlattenList().size());
+        Assert.assertSame(slf4j, root.getFirst(JkModuleId.of("org.slf4j:slf4j-api")));
+        Assert.assertTrue(root.contains(JkModuleId.of("ch.qos.logback:logback-classic")));
+        Assert.assertFalse(root.contains(JkModuleId.of("org.acme:other")));
+        Assert.assertEquals(3, root.getResolvedFiles().size());
+        Assert.assertEquals(3, root.getChildModules().size());
+
+        // Last occurrence in deep first order wins
+        Assert.assertEquals("1.7.30", root.getResolvedVersions()
+                .getVersionOf(JkModuleId.of("org.slf4j:slf4j-api")).getValue());
+    }
+
+    private static JkResolvedDependencyNode node(String moduleId, String version, String rootConfiguration,
+                                                 JkResolvedDependencyNode... children) {
+        return node(moduleId, version, new String[] {rootConfiguration}, children);
+    }
+
+    private static JkResolvedDependencyNode node(String moduleId, String version, String rootConf1,
+                                                 String rootConf2, JkResolvedDependencyNode... children) {
+        return node(moduleId, version, new String[] {rootConf1, rootConf2}, children);
+    }
+
+    private static JkResolvedDependencyNode node(String moduleId, String version, String[] rootConfigurations,
+                                                 JkResolvedDependencyNode... children) {
+        JkModuleNodeInfo moduleNodeInfo = JkModuleNodeInfo.of(JkModuleId.of(moduleId), JkVersion.of(version),
+                Collections.emptySet(), JkUtilsIterable.setOf(rootConfigurations), JkVersion.of(version),
+                Collections.singletonList(Paths.get(moduleId + "-" + version + ".jar")));
+        return JkResolvedDependencyNode.ofModuleDep(moduleNodeInfo, JkUtilsIterable.listOf(children));
+    }
+
+}
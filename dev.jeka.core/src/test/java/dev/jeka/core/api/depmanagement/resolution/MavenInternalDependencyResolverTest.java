@@ -0,0 +1,192 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleDependency;
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkTransitivity;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MavenInternalDependencyResolverTest {
+
+    private static final String GROUP = "org.acme";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path repoDir;
+
+    @Before
+    public void setUp() throws Exception {
+        repoDir = temporaryFolder.newFolder("maven-repo").toPath();
+    }
+
+    @Test
+    public void testNearestWins() throws Exception {
+        module("b", "1.0", dependency("d", "1.0"));
+        module("d", "1.0", dependency("c", "2.0"));
+        module("a", "1.0", dependency("c", "1.0"));
+        module("c", "1.0", "");
+        module("c", "2.0", "");
+        final JkResolveResult result = resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and(null, GROUP + ":b:1.0")
+                .and(null, GROUP + ":a:1.0"));
+        Assert.assertFalse(result.getErrorReport().hasErrors());
+        Assert.assertEquals("1.0", result.getVersionOf(JkModuleId.of(GROUP, "c")).getValue());
+        Assert.assertEquals(1, result.getFilesFor(JkModuleId.of(GROUP, "c")).getEntries().size());
+    }
+
+    @Test
+    public void testExclusionsMergedAcrossPaths() throws Exception {
+        module("a", "1.0", "<dependency><groupId>" + GROUP + "</groupId><artifactId>c</artifactId>"
+                + "<version>1.0</version><exclusions><exclusion><groupId>" + GROUP + "</groupId>"
+                + "<artifactId>x</artifactId></exclusion></exclusions></dependency>");
+        module("b", "1.0", dependency("c", "1.0"));
+        module("c", "1.0", dependency("x", "1.0"));
+        module("x", "1.0", "");
+        final JkModuleId x = JkModuleId.of(GROUP, "x");
+        Assert.assertFalse(resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and(null, GROUP + ":a:1.0")).contains(x));
+        Assert.assertTrue(resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and(null, GROUP + ":a:1.0")
+                .and(null, GROUP + ":b:1.0")).contains(x));
+    }
+
+    @Test
+    public void testScopePropagation() throws Exception {
+        module("a", "1.0", dependency("c", "1.0") + scoped("r", "1.0", "runtime")
+                + scoped("t", "1.0", "test") + scoped("p", "1.0", "provided"));
+        module("c", "1.0", "");
+        module("r", "1.0", "");
+        final JkModuleDependency a = JkModuleDependency.of(GROUP + ":a:1.0");
+        final JkResolveResult compileResult = resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and("compile", a.withTransitivity(JkTransitivity.COMPILE)));
+        Assert.assertFalse(compileResult.getErrorReport().hasErrors());
+        Assert.assertTrue(compileResult.contains(JkModuleId.of(GROUP, "c")));
+        Assert.assertFalse(compileResult.contains(JkModuleId.of(GROUP, "r")));
+        final JkResolveResult runtimeResult = resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and("runtime", a.withTransitivity(JkTransitivity.RUNTIME)));
+        Assert.assertFalse(runtimeResult.getErrorReport().hasErrors());
+        Assert.assertTrue(runtimeResult.contains(JkModuleId.of(GROUP, "c")));
+        Assert.assertTrue(runtimeResult.contains(JkModuleId.of(GROUP, "r")));
+        Assert.assertFalse(runtimeResult.contains(JkModuleId.of(GROUP, "t")));
+        Assert.assertFalse(runtimeResult.contains(JkModuleId.of(GROUP, "p")));
+    }
+
+    @Test
+    public void testParentAndBomImport() throws Exception {
+        pom("bom", "1.0", "pom", "<dependencyManagement><dependencies>" + dependency("z", "2.0")
+                + "</dependencies></dependencyManagement>");
+        pom("parent", "1.0", "pom", "<dependencyManagement><dependencies>" + dependency("y", "1.0")
+                + "<dependency><groupId>" + GROUP + "</groupId><artifactId>bom</artifactId><version>1.0</version>"
+                + "<type>pom</type><scope>import</scope></dependency>"
+                + "</dependencies></dependencyManagement>");
+        write("a", "1.0", "pom", "<project><modelVersion>4.0.0</modelVersion><parent><groupId>" + GROUP
+                + "</groupId><artifactId>parent</artifactId><version>1.0</version></parent>"
+                + "<artifactId>a</artifactId><dependencies>" + dependency("y", "") + dependency("z", "")
+                + "</dependencies></project>");
+        jar("a", "1.0");
+        module("y", "1.0", "");
+        module("z", "2.0", "");
+        final JkResolveResult result = resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                .and(null, GROUP + ":a:1.0"));
+        Assert.assertFalse(result.getErrorReport().toString(), result.getErrorReport().hasErrors());
+        Assert.assertEquals("1.0", result.getVersionOf(JkModuleId.of(GROUP, "y")).getValue());
+        Assert.assertEquals("2.0", result.getVersionOf(JkModuleId.of(GROUP, "z")).getValue());
+        Assert.assertFalse(result.contains(JkModuleId.of(GROUP, "parent")));
+    }
+
+    @Test(timeout = 10_000)
+    public void testParentAndBomImportCycle() throws Exception {
+        pom("p1", "1.0", "pom", parent("p2"));
+        pom("p2", "1.0", "pom", parent("p1"));
+        pom("bom", "1.0", "pom", "<dependencyManagement><dependencies>" + bomImport("b")
+                + "</dependencies></dependencyManagement>");
+        write("a", "1.0", "pom", "<project><modelVersion>4.0.0</modelVersion>" + parent("p1")
+                + "<artifactId>a</artifactId></project>");
+        pom("b", "1.0", "jar", "<dependencyManagement><dependencies>" + bomImport("bom")
+                + "</dependencies></dependencyManagement>");
+        jar("a", "1.0");
+        jar("b", "1.0");
+        for (final String name : new String[] {"a", "b"}) {
+            final JkResolveResult result = resolve(JkResolutionParameters.of(), JkQualifiedDependencySet.of()
+                    .and(null, GROUP + ":" + name + ":1.0"));
+            Assert.assertTrue(result.getErrorReport().hasErrors());
+            Assert.assertTrue(result.getErrorReport().toString(),
+                    result.getErrorReport().toString().contains("Cycle in parent or imported BOM POMs"));
+        }
+    }
+
+    @Test
+    public void testStrictConflict() throws Exception {
+        module("a", "1.0", dependency("c", "1.0"));
+        module("b", "1.0", dependency("c", "2.0"));
+        module("c", "1.0", "");
+        module("c", "2.0", "");
+        final JkQualifiedDependencySet dependencies = JkQualifiedDependencySet.of()
+                .and(null, GROUP + ":a:1.0")
+                .and(null, GROUP + ":b:1.0");
+        Assert.assertFalse(resolve(JkResolutionParameters.of(), dependencies).getErrorReport().hasErrors());
+        final JkResolveResult result = resolve(JkResolutionParameters.of()
+                .setConflictResolver(JkResolutionParameters.JkConflictResolver.STRICT), dependencies);
+        Assert.assertTrue(result.getErrorReport().hasErrors());
+        Assert.assertEquals(JkModuleId.of(GROUP, "c"),
+                result.getErrorReport().getModuleProblems().get(0).getModuleId());
+    }
+
+    private JkResolveResult resolve(JkResolutionParameters<?> parameters, JkQualifiedDependencySet dependencies) {
+        return MavenInternalDependencyResolver.of(JkRepo.of(repoDir).toSet()).resolve(null, dependencies,
+                parameters);
+    }
+
+    private void module(String name, String version, String dependencies) throws Exception {
+        pom(name, version, "jar", "<dependencies>" + dependencies + "</dependencies>");
+        jar(name, version);
+    }
+
+    private void pom(String name, String version, String packaging, String content) throws Exception {
+        write(name, version, "pom", "<project><modelVersion>4.0.0</modelVersion><groupId>" + GROUP
+                + "</groupId><artifactId>" + name + "</artifactId><version>" + version + "</version><packaging>"
+                + packaging + "</packaging>" + content + "</project>");
+    }
+
+    private void jar(String name, String version) throws Exception {
+        write(name, version, "jar", "");
+    }
+
+    private void write(String name, String version, String extension, String content) throws Exception {
+        final Path file = repoDir.resolve(GROUP.replace('.', '/')).resolve(name).resolve(version)
+                .resolve(name + "-" + version + "." + extension);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String dependency(String name, String version) {
+        return "<dependency><groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId>"
+                + (version.isEmpty() ? "" : "<version>" + version + "</version>") + "</dependency>";
+    }
+
+    private static String parent(String name) {
+        return "<parent><groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId>"
+                + "<version>1.0</version></parent>";
+    }
+
+    private static String bomImport(String name) {
+        return "<dependency><groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId>"
+                + "<version>1.0</version><type>pom</type><scope>import</scope></dependency>";
+    }
+
+    private static String scoped(String name, String version, String scope) {
+        return "<dependency><groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId><version>"
+                + version + "</version><scope>" + scope + "</scope></dependency>";
+    }
+
+}
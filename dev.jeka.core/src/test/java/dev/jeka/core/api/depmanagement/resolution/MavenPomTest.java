@@ -0,0 +1,89 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MavenPomTest {
+
+    private static final String PARENT = "<project><groupId>org.acme</groupId><artifactId>parent</artifactId>"
+            + "<version>1.0</version><packaging>pom</packaging>"
+            + "<properties><guava.version>30.1-jre</guava.version><junit.version>4.12</junit.version></properties>"
+            + "<dependencyManagement><dependencies>"
+            + "<dependency><groupId>com.google.guava</groupId><artifactId>guava</artifactId>"
+            + "<version>${guava.version}</version></dependency>"
+            + "<dependency><groupId>junit</groupId><artifactId>junit</artifactId><version>${junit.version}</version>"
+            + "<scope>test</scope></dependency>"
+            + "<dependency><groupId>org.acme</groupId><artifactId>bom</artifactId><version>2.0</version>"
+            + "<type>pom</type><scope>import</scope></dependency>"
+            + "</dependencies></dependencyManagement></project>";
+
+    private static final String CHILD = "<project><parent><groupId>org.acme</groupId><artifactId>parent</artifactId>"
+            + "<version>1.0</version></parent><artifactId>child</artifactId>"
+            + "<properties><junit.version>4.13</junit.version></properties>"
+            + "<dependencies>"
+            + "<dependency><groupId>com.google.guava</groupId><artifactId>guava</artifactId>"
+            + "<exclusions><exclusion><groupId>com.google.code.findbugs</groupId><artifactId>*</artifactId>"
+            + "</exclusion></exclusions></dependency>"
+            + "<dependency><groupId>junit</groupId><artifactId>junit</artifactId></dependency>"
+            + "<dependency><groupId>${project.groupId}</groupId><artifactId>core</artifactId>"
+            + "<version>${project.version}</version><optional>true</optional></dependency>"
+            + "</dependencies></project>";
+
+    private static final String BOM = "<project><groupId>org.acme</groupId><artifactId>bom</artifactId>"
+            + "<version>2.0</version><dependencyManagement><dependencies>"
+            + "<dependency><groupId>org.acme</groupId><artifactId>core</artifactId><version>0.9</version></dependency>"
+            + "</dependencies></dependencyManagement></project>";
+
+    @Test
+    public void testInheritAndManage() {
+        MavenPom parent = MavenPom.of(JkUtilsXml.documentFrom(PARENT));
+        MavenPom child = MavenPom.of(JkUtilsXml.documentFrom(CHILD));
+        Assert.assertEquals(JkVersionedModule.of("org.acme:parent:1.0"), child.getParent());
+        MavenPom effective = child.inherit(parent);
+        Assert.assertEquals("org.acme", effective.getGroupId());
+        Assert.assertEquals("1.0", effective.getVersion());
+        Assert.assertEquals("jar", effective.getPackaging());
+        Assert.assertEquals(Collections.singletonList(JkVersionedModule.of("org.acme:bom:2.0")),
+                effective.getImports());
+
+        effective = effective.importManagement(Collections.singletonList(MavenPom.of(JkUtilsXml.documentFrom(BOM))));
+        List<MavenPom.Dependency> dependencies = effective.getDependencies();
+        Assert.assertEquals(3, dependencies.size());
+
+        MavenPom.Dependency guava = dependencies.get(0);
+        Assert.assertEquals("30.1-jre", guava.version);
+        Assert.assertEquals("compile", guava.getScope());
+        Assert.assertTrue(MavenPom.isExcluded(guava.exclusions, JkModuleId.of("com.google.code.findbugs:jsr305")));
+        Assert.assertFalse(MavenPom.isExcluded(guava.exclusions, JkModuleId.of("com.google.guava:failureaccess")));
+
+        MavenPom.Dependency junit = dependencies.get(1);
+        Assert.assertEquals("4.13", junit.version);  // child property overrides parent one
+        Assert.assertEquals("test", junit.getScope());
+
+        MavenPom.Dependency core = dependencies.get(2);
+        Assert.assertEquals("org.acme", core.groupId);
+        Assert.assertEquals("1.0", core.version);  // declared version wins over managed one
+        Assert.assertTrue(core.isOptional());
+    }
+
+    @Test
+    public void testVersionRange() {
+        List<String> versions = Arrays.asList("1.0", "1.1", "1.5", "2.0-SNAPSHOT", "2.0", "2.1");
+        Assert.assertEquals("1.5", MavenVersionRange.select("[1.0,2.0)", versions));
+        Assert.assertEquals("2.0", MavenVersionRange.select("[1.0,2.0]", versions));
+        Assert.assertEquals("2.1", MavenVersionRange.select("[1.1,)", versions));
+        Assert.assertEquals("1.1", MavenVersionRange.select("[1.1]", versions));
+        Assert.assertEquals("1.5", MavenVersionRange.select("1.+", versions));
+        Assert.assertEquals("2.1", MavenVersionRange.select("latest.release", versions));
+        Assert.assertEquals("1.5", MavenVersionRange.select("]1.0,2.0[", versions));
+        Assert.assertNull(MavenVersionRange.select("[3.0,)", versions));
+    }
+
+}
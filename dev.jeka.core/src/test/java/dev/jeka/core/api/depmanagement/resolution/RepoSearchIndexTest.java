@@ -0,0 +1,32 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class RepoSearchIndexTest {
+
+    @Test
+    public void testGetAndRefresh() throws IOException, InterruptedException {
+        Path file = Files.createTempDirectory("jeka-test").resolve("search-index.txt");
+        RepoSearchIndex index = RepoSearchIndex.of(file, Runnable::run);
+        List<String> versions = JkUtilsIterable.listOf("1.0", "1.1");
+        Assert.assertEquals(versions, index.get("versions:org.acme:lib", Long.MAX_VALUE, () -> versions));
+        Assert.assertEquals(versions, index.get("versions:org.acme:lib", Long.MAX_VALUE, () -> {
+            throw new IllegalStateException("Should be answered from index");
+        }));
+
+        // Stale entry is returned while refreshed
+        Thread.sleep(5);
+        List<String> newVersions = JkUtilsIterable.listOf("1.0", "1.1", "1.2");
+        Assert.assertEquals(versions, index.get("versions:org.acme:lib", 1, () -> newVersions));
+        Assert.assertEquals(newVersions, RepoSearchIndex.of(file, Runnable::run)
+                .get("versions:org.acme:lib", Long.MAX_VALUE, () -> versions));
+    }
+
+}
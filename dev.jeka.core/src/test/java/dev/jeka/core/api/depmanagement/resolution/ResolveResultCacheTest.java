@@ -0,0 +1,41 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static dev.jeka.core.api.depmanagement.JkPopularModules.GUAVA;
+import static dev.jeka.core.api.depmanagement.JkPopularModules.JUNIT;
+
+public class ResolveResultCacheTest {
+
+    private static final JkRepoSet REPOS = JkRepo.ofMavenCentral().toSet();
+
+    @Test
+    public void key_fixedVersions_sameKeyForSameRequest() {
+        String key = key(JkDependencySet.of().and(GUAVA.version("19.0")).and(JUNIT.version("4.13")), REPOS);
+        Assert.assertNotNull(key);
+        Assert.assertEquals(key, key(JkDependencySet.of().and(GUAVA.version("19.0")).and(JUNIT.version("4.13")),
+                REPOS));
+        Assert.assertNotEquals(key, key(JkDependencySet.of().and(GUAVA.version("20.0")).and(JUNIT.version("4.13")),
+                REPOS));
+        Assert.assertNotEquals(key, key(JkDependencySet.of().and(GUAVA.version("19.0")).and(JUNIT.version("4.13")),
+                REPOS.and(JkRepo.of("https://my.repo/maven2"))));
+    }
+
+    @Test
+    public void key_dynamicVersions_null() {
+        Assert.assertNull(key(JkDependencySet.of().and(GUAVA.version("19.+")), REPOS));
+        Assert.assertNull(key(JkDependencySet.of().and(GUAVA.version("19.0-SNAPSHOT")), REPOS));
+        Assert.assertNull(key(JkDependencySet.of().and(GUAVA.version("latest.release")), REPOS));
+    }
+
+    private static String key(JkDependencySet dependencySet, JkRepoSet repos) {
+        return ResolveResultCache.key(null, JkQualifiedDependencySet.of(dependencySet), repos,
+                JkResolutionParameters.of());
+    }
+
+}
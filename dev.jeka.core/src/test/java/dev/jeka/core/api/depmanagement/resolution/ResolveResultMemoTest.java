@@ -0,0 +1,114 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static dev.jeka.core.api.depmanagement.JkPopularModules.GUAVA;
+
+public class ResolveResultMemoTest {
+
+    private static final JkRepoSet REPOS = JkRepo.ofMavenCentral().toSet();
+
+    @Test
+    public void testGet() {
+        ResolveResultMemo.clear();
+        JkQualifiedDependencySet dependencies = JkQualifiedDependencySet.of(JkDependencySet.of()
+                .and(GUAVA.version("19.+")));
+        String key = ResolveResultMemo.key(null, dependencies, REPOS, JkResolutionParameters.of());
+        Assert.assertNotEquals(key, ResolveResultMemo.key(null, dependencies, REPOS, JkResolutionParameters.of()
+                .setUpdatePolicy(JkResolutionParameters.JkUpdatePolicy.ALWAYS)));
+
+        JkResolveResult failedResult = JkResolveResult.of(JkResolveResult.ofRoot(null).getDependencyTree(),
+                JkResolveResult.JkErrorReport.failure(Collections.emptyList()));
+        Assert.assertSame(failedResult, ResolveResultMemo.get(key, () -> failedResult));
+
+        JkResolveResult result = JkResolveResult.ofRoot(JkVersionedModule.of("org.acme:app:1.0"));
+        Assert.assertSame(result, ResolveResultMemo.get(key, () -> result));
+        Assert.assertSame(result, ResolveResultMemo.get(key, () -> failedResult));
+        Assert.assertEquals(1, JkDependencyResolver.getMemoHitCount());
+        Assert.assertEquals(2, JkDependencyResolver.getMemoMissCount());
+        ResolveResultMemo.clear();
+    }
+
+    @Test
+    public void testConcurrentGetsShareResolution() throws Exception {
+        ResolveResultMemo.clear();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger resolutionCount = new AtomicInteger();
+        JkResolveResult result = JkResolveResult.ofRoot(JkVersionedModule.of("org.acme:app:1.0"));
+        Supplier<JkResolveResult> resolution = () -> {
+            resolutionCount.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<JkResolveResult> first = executorService.submit(() -> ResolveResultMemo.get("key", resolution));
+            started.await();
+            Future<JkResolveResult> second = executorService.submit(() -> ResolveResultMemo.get("key", resolution));
+            release.countDown();
+            Assert.assertSame(result, first.get());
+            Assert.assertSame(result, second.get());
+            Assert.assertEquals(1, resolutionCount.get());
+        } finally {
+            executorService.shutdownNow();
+            ResolveResultMemo.clear();
+        }
+    }
+
+    @Test
+    public void testFailureRetried() {
+        ResolveResultMemo.clear();
+        try {
+            ResolveResultMemo.get("key", () -> {
+                throw new IllegalStateException("Repository unreachable");
+            });
+            Assert.fail("Resolution failure should be thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Repository unreachable", e.getMessage());
+        }
+        JkResolveResult result = JkResolveResult.ofRoot(JkVersionedModule.of("org.acme:app:1.0"));
+        Assert.assertSame(result, ResolveResultMemo.get("key", () -> result));
+        ResolveResultMemo.clear();
+    }
+
+    @Test
+    public void testDeletedFiles() throws Exception {
+        ResolveResultMemo.clear();
+        Path jar = Files.createTempFile("jeka-memo", ".jar");
+        JkResolvedDependencyNode.JkModuleNodeInfo moduleInfo = JkResolvedDependencyNode.JkModuleNodeInfo.of(
+                JkModuleId.of("org.acme:lib"), JkVersion.of("1.0"), Collections.singleton("default"),
+                Collections.singleton("default"), JkVersion.of("1.0"), Collections.singletonList(jar));
+        JkResolvedDependencyNode child = JkResolvedDependencyNode.ofModuleDep(moduleInfo, Collections.emptyList());
+        JkResolveResult result = JkResolveResult.of(JkResolvedDependencyNode.ofModuleDep(
+                JkResolvedDependencyNode.JkModuleNodeInfo.ofRoot(JkVersionedModule.of("org.acme:app:1.0")),
+                Collections.singletonList(child)), JkResolveResult.JkErrorReport.allFine());
+        Assert.assertSame(result, ResolveResultMemo.get("key", () -> result));
+        Assert.assertSame(result, ResolveResultMemo.get("key", () -> null));
+        Files.delete(jar);
+        JkResolveResult newResult = JkResolveResult.ofRoot(JkVersionedModule.of("org.acme:app:1.0"));
+        Assert.assertSame(newResult, ResolveResultMemo.get("key", () -> newResult));
+        ResolveResultMemo.clear();
+    }
+
+}
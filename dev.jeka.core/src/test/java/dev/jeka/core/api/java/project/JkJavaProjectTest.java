@@ -5,6 +5,8 @@ import dev.jeka.core.api.depmanagement.JkDependencySet.Hint;
 import dev.jeka.core.api.depmanagement.JkPopularModules;
 import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
 import dev.jeka.core.api.depmanagement.JkTransitivity;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
 import dev.jeka.core.api.file.JkPathTree;
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,6 +36,16 @@ public class JkJavaProjectTest {
         Assert.assertNotNull(testCompileDeps.get("b:b"));
     }
 
+    @Test
+    public void resolveDependencies_parametersChanged_resolvedAgain() {
+        JkJavaProjectConstruction construction = JkJavaProject.of().getConstruction();
+        JkResolveResult result = construction.resolveDependencies(JkQualifiedDependencySet.COMPILE_SCOPE);
+        Assert.assertSame(result, construction.resolveDependencies(JkQualifiedDependencySet.COMPILE_SCOPE));
+        construction.getDependencyResolver().getParams()
+                .setConflictResolver(JkResolutionParameters.JkConflictResolver.STRICT);
+        Assert.assertNotSame(result, construction.resolveDependencies(JkQualifiedDependencySet.COMPILE_SCOPE));
+    }
+
     @Test
     public void getTestDependencies_usingSetTestDependency_ok() {
         JkJavaProject project = JkJavaProject.of().simpleFacade()
@@ -1,5 +1,10 @@
 package dev.jeka.core.api.system;
 
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class JkLogTest {
 
     //@Test
@@ -14,4 +19,26 @@ public class JkLogTest {
         thread.start();
         thread.join();
     }
+
+    @Test
+    public void testIsolateNesting() throws Exception {
+        JkLog.startTask("main task");
+        Assert.assertEquals(1, JkLog.getCurrentNestedLevel());
+        final AtomicInteger workerLevel = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            JkLog.isolateNesting(JkLog.getCurrentNestedLevel());
+            JkLog.startTask("worker task");
+            JkLog.startTask("worker sub task");
+            workerLevel.set(JkLog.getCurrentNestedLevel());
+            JkLog.endTask();
+            JkLog.endTask();
+            JkLog.shareNesting();
+        });
+        thread.start();
+        thread.join();
+        Assert.assertEquals(3, workerLevel.get());
+        Assert.assertEquals(1, JkLog.getCurrentNestedLevel());
+        JkLog.endTask();
+        Assert.assertEquals(0, JkLog.getCurrentNestedLevel());
+    }
 }
@@ -0,0 +1,31 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SuppressWarnings("javadoc")
+public class JkTraceRecorderTest {
+
+    @Test
+    public void testStop() throws Exception {
+        final Path file = Files.createTempFile("jeka-trace", ".json");
+        JkTraceRecorder.start();
+        JkLog.startTask("task \"quoted\"");
+        JkTraceRecorder.section("phase", () -> {});
+        JkLog.endTask();
+        JkTraceRecorder.stop(file);
+        Assert.assertFalse(JkTraceRecorder.isRecording());
+        final String content = new String(Files.readAllBytes(file), "UTF-8");
+        Assert.assertTrue(content.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        Assert.assertTrue(content.contains("\"name\":\"task \\\"quoted\\\"\""));
+        Assert.assertTrue(content.contains("\"name\":\"phase\""));
+        Assert.assertEquals(2, content.split("\"ph\":\"E\"").length - 1);
+        Assert.assertTrue(content.contains("\"name\":\"thread_name\""));
+        JkUtilsPath.deleteFile(file);
+    }
+
+}
@@ -0,0 +1,44 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Path;
+
+@SuppressWarnings("javadoc")
+public class ClassFileInfoTest {
+
+    @Test
+    public void readNestedClass() {
+        final Path classFile = JkUtilsPath.get(ClassFileInfoTest.class.getResource("ClassFileInfoTest$Sample.class"));
+        final ClassFileInfo classFileInfo = ClassFileInfo.read(classFile);
+        Assert.assertEquals("dev/jeka/core/tool/ClassFileInfoTest$Sample", classFileInfo.className);
+        Assert.assertEquals("dev/jeka/core/tool/ClassFileInfoTest.java", classFileInfo.sourcePath());
+        Assert.assertTrue(classFileInfo.referencedClassNames.contains("dev/jeka/core/tool/JkClass"));
+        Assert.assertTrue(classFileInfo.referencedClassNames.contains("dev/jeka/core/tool/JkConstants"));
+        Assert.assertFalse(classFileInfo.declaresConstants);
+    }
+
+    @Test
+    public void readConstants() {
+        final Path classFile = JkUtilsPath.get(ClassFileInfoTest.class.getResource(
+                "ClassFileInfoTest$Constants.class"));
+        Assert.assertTrue(ClassFileInfo.read(classFile).declaresConstants);
+    }
+
+    private static class Sample {
+
+        JkClass jkClass;
+
+        String defaultMethod() {
+            return JkConstants.DEFAULT_JEKA_CLASS.getName();
+        }
+    }
+
+    static class Constants {
+
+        static final String VALUE = "value";
+    }
+
+}
@@ -0,0 +1,81 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefCompileStateTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEnvironmentKeyDoesNotDependOnLocationNorTime() throws Exception {
+        final FileDigestCache digestCache = FileDigestCache.of(temporaryFolder.getRoot().toPath()
+                .resolve("file-digests.txt"));
+        final Path workspace1 = temporaryFolder.newFolder("workspace1").toPath();
+        final Path workspace2 = temporaryFolder.newFolder("workspace2").toPath();
+        final String key1 = environmentKey(createProject(workspace1), digestCache);
+        final Path project2 = createProject(workspace2);
+        Files.setLastModifiedTime(project2.resolve("jeka/boot/lib.jar"), FileTime.fromMillis(0));
+        assertEquals(key1, environmentKey(project2, digestCache));
+        Files.write(project2.resolve("jeka/boot/lib.jar"), new byte[] {1, 2, 3, 4});
+        assertNotEquals(key1, environmentKey(project2, digestCache));
+    }
+
+    @Test
+    public void testChangedConstantsInvalidateAllSources() throws Exception {
+        final Path defClassDir = createDefClassDir("ClassFileInfoTest$Constants.class");
+        final Map<String, String> fileHashes = new HashMap<>();
+        fileHashes.put("dev/jeka/core/tool/ClassFileInfoTest.java", "1");
+        fileHashes.put("Other.java", "2");
+        final DefCompileState state = DefCompileState.of("env", fileHashes, defClassDir);
+        assertTrue(state.isCompatible("env", defClassDir));
+        fileHashes.put("dev/jeka/core/tool/ClassFileInfoTest.java", "3");
+        assertTrue(state.invalidatedFiles(fileHashes).contains("Other.java"));
+    }
+
+    @Test
+    public void testUnmappedClassIsNotCompatible() throws Exception {
+        final Path defClassDir = createDefClassDir("ClassFileInfoTest$Sample.class");
+        final Map<String, String> fileHashes = Collections.singletonMap("Sample.java", "1");
+        assertFalse(DefCompileState.of("env", fileHashes, defClassDir).isCompatible("env", defClassDir));
+    }
+
+    private Path createDefClassDir(String classFileName) throws Exception {
+        final Path defClassDir = temporaryFolder.newFolder("def-classes").toPath();
+        final Path target = defClassDir.resolve("dev/jeka/core/tool").resolve(classFileName);
+        Files.createDirectories(target.getParent());
+        Files.copy(JkUtilsPath.get(DefCompileStateTest.class.getResource(classFileName)), target);
+        return defClassDir;
+    }
+
+    private static Path createProject(Path dir) throws Exception {
+        final Path project = dir.resolve("project");
+        Files.createDirectories(project.resolve("jeka/boot"));
+        Files.write(project.resolve("jeka/boot/lib.jar"), new byte[] {1, 2, 3});
+        Files.createDirectories(project.resolve("jeka/.work/def-classes/foo"));
+        Files.write(project.resolve("jeka/.work/def-classes/foo/Bar.class"), new byte[] {4, 5});
+        return project;
+    }
+
+    private static String environmentKey(Path project, FileDigestCache digestCache) {
+        return DefCompileState.environmentKey(Arrays.asList(project.resolve("jeka/boot/lib.jar"),
+                project.resolve("jeka/.work/def-classes")), Collections.singletonList("-g"), project, digestCache);
+    }
+
+}
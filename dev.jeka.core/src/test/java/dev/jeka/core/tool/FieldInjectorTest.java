@@ -23,6 +23,27 @@ public class FieldInjectorTest {
         Assert.assertTrue(sample.c);
     }
 
+    @Test
+    public void testInjectSeveralInstances() {
+        final Map<String, String> map = new HashMap<>();
+        map.put("a", "2");
+        map.put("b.a", "foo");
+        for (int i = 0; i < 3; i++) {
+            final Sample sample = new Sample();
+            Assert.assertEquals(map.keySet(), FieldInjector.inject(sample, map));
+            Assert.assertEquals(2, sample.a);
+            Assert.assertEquals("foo", sample.b.a);
+            Assert.assertFalse(sample.c);
+        }
+    }
+
+    @Test(expected = JkException.class)
+    public void testImproperValue() {
+        final Map<String, String> map = new HashMap<>();
+        map.put("a", "notANumber");
+        FieldInjector.inject(new Sample(), map);
+    }
+
     private static final class Sample {
 
         @JkDoc("option for a")
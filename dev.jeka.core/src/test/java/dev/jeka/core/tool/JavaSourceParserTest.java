@@ -47,6 +47,18 @@ public class JavaSourceParserTest {
         Assert.assertEquals(0, dependencies.getEntries().size());
     }
 
+    @Test
+    public void withCommentsAndLiterals() {
+        SourceParser parser = SourceParser.of(Paths.get(""),
+                JavaSourceParserTest.class.getResource("withCommentsAndLiterals.javasource"));
+        final List<String> dependencies = new LinkedList<>();
+        parser.dependencies().getEntries().forEach(dependency -> dependencies.add(dependency.toString()));
+        Assert.assertEquals(JkUtilsIterable.listOf("com.google:guava:18.0", "toto:titi:12", "foo:bar:6"),
+                dependencies);
+        Assert.assertEquals(1, parser.importRepos().getRepos().size());
+        Assert.assertEquals(JkUtilsIterable.listOf("-parameters", "-g"), parser.compileOptions());
+    }
+
     @Test
     public void with2ProjectImports() {
         final LinkedHashSet<Path> projects = SourceParser.of(Paths.get(""),
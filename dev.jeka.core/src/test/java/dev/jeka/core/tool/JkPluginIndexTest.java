@@ -0,0 +1,41 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.tool.builtins.java.JkPluginJava;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Collections;
+
+@SuppressWarnings("javadoc")
+public class JkPluginIndexTest {
+
+    @Test
+    public void writeAndRead() throws Exception {
+        final Path classDir = JkUtilsPath.createTempDirectory("jeka-plugin-index");
+        importClass(classDir, JkPluginJava.class);
+        importClass(classDir, JkPluginIndex.class);  // Not a plugin despite its name
+        Assert.assertEquals(1, JkPluginIndex.write(classDir));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classDir.toUri().toURL()}, null)) {
+            final JkPluginIndex index = JkPluginIndex.of(classLoader);
+            Assert.assertEquals(Collections.singletonList(JkPluginJava.class.getName()), index.getClassNames("java"));
+            Assert.assertEquals(1, index.getAllClassNames().size());
+            Assert.assertTrue(index.isIndexed(classDir));
+        } finally {
+            JkPathTree.of(classDir).deleteRoot();
+        }
+    }
+
+    private static void importClass(Path classDir, Class<?> clazz) {
+        final String resource = clazz.getName().replace('.', '/') + ".class";
+        final Path target = classDir.resolve(resource);
+        JkUtilsPath.createDirectories(target.getParent());
+        JkUtilsPath.copy(JkUtilsPath.get(clazz.getResource("/" + resource)), target);
+    }
+
+}
@@ -0,0 +1,74 @@
+package dev.jeka.core.wrapper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BooterTest {
+
+    private final Map<String, Integer> statuses = new HashMap<>();
+
+    private final Map<String, String> resources = new HashMap<>();
+
+    private HttpServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final String content = resources.get(path);
+            if (content == null) {
+                exchange.sendResponseHeaders(statuses.getOrDefault(path, 404), -1);
+            } else {
+                final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testPublishedChecksum() throws Exception {
+        resources.put("/distrib.zip.sha1", "abcd  distrib.zip");
+        final Booter.Checksum checksum = Booter.publishedChecksum(url("/distrib.zip"));
+        Assert.assertEquals("SHA-1", checksum.algorithm);
+        Assert.assertEquals("abcd", checksum.value);
+    }
+
+    @Test
+    public void testNoChecksumPublished() throws Exception {
+        Assert.assertNull(Booter.publishedChecksum(url("/distrib.zip")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testChecksumFetchError() throws Exception {
+        statuses.put("/distrib.zip.sha256", 503);
+        resources.put("/distrib.zip.sha1", "abcd");
+        Booter.publishedChecksum(url("/distrib.zip"));
+    }
+
+    private String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+}